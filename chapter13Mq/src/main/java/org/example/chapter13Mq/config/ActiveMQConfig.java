@@ -5,6 +5,7 @@ import org.apache.activemq.pool.PooledConnectionFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.jms.annotation.EnableJms;
 import org.springframework.jms.config.DefaultJmsListenerContainerFactory;
 import org.springframework.jms.config.JmsListenerContainerFactory;
@@ -35,6 +36,9 @@ public class ActiveMQConfig {
     @Value("${spring.activemq.password}")
     private String password;
 
+    @Value("${activemq.consumer.batch.enabled:false}")
+    private boolean batchConsumerEnabled;
+
     /**
      * 连接工厂配置
      */
@@ -98,6 +102,7 @@ public class ActiveMQConfig {
      * 用于发送消息
      */
     @Bean
+    @Primary
     public JmsTemplate jmsTemplate() {
         JmsTemplate template = new JmsTemplate();
         template.setConnectionFactory(pooledConnectionFactory());
@@ -109,6 +114,24 @@ public class ActiveMQConfig {
         return template;
     }
 
+    /**
+     * 事务JMS模板配置
+     * 用于批量发送：一个事务块内的持久消息不逐条等待broker确认，提交时统一确认
+     */
+    @Bean
+    public JmsTemplate transactedJmsTemplate() {
+        JmsTemplate template = new JmsTemplate();
+        template.setConnectionFactory(pooledConnectionFactory());
+        template.setMessageConverter(messageConverter());
+        template.setSessionTransacted(true);
+        // 不开启时 JmsTemplate 忽略以下投递模式、TTL和优先级，按生产者默认值发送
+        template.setExplicitQosEnabled(true);
+        template.setDeliveryPersistent(true);
+        template.setTimeToLive(60000);
+        template.setPriority(4);
+        return template;
+    }
+
     /**
      * 队列监听器容器工厂配置
      */
@@ -122,6 +145,21 @@ public class ActiveMQConfig {
         return factory;
     }
 
+    /**
+     * 逐条消费的队列监听器容器工厂配置
+     * 用于支持批量消费的队列，启用批量消费时不自动启动，改由 {@link BatchConsumerConfig} 中的容器消费
+     */
+    @Bean
+    public JmsListenerContainerFactory<?> perMessageQueueListenerContainerFactory() {
+        DefaultJmsListenerContainerFactory factory = new DefaultJmsListenerContainerFactory();
+        factory.setConnectionFactory(pooledConnectionFactory());
+        factory.setMessageConverter(messageConverter());
+        factory.setConcurrency("1-5");
+        factory.setPubSubDomain(false);
+        factory.setAutoStartup(!batchConsumerEnabled);
+        return factory;
+    }
+
     /**
      * 主题监听器容器工厂配置
      */
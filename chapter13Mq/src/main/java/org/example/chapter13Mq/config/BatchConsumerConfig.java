@@ -0,0 +1,72 @@
+package org.example.chapter13Mq.config;
+
+import org.example.chapter13Mq.listener.BatchMessageListenerContainer;
+import org.example.chapter13Mq.model.OrderMessage;
+import org.example.chapter13Mq.model.UserMessage;
+import org.example.chapter13Mq.service.MessageConsumerService;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jms.support.converter.MessageConverter;
+
+import javax.jms.ConnectionFactory;
+
+/**
+ * 批量消费配置
+ * 启用后用户和订单队列改为批量拉取，每批一次确认
+ *
+ * @author example
+ * @since 1.0.0
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "activemq.consumer.batch", name = "enabled", havingValue = "true")
+public class BatchConsumerConfig {
+
+    @Value("${activemq.consumer.batch.max-messages:100}")
+    private int maxMessages;
+
+    @Value("${activemq.consumer.batch.receive-timeout-ms:200}")
+    private long receiveTimeoutMs;
+
+    @Value("${activemq.consumer.batch.ack-mode:transacted}")
+    private String ackMode;
+
+    @Value("${activemq.consumer.batch.concurrency:1}")
+    private int concurrency;
+
+    /**
+     * 订单队列批量监听容器
+     */
+    @Bean
+    public BatchMessageListenerContainer<OrderMessage> orderBatchListenerContainer(
+            @Qualifier("connectionFactory") ConnectionFactory connectionFactory,
+            MessageConverter messageConverter,
+            MessageConsumerService messageConsumerService,
+            @Value("${activemq.queue.order}") String orderQueue) {
+        return configure(new BatchMessageListenerContainer<>(connectionFactory, orderQueue, OrderMessage.class,
+                messageConverter, messageConsumerService::handleOrderMessages));
+    }
+
+    /**
+     * 用户队列批量监听容器
+     */
+    @Bean
+    public BatchMessageListenerContainer<UserMessage> userBatchListenerContainer(
+            @Qualifier("connectionFactory") ConnectionFactory connectionFactory,
+            MessageConverter messageConverter,
+            MessageConsumerService messageConsumerService,
+            @Value("${activemq.queue.user}") String userQueue) {
+        return configure(new BatchMessageListenerContainer<>(connectionFactory, userQueue, UserMessage.class,
+                messageConverter, messageConsumerService::handleUserMessages));
+    }
+
+    private <T> BatchMessageListenerContainer<T> configure(BatchMessageListenerContainer<T> container) {
+        container.setMaxMessages(maxMessages);
+        container.setReceiveTimeoutMs(receiveTimeoutMs);
+        container.setAckMode(BatchMessageListenerContainer.AckMode.of(ackMode));
+        container.setConcurrency(concurrency);
+        return container;
+    }
+}
@@ -1,16 +1,21 @@
 package org.example.chapter13Mq.controller;
 
+import org.example.chapter13Mq.model.BatchSendResult;
 import org.example.chapter13Mq.model.OrderMessage;
 import org.example.chapter13Mq.model.UserMessage;
+import org.example.chapter13Mq.service.AsyncMessageSender;
 import org.example.chapter13Mq.service.MessageConsumerService;
 import org.example.chapter13Mq.service.MessageProducerService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * ActiveMQ 演示控制器
@@ -31,30 +36,27 @@ public class ActiveMQController {
     @Autowired
     private MessageConsumerService messageConsumerService;
 
+    @Value("${activemq.batch.max-count:10000}")
+    private int maxBatchCount;
+
+    @Value("${activemq.batch.max-chunk-size:1000}")
+    private int maxBatchChunkSize;
+
     /**
      * 发送用户消息
+     * 异步发送，delivery 可选 confirmed / fire-and-forget，默认按队列配置
      */
     @PostMapping("/send/user")
-    public Map<String, Object> sendUserMessage(@RequestBody UserMessage userMessage) {
+    public CompletableFuture<Map<String, Object>> sendUserMessage(
+            @RequestBody UserMessage userMessage,
+            @RequestParam(required = false) String delivery) {
         log.info("接收到发送用户消息请求: {}", userMessage);
         
         try {
-            messageProducerService.sendUserMessage(userMessage);
-            
-            Map<String, Object> result = new HashMap<>();
-            result.put("success", true);
-            result.put("message", "用户消息发送成功");
-            result.put("data", userMessage);
-            
-            return result;
+            return toResponse(messageProducerService.sendUserMessageAsync(userMessage, deliveryOf(delivery)),
+                    "用户消息", userMessage);
         } catch (Exception e) {
-            log.error("发送用户消息失败", e);
-            
-            Map<String, Object> result = new HashMap<>();
-            result.put("success", false);
-            result.put("message", "用户消息发送失败: " + e.getMessage());
-            
-            return result;
+            return CompletableFuture.completedFuture(failure("用户消息", e));
         }
     }
 
@@ -62,26 +64,16 @@ public class ActiveMQController {
      * 发送订单消息
      */
     @PostMapping("/send/order")
-    public Map<String, Object> sendOrderMessage(@RequestBody OrderMessage orderMessage) {
+    public CompletableFuture<Map<String, Object>> sendOrderMessage(
+            @RequestBody OrderMessage orderMessage,
+            @RequestParam(required = false) String delivery) {
         log.info("接收到发送订单消息请求: {}", orderMessage);
         
         try {
-            messageProducerService.sendOrderMessage(orderMessage);
-            
-            Map<String, Object> result = new HashMap<>();
-            result.put("success", true);
-            result.put("message", "订单消息发送成功");
-            result.put("data", orderMessage);
-            
-            return result;
+            return toResponse(messageProducerService.sendOrderMessageAsync(orderMessage, deliveryOf(delivery)),
+                    "订单消息", orderMessage);
         } catch (Exception e) {
-            log.error("发送订单消息失败", e);
-            
-            Map<String, Object> result = new HashMap<>();
-            result.put("success", false);
-            result.put("message", "订单消息发送失败: " + e.getMessage());
-            
-            return result;
+            return CompletableFuture.completedFuture(failure("订单消息", e));
         }
     }
 
@@ -89,29 +81,18 @@ public class ActiveMQController {
      * 发送邮件消息
      */
     @PostMapping("/send/email")
-    public Map<String, Object> sendEmailMessage(
+    public CompletableFuture<Map<String, Object>> sendEmailMessage(
             @RequestParam String to,
             @RequestParam String subject,
-            @RequestParam String content) {
+            @RequestParam String content,
+            @RequestParam(required = false) String delivery) {
         log.info("接收到发送邮件消息请求: to={}, subject={}", to, subject);
         
         try {
-            messageProducerService.sendEmailMessage(to, subject, content);
-            
-            Map<String, Object> result = new HashMap<>();
-            result.put("success", true);
-            result.put("message", "邮件消息发送成功");
-            result.put("data", Map.of("to", to, "subject", subject, "content", content));
-            
-            return result;
+            return toResponse(messageProducerService.sendEmailMessageAsync(to, subject, content, deliveryOf(delivery)),
+                    "邮件消息", Map.of("to", to, "subject", subject, "content", content));
         } catch (Exception e) {
-            log.error("发送邮件消息失败", e);
-            
-            Map<String, Object> result = new HashMap<>();
-            result.put("success", false);
-            result.put("message", "邮件消息发送失败: " + e.getMessage());
-            
-            return result;
+            return CompletableFuture.completedFuture(failure("邮件消息", e));
         }
     }
 
@@ -119,59 +100,40 @@ public class ActiveMQController {
      * 发送通知消息
      */
     @PostMapping("/send/notification")
-    public Map<String, Object> sendNotificationMessage(
+    public CompletableFuture<Map<String, Object>> sendNotificationMessage(
             @RequestParam String username,
             @RequestParam String title,
-            @RequestParam String content) {
+            @RequestParam String content,
+            @RequestParam(required = false) String delivery) {
         log.info("接收到发送通知消息请求: username={}, title={}", username, title);
         
         try {
-            messageProducerService.sendNotificationMessage(username, title, content);
-            
-            Map<String, Object> result = new HashMap<>();
-            result.put("success", true);
-            result.put("message", "通知消息发送成功");
-            result.put("data", Map.of("username", username, "title", title, "content", content));
-            
-            return result;
+            return toResponse(messageProducerService.sendNotificationMessageAsync(username, title, content,
+                            deliveryOf(delivery)),
+                    "通知消息", Map.of("username", username, "title", title, "content", content));
         } catch (Exception e) {
-            log.error("发送通知消息失败", e);
-            
-            Map<String, Object> result = new HashMap<>();
-            result.put("success", false);
-            result.put("message", "通知消息发送失败: " + e.getMessage());
-            
-            return result;
+            return CompletableFuture.completedFuture(failure("通知消息", e));
         }
     }
 
     /**
      * 发布新闻消息
+     * 异步发布，delivery 同发送接口，默认按主题配置
      */
     @PostMapping("/publish/news")
-    public Map<String, Object> publishNewsMessage(
+    public CompletableFuture<Map<String, Object>> publishNewsMessage(
             @RequestParam String title,
             @RequestParam String content,
-            @RequestParam String category) {
+            @RequestParam String category,
+            @RequestParam(required = false) String delivery) {
         log.info("接收到发布新闻消息请求: title={}, category={}", title, category);
         
         try {
-            messageProducerService.publishNewsMessage(title, content, category);
-            
-            Map<String, Object> result = new HashMap<>();
-            result.put("success", true);
-            result.put("message", "新闻消息发布成功");
-            result.put("data", Map.of("title", title, "content", content, "category", category));
-            
-            return result;
+            return toResponse(messageProducerService.publishNewsMessageAsync(title, content, category,
+                            deliveryOf(delivery)),
+                    "发布", "新闻消息", Map.of("title", title, "content", content, "category", category));
         } catch (Exception e) {
-            log.error("发布新闻消息失败", e);
-            
-            Map<String, Object> result = new HashMap<>();
-            result.put("success", false);
-            result.put("message", "新闻消息发布失败: " + e.getMessage());
-            
-            return result;
+            return CompletableFuture.completedFuture(failure("发布", "新闻消息", e));
         }
     }
 
@@ -179,29 +141,19 @@ public class ActiveMQController {
      * 发布天气消息
      */
     @PostMapping("/publish/weather")
-    public Map<String, Object> publishWeatherMessage(
+    public CompletableFuture<Map<String, Object>> publishWeatherMessage(
             @RequestParam String city,
             @RequestParam String weather,
-            @RequestParam String temperature) {
+            @RequestParam String temperature,
+            @RequestParam(required = false) String delivery) {
         log.info("接收到发布天气消息请求: city={}, weather={}", city, weather);
         
         try {
-            messageProducerService.publishWeatherMessage(city, weather, temperature);
-            
-            Map<String, Object> result = new HashMap<>();
-            result.put("success", true);
-            result.put("message", "天气消息发布成功");
-            result.put("data", Map.of("city", city, "weather", weather, "temperature", temperature));
-            
-            return result;
+            return toResponse(messageProducerService.publishWeatherMessageAsync(city, weather, temperature,
+                            deliveryOf(delivery)),
+                    "发布", "天气消息", Map.of("city", city, "weather", weather, "temperature", temperature));
         } catch (Exception e) {
-            log.error("发布天气消息失败", e);
-            
-            Map<String, Object> result = new HashMap<>();
-            result.put("success", false);
-            result.put("message", "天气消息发布失败: " + e.getMessage());
-            
-            return result;
+            return CompletableFuture.completedFuture(failure("发布", "天气消息", e));
         }
     }
 
@@ -209,29 +161,19 @@ public class ActiveMQController {
      * 发布股票消息
      */
     @PostMapping("/publish/stock")
-    public Map<String, Object> publishStockMessage(
+    public CompletableFuture<Map<String, Object>> publishStockMessage(
             @RequestParam String symbol,
             @RequestParam String price,
-            @RequestParam String change) {
+            @RequestParam String change,
+            @RequestParam(required = false) String delivery) {
         log.info("接收到发布股票消息请求: symbol={}, price={}", symbol, price);
         
         try {
-            messageProducerService.publishStockMessage(symbol, price, change);
-            
-            Map<String, Object> result = new HashMap<>();
-            result.put("success", true);
-            result.put("message", "股票消息发布成功");
-            result.put("data", Map.of("symbol", symbol, "price", price, "change", change));
-            
-            return result;
+            return toResponse(messageProducerService.publishStockMessageAsync(symbol, price, change,
+                            deliveryOf(delivery)),
+                    "发布", "股票消息", Map.of("symbol", symbol, "price", price, "change", change));
         } catch (Exception e) {
-            log.error("发布股票消息失败", e);
-            
-            Map<String, Object> result = new HashMap<>();
-            result.put("success", false);
-            result.put("message", "股票消息发布失败: " + e.getMessage());
-            
-            return result;
+            return CompletableFuture.completedFuture(failure("发布", "股票消息", e));
         }
     }
 
@@ -239,45 +181,52 @@ public class ActiveMQController {
      * 发送文本消息
      */
     @PostMapping("/send/text")
-    public Map<String, Object> sendTextMessage(
+    public CompletableFuture<Map<String, Object>> sendTextMessage(
             @RequestParam String destination,
-            @RequestParam String message) {
+            @RequestParam String message,
+            @RequestParam(required = false) String delivery) {
         log.info("接收到发送文本消息请求: destination={}, message={}", destination, message);
         
         try {
-            messageProducerService.sendTextMessage(destination, message);
-            
-            Map<String, Object> result = new HashMap<>();
-            result.put("success", true);
-            result.put("message", "文本消息发送成功");
-            result.put("data", Map.of("destination", destination, "message", message));
-            
-            return result;
+            return toResponse(messageProducerService.sendTextMessageAsync(destination, message, deliveryOf(delivery)),
+                    "文本消息", Map.of("destination", destination, "message", message));
         } catch (Exception e) {
-            log.error("发送文本消息失败", e);
-            
-            Map<String, Object> result = new HashMap<>();
-            result.put("success", false);
-            result.put("message", "文本消息发送失败: " + e.getMessage());
-            
-            return result;
+            return CompletableFuture.completedFuture(failure("文本消息", e));
         }
     }
 
     /**
      * 批量发送用户消息
+     * count 不超过 activemq.batch.max-count，chunkSize 不超过 activemq.batch.max-chunk-size
      */
     @PostMapping("/send/batch")
-    public Map<String, Object> sendBatchUserMessages(@RequestParam(defaultValue = "10") int count) {
-        log.info("接收到批量发送用户消息请求: count={}", count);
+    public Map<String, Object> sendBatchUserMessages(
+            @RequestParam(defaultValue = "10") int count,
+            @RequestParam(required = false) Integer chunkSize) {
+        log.info("接收到批量发送用户消息请求: count={}, chunkSize={}", count, chunkSize);
+        
+        String invalid = null;
+        if (count <= 0 || count > maxBatchCount) {
+            invalid = "count 必须在 1 到 " + maxBatchCount + " 之间: " + count;
+        } else if (chunkSize != null && (chunkSize <= 0 || chunkSize > maxBatchChunkSize)) {
+            invalid = "chunkSize 必须在 1 到 " + maxBatchChunkSize + " 之间: " + chunkSize;
+        }
+        if (invalid != null) {
+            Map<String, Object> result = new HashMap<>();
+            result.put("success", false);
+            result.put("message", "批量用户消息发送失败: " + invalid);
+            return result;
+        }
         
         try {
-            messageProducerService.sendBatchUserMessages(count);
+            BatchSendResult batchResult = chunkSize == null
+                    ? messageProducerService.sendBatchUserMessages(count)
+                    : messageProducerService.sendBatchUserMessages(count, chunkSize);
             
             Map<String, Object> result = new HashMap<>();
             result.put("success", true);
             result.put("message", "批量用户消息发送成功");
-            result.put("data", Map.of("count", count));
+            result.put("data", batchResult);
             
             return result;
         } catch (Exception e) {
@@ -293,52 +242,32 @@ public class ActiveMQController {
 
     /**
      * 发送示例消息
+     * 所有示例消息异步发出，全部完成后返回
      */
     @PostMapping("/send/sample")
-    public Map<String, Object> sendSampleMessages() {
+    public CompletableFuture<Map<String, Object>> sendSampleMessages() {
         log.info("接收到发送示例消息请求");
         
         try {
-            // 发送示例用户消息
             UserMessage userMessage = messageProducerService.createSampleUserMessage();
-            messageProducerService.sendUserMessage(userMessage);
-            
-            // 发送示例订单消息
             OrderMessage orderMessage = messageProducerService.createSampleOrderMessage();
-            messageProducerService.sendOrderMessage(orderMessage);
-            
-            // 发送示例邮件消息
-            messageProducerService.sendEmailMessage("test@example.com", "测试邮件", "这是一封测试邮件");
-            
-            // 发送示例通知消息
-            messageProducerService.sendNotificationMessage("张三", "系统通知", "您的订单已处理完成");
-            
-            // 发布示例新闻消息
-            messageProducerService.publishNewsMessage("科技新闻", "最新科技动态", "科技");
-            
-            // 发布示例天气消息
-            messageProducerService.publishWeatherMessage("北京", "晴天", "25°C");
-            
-            // 发布示例股票消息
-            messageProducerService.publishStockMessage("AAPL", "$150.00", "+2.5%");
-            
-            Map<String, Object> result = new HashMap<>();
-            result.put("success", true);
-            result.put("message", "示例消息发送成功");
-            result.put("data", Map.of(
+            CompletableFuture<Void> all = CompletableFuture.allOf(
+                    // 示例用户、订单、邮件、通知消息
+                    messageProducerService.sendUserMessageAsync(userMessage, null),
+                    messageProducerService.sendOrderMessageAsync(orderMessage, null),
+                    messageProducerService.sendEmailMessageAsync("test@example.com", "测试邮件", "这是一封测试邮件", null),
+                    messageProducerService.sendNotificationMessageAsync("张三", "系统通知", "您的订单已处理完成", null),
+                    // 示例新闻、天气、股票消息
+                    messageProducerService.publishNewsMessageAsync("科技新闻", "最新科技动态", "科技", null),
+                    messageProducerService.publishWeatherMessageAsync("北京", "晴天", "25°C", null),
+                    messageProducerService.publishStockMessageAsync("AAPL", "$150.00", "+2.5%", null));
+            
+            return toResponse(all, "发送", "示例消息", Map.of(
                 "userMessage", userMessage,
                 "orderMessage", orderMessage
             ));
-            
-            return result;
         } catch (Exception e) {
-            log.error("发送示例消息失败", e);
-            
-            Map<String, Object> result = new HashMap<>();
-            result.put("success", false);
-            result.put("message", "示例消息发送失败: " + e.getMessage());
-            
-            return result;
+            return CompletableFuture.completedFuture(failure("发送", "示例消息", e));
         }
     }
 
@@ -404,4 +333,47 @@ public class ActiveMQController {
         
         return result;
     }
+
+    /**
+     * 把异步发送结果转换为响应，请求线程不等待broker确认
+     */
+    private CompletableFuture<Map<String, Object>> toResponse(CompletableFuture<Void> send, String name, Object data) {
+        return toResponse(send, "发送", name, data);
+    }
+
+    /**
+     * @param action 响应消息中的动作，发送或发布
+     */
+    private CompletableFuture<Map<String, Object>> toResponse(CompletableFuture<Void> send, String action,
+                                                              String name, Object data) {
+        return send.handle((ignored, error) -> {
+            if (error != null) {
+                return failure(action, name, error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error);
+            }
+            Map<String, Object> result = new HashMap<>();
+            result.put("success", true);
+            result.put("message", name + action + "成功");
+            result.put("data", data);
+            return result;
+        });
+    }
+
+    private Map<String, Object> failure(String name, Throwable error) {
+        return failure("发送", name, error);
+    }
+
+    private Map<String, Object> failure(String action, String name, Throwable error) {
+        log.error("{}{}失败", action, name, error);
+        
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", false);
+        result.put("message", name + action + "失败: " + error.getMessage());
+        
+        return result;
+    }
+
+    private static AsyncMessageSender.Delivery deliveryOf(String delivery) {
+        return delivery == null ? null : AsyncMessageSender.Delivery.of(delivery);
+    }
 }
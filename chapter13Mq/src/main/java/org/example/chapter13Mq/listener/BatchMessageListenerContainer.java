@@ -0,0 +1,231 @@
+package org.example.chapter13Mq.listener;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jms.support.JmsUtils;
+import org.springframework.jms.support.converter.MessageConverter;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.Session;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 批量消息监听容器
+ * 每次拉取最多 maxMessages 条消息或等待 receiveTimeoutMs 毫秒，整批交给处理方法，
+ * 处理成功后一次确认(事务提交或客户端确认)，处理失败时整批回滚由broker重新投递。
+ * 失败批次中的消息重新投递时带有 JMSRedelivered 标记，这些消息逐条处理并逐条确认，毒消息只回滚自身，
+ * 超过broker的重投次数后进入死信队列，不会拖累同批的其他消息；新消息照常成批处理
+ *
+ * Spring JMS 的监听容器只支持逐条回调，这里为需要批量写入的队列单独拉取
+ *
+ * @author example
+ * @since 1.0.0
+ */
+public class BatchMessageListenerContainer<T> implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchMessageListenerContainer.class);
+
+    /**
+     * 确认方式
+     */
+    public enum AckMode {
+        /**
+         * 事务会话，整批提交或回滚
+         */
+        TRANSACTED,
+        /**
+         * 客户端确认，确认最后一条即确认本会话已收到的全部消息，失败时 recover
+         */
+        CLIENT;
+
+        public static AckMode of(String value) {
+            return valueOf(value.trim().toUpperCase());
+        }
+    }
+
+    private final ConnectionFactory connectionFactory;
+    private final String destination;
+    private final Class<T> messageType;
+    private final MessageConverter messageConverter;
+    private final Consumer<List<T>> handler;
+
+    private int maxMessages = 100;
+    private long receiveTimeoutMs = 200;
+    private AckMode ackMode = AckMode.TRANSACTED;
+    private int concurrency = 1;
+    private long recoveryIntervalMs = 5000;
+
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    public BatchMessageListenerContainer(ConnectionFactory connectionFactory, String destination,
+                                         Class<T> messageType, MessageConverter messageConverter,
+                                         Consumer<List<T>> handler) {
+        this.connectionFactory = connectionFactory;
+        this.destination = destination;
+        this.messageType = messageType;
+        this.messageConverter = messageConverter;
+        this.handler = handler;
+    }
+
+    public void setMaxMessages(int maxMessages) {
+        this.maxMessages = maxMessages;
+    }
+
+    public void setReceiveTimeoutMs(long receiveTimeoutMs) {
+        this.receiveTimeoutMs = receiveTimeoutMs;
+    }
+
+    public void setAckMode(AckMode ackMode) {
+        this.ackMode = ackMode;
+    }
+
+    public void setConcurrency(int concurrency) {
+        this.concurrency = concurrency;
+    }
+
+    public void setRecoveryIntervalMs(long recoveryIntervalMs) {
+        this.recoveryIntervalMs = recoveryIntervalMs;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        for (int i = 1; i <= concurrency; i++) {
+            Thread worker = new Thread(this::run, "batch-listener-" + destination + "-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+        log.info("批量监听已启动: 队列={}, 每批最多 {} 条, 等待 {} ms, 确认方式={}, 并发={}",
+                destination, maxMessages, receiveTimeoutMs, ackMode, concurrency);
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        for (Thread worker : workers) {
+            try {
+                // receive 最多阻塞 receiveTimeoutMs，之后检查 running 退出
+                worker.join(receiveTimeoutMs + 5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        workers.clear();
+        log.info("批量监听已停止: 队列={}", destination);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void run() {
+        while (running) {
+            Connection connection = null;
+            try {
+                connection = connectionFactory.createConnection();
+                boolean transacted = ackMode == AckMode.TRANSACTED;
+                Session session = connection.createSession(transacted,
+                        transacted ? Session.SESSION_TRANSACTED : Session.CLIENT_ACKNOWLEDGE);
+                MessageConsumer consumer = session.createConsumer(session.createQueue(destination));
+                connection.start();
+                while (running) {
+                    List<Message> messages = poll(consumer);
+                    if (!messages.isEmpty()) {
+                        dispatch(session, messages);
+                    }
+                }
+            } catch (JMSException e) {
+                log.error("批量监听连接失败，{} ms 后重连: 队列={}", recoveryIntervalMs, destination, e);
+                sleepBeforeRecovery();
+            } finally {
+                JmsUtils.closeConnection(connection);
+            }
+        }
+    }
+
+    /**
+     * 拉取一批消息：等待第一条最多 receiveTimeoutMs，之后在同一时限内继续拉取直到 maxMessages 条。
+     * 第一条是重新投递的消息时只返回这一条；批次中途收到重新投递的消息时以它结束本批，
+     * 已收到的消息在会话中只能一起确认，无法放回，本批失败时同批消息重新投递后也会逐条处理
+     */
+    private List<Message> poll(MessageConsumer consumer) throws JMSException {
+        Message first = consumer.receive(receiveTimeoutMs);
+        if (first == null) {
+            return Collections.emptyList();
+        }
+        if (first.getJMSRedelivered()) {
+            return Collections.singletonList(first);
+        }
+        List<Message> messages = new ArrayList<>(maxMessages);
+        messages.add(first);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(receiveTimeoutMs);
+        while (messages.size() < maxMessages) {
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            Message next = remaining > 0 ? consumer.receive(remaining) : consumer.receiveNoWait();
+            if (next == null) {
+                break;
+            }
+            messages.add(next);
+            if (next.getJMSRedelivered()) {
+                break;
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * 处理并确认一批消息，失败时回滚或 recover
+     */
+    private void dispatch(Session session, List<Message> messages) throws JMSException {
+        try {
+            List<T> payloads = new ArrayList<>(messages.size());
+            for (Message message : messages) {
+                payloads.add(messageType.cast(messageConverter.fromMessage(message)));
+            }
+            handler.accept(payloads);
+        } catch (Exception e) {
+            if (messages.size() > 1) {
+                log.error("批量处理消息失败，{} 条消息将重新投递并逐条处理: 队列={}", messages.size(), destination, e);
+            } else {
+                log.error("处理消息失败，将由broker重新投递: 队列={}, 消息ID={}",
+                        destination, messages.get(0).getJMSMessageID(), e);
+            }
+            if (ackMode == AckMode.TRANSACTED) {
+                session.rollback();
+            } else {
+                session.recover();
+            }
+            return;
+        }
+        if (ackMode == AckMode.TRANSACTED) {
+            session.commit();
+        } else {
+            messages.get(messages.size() - 1).acknowledge();
+        }
+    }
+
+    private void sleepBeforeRecovery() {
+        try {
+            Thread.sleep(recoveryIntervalMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package org.example.chapter13Mq.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量发送结果
+ * 记录每个事务块的消息数和耗时(发送 + 提交)
+ *
+ * @author example
+ * @since 1.0.0
+ */
+public class BatchSendResult {
+
+    private final String destination;
+    private final int chunkSize;
+    private final List<ChunkStat> chunks = new ArrayList<>();
+    private int sent;
+    private long totalMillis;
+
+    public BatchSendResult(String destination, int chunkSize) {
+        this.destination = destination;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * 记录一个已提交的事务块
+     */
+    public void addChunk(int messages, long nanos) {
+        chunks.add(new ChunkStat(messages, nanos / 1_000_000.0));
+        sent += messages;
+    }
+
+    public String getDestination() {
+        return destination;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * 已提交的消息数
+     */
+    public int getSent() {
+        return sent;
+    }
+
+    public long getTotalMillis() {
+        return totalMillis;
+    }
+
+    public void setTotalMillis(long totalMillis) {
+        this.totalMillis = totalMillis;
+    }
+
+    public List<ChunkStat> getChunks() {
+        return chunks;
+    }
+
+    public double getMaxChunkMillis() {
+        return chunks.stream().mapToDouble(ChunkStat::getMillis).max().orElse(0);
+    }
+
+    public double getAvgChunkMillis() {
+        return chunks.stream().mapToDouble(ChunkStat::getMillis).average().orElse(0);
+    }
+
+    @Override
+    public String toString() {
+        return "BatchSendResult{" +
+                "destination='" + destination + '\'' +
+                ", sent=" + sent +
+                ", chunks=" + chunks.size() +
+                ", totalMillis=" + totalMillis +
+                ", maxChunkMillis=" + getMaxChunkMillis() +
+                '}';
+    }
+
+    /**
+     * 单个事务块的统计
+     */
+    public static class ChunkStat {
+
+        private final int messages;
+        private final double millis;
+
+        public ChunkStat(int messages, double millis) {
+            this.messages = messages;
+            this.millis = millis;
+        }
+
+        public int getMessages() {
+            return messages;
+        }
+
+        public double getMillis() {
+            return millis;
+        }
+    }
+}
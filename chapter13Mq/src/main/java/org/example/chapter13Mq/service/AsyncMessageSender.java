@@ -0,0 +1,405 @@
+package org.example.chapter13Mq.service;
+
+import org.apache.activemq.ActiveMQConnection;
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.ActiveMQMessageProducer;
+import org.apache.activemq.AsyncCallback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jms.support.converter.MessageConverter;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.jms.DeliveryMode;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.Session;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 异步消息发送器
+ * 使用ActiveMQ异步发送，调用方立即拿到 CompletableFuture，不占用请求线程等待broker确认
+ *
+ * 两种投递方式按目标配置，也可以单次指定：
+ * CONFIRMED - broker确认后完成，失败或 send-timeout-ms 内未确认时异常完成；
+ * FIRE_AND_FORGET - 交给传输层后即完成，未确认的字节数由生产者窗口限制。
+ * 在途消息数(已受理未完成)超过上限时等待 acquire-timeout-ms，仍无空位则以 RejectedExecutionException 完成
+ *
+ * send 发送到队列，publish 发布到主题；
+ * 目标按名称哈希分配到 senders 个发送线程，每个线程使用独立的连接、会话和生产者窗口，
+ * 一个目标的窗口占满只阻塞同一线程上的目标；每个线程最多缓存 max-producers 个生产者，超出时关闭最久未用的
+ *
+ * @author example
+ * @since 1.0.0
+ */
+@Component
+public class AsyncMessageSender {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncMessageSender.class);
+
+    /**
+     * 投递方式
+     */
+    public enum Delivery {
+        CONFIRMED,
+        FIRE_AND_FORGET;
+
+        /**
+         * 解析请求参数或配置中的投递方式，如 confirmed、fire-and-forget
+         */
+        public static Delivery of(String value) {
+            return valueOf(value.trim().toUpperCase().replace('-', '_'));
+        }
+    }
+
+    @Value("${spring.activemq.broker-url}")
+    private String brokerUrl;
+
+    @Value("${spring.activemq.user}")
+    private String username;
+
+    @Value("${spring.activemq.password}")
+    private String password;
+
+    /**
+     * 生产者窗口(字节)，异步发送未确认的字节数达到后阻塞发送线程
+     */
+    @Value("${activemq.async.producer-window-size:1048576}")
+    private int producerWindowSize;
+
+    @Value("${activemq.async.max-in-flight:1000}")
+    private int maxInFlight;
+
+    @Value("${activemq.async.acquire-timeout-ms:100}")
+    private long acquireTimeoutMs;
+
+    /**
+     * CONFIRMED 投递等待broker确认的最长时间，超时后异常完成并释放在途名额
+     */
+    @Value("${activemq.async.send-timeout-ms:30000}")
+    private long sendTimeoutMs;
+
+    @Value("${activemq.async.senders:4}")
+    private int senderCount;
+
+    @Value("${activemq.async.max-producers:100}")
+    private int maxProducers;
+
+    // 与 jmsTemplate 的 QoS 一致
+    @Value("${activemq.async.delivery-persistent:true}")
+    private boolean deliveryPersistent;
+
+    @Value("${activemq.async.time-to-live-ms:60000}")
+    private long timeToLive;
+
+    @Value("${activemq.async.priority:4}")
+    private int priority;
+
+    @Value("${activemq.async.default-delivery:confirmed}")
+    private String defaultDelivery;
+
+    /**
+     * 使用 FIRE_AND_FORGET 的目标，逗号分隔
+     */
+    @Value("${activemq.async.fire-and-forget:}")
+    private String[] fireAndForgetDestinations;
+
+    @Autowired
+    private MessageConverter messageConverter;
+
+    private final ScheduledExecutorService timeouts = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "mq-async-send-timeout");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Set<String> fireAndForget = new HashSet<>();
+    private final List<Sender> senders = new ArrayList<>();
+    private Delivery defaultMode;
+    private Semaphore inFlight;
+
+    @PostConstruct
+    public void init() {
+        inFlight = new Semaphore(maxInFlight);
+        defaultMode = Delivery.of(defaultDelivery);
+        for (String destination : fireAndForgetDestinations) {
+            if (!destination.trim().isEmpty()) {
+                fireAndForget.add(destination.trim());
+            }
+        }
+        for (int i = 1; i <= senderCount; i++) {
+            senders.add(new Sender("mq-async-sender-" + i));
+        }
+        log.info("异步发送配置: 默认投递={}, FIRE_AND_FORGET目标={}, 在途上限={}, 发送线程={}, 生产者窗口={} 字节, 确认超时={} ms",
+                defaultMode, fireAndForget, maxInFlight, senderCount, producerWindowSize, sendTimeoutMs);
+    }
+
+    /**
+     * 按目标配置的投递方式发送
+     */
+    public CompletableFuture<Void> send(String destination, Object payload) {
+        return send(destination, payload, null);
+    }
+
+    /**
+     * 发送消息到队列
+     *
+     * @param delivery 投递方式，为 null 时使用目标配置
+     */
+    public CompletableFuture<Void> send(String destination, Object payload, Delivery delivery) {
+        return submit(destination, false, payload, delivery);
+    }
+
+    /**
+     * 发布消息到主题
+     *
+     * @param delivery 投递方式，为 null 时使用目标配置
+     */
+    public CompletableFuture<Void> publish(String topic, Object payload, Delivery delivery) {
+        return submit(topic, true, payload, delivery);
+    }
+
+    private CompletableFuture<Void> submit(String destination, boolean pubSub, Object payload, Delivery delivery) {
+        Delivery mode = delivery != null ? delivery : deliveryFor(destination);
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        try {
+            if (!inFlight.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                future.completeExceptionally(new RejectedExecutionException("在途消息数已达上限: " + maxInFlight));
+                return future;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(e);
+            return future;
+        }
+        future.whenComplete((result, error) -> inFlight.release());
+        Sender sender = senders.get(Math.floorMod(destinationKey(destination, pubSub).hashCode(), senders.size()));
+        try {
+            sender.executor.execute(new SendTask(sender, destination, pubSub, payload, mode, future));
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * 目标配置的投递方式
+     */
+    public Delivery deliveryFor(String destination) {
+        return fireAndForget.contains(destination) ? Delivery.FIRE_AND_FORGET : defaultMode;
+    }
+
+    /**
+     * 同名的队列和主题是不同的目标，生产者缓存和发送线程分配按带类型前缀的名称区分
+     */
+    private static String destinationKey(String destination, boolean pubSub) {
+        return (pubSub ? "topic://" : "queue://") + destination;
+    }
+
+    /**
+     * 当前在途消息数
+     */
+    public int getInFlight() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+
+    /**
+     * 关闭发送器：等待已受理的消息发出，超时后放弃未执行的发送；
+     * 所有受理过的消息都会完成，未发送和等待确认中的以异常完成
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        for (Sender sender : senders) {
+            sender.executor.shutdown();
+        }
+        for (Sender sender : senders) {
+            if (!sender.executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                for (Runnable task : sender.executor.shutdownNow()) {
+                    if (task instanceof SendTask) {
+                        ((SendTask) task).future.completeExceptionally(
+                                new RejectedExecutionException("异步发送器已关闭，消息未发送"));
+                    }
+                }
+                sender.executor.awaitTermination(1, TimeUnit.SECONDS);
+            }
+            sender.closeConnection();
+        }
+        timeouts.shutdownNow();
+    }
+
+    /**
+     * 提交到发送线程的一次发送，关闭时据此让未执行的发送异常完成
+     */
+    private static class SendTask implements Runnable {
+
+        private final Sender sender;
+        private final String destination;
+        private final boolean pubSub;
+        private final Object payload;
+        private final Delivery mode;
+        private final CompletableFuture<Void> future;
+
+        SendTask(Sender sender, String destination, boolean pubSub, Object payload, Delivery mode,
+                 CompletableFuture<Void> future) {
+            this.sender = sender;
+            this.destination = destination;
+            this.pubSub = pubSub;
+            this.payload = payload;
+            this.mode = mode;
+            this.future = future;
+        }
+
+        @Override
+        public void run() {
+            sender.send(destination, pubSub, payload, mode, future);
+        }
+    }
+
+    /**
+     * 单个发送线程及其连接；连接、会话和生产者只在该线程中使用，JMS会话不是线程安全的
+     */
+    private class Sender {
+
+        private final ExecutorService executor;
+
+        /**
+         * 已发出等待broker确认的消息，连接关闭时统一异常完成
+         */
+        private final Set<CompletableFuture<Void>> awaitingConfirm = ConcurrentHashMap.newKeySet();
+
+        private ActiveMQConnection connection;
+        private Session session;
+        private final Map<String, ActiveMQMessageProducer> producers =
+                new LinkedHashMap<String, ActiveMQMessageProducer>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, ActiveMQMessageProducer> eldest) {
+                        if (size() <= maxProducers) {
+                            return false;
+                        }
+                        try {
+                            eldest.getValue().close();
+                        } catch (JMSException e) {
+                            log.debug("关闭生产者失败: 目标={}, {}", eldest.getKey(), e.getMessage());
+                        }
+                        return true;
+                    }
+                };
+
+        Sender(String name) {
+            executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        void send(String destination, boolean pubSub, Object payload, Delivery mode, CompletableFuture<Void> future) {
+            try {
+                ActiveMQMessageProducer producer = producer(destination, pubSub);
+                Message message = messageConverter.toMessage(payload, session);
+                if (mode == Delivery.FIRE_AND_FORGET) {
+                    producer.send(message);
+                    future.complete(null);
+                } else {
+                    awaitConfirm(future);
+                    producer.send(message, new AsyncCallback() {
+                        @Override
+                        public void onSuccess() {
+                            future.complete(null);
+                        }
+
+                        @Override
+                        public void onException(JMSException exception) {
+                            future.completeExceptionally(exception);
+                        }
+                    });
+                }
+            } catch (JMSException e) {
+                log.error("异步发送消息失败，重建连接: 目标={}", destination, e);
+                future.completeExceptionally(e);
+                closeConnection();
+            } catch (RuntimeException e) {
+                log.error("异步发送消息失败: 目标={}", destination, e);
+                future.completeExceptionally(e);
+            }
+        }
+
+        /**
+         * 登记等待确认的消息，send-timeout-ms 内未确认时以 TimeoutException 完成
+         */
+        private void awaitConfirm(CompletableFuture<Void> future) {
+            awaitingConfirm.add(future);
+            ScheduledFuture<?> timeout = timeouts.schedule(() -> future.completeExceptionally(
+                    new TimeoutException("等待broker确认超时: " + sendTimeoutMs + " ms")), sendTimeoutMs, TimeUnit.MILLISECONDS);
+            future.whenComplete((result, error) -> {
+                timeout.cancel(false);
+                awaitingConfirm.remove(future);
+            });
+        }
+
+        private ActiveMQMessageProducer producer(String destination, boolean pubSub) throws JMSException {
+            if (connection == null || connection.isClosed()) {
+                ActiveMQConnectionFactory connectionFactory = new ActiveMQConnectionFactory(username, password, brokerUrl);
+                connectionFactory.setUseAsyncSend(true);
+                connectionFactory.setProducerWindowSize(producerWindowSize);
+                // 生产者窗口已满时阻塞发送的最长时间
+                connectionFactory.setSendTimeout((int) sendTimeoutMs);
+                ActiveMQConnection newConnection = (ActiveMQConnection) connectionFactory.createConnection();
+                try {
+                    session = newConnection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+                } catch (JMSException e) {
+                    newConnection.close();
+                    throw e;
+                }
+                connection = newConnection;
+                producers.clear();
+            }
+            String key = destinationKey(destination, pubSub);
+            ActiveMQMessageProducer producer = producers.get(key);
+            if (producer == null) {
+                producer = (ActiveMQMessageProducer) session.createProducer(
+                        pubSub ? session.createTopic(destination) : session.createQueue(destination));
+                producer.setDeliveryMode(deliveryPersistent ? DeliveryMode.PERSISTENT : DeliveryMode.NON_PERSISTENT);
+                producer.setTimeToLive(timeToLive);
+                producer.setPriority(priority);
+                producers.put(key, producer);
+            }
+            return producer;
+        }
+
+        void closeConnection() {
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (JMSException e) {
+                    log.debug("关闭异步发送连接失败: {}", e.getMessage());
+                }
+                connection = null;
+                session = null;
+                producers.clear();
+            }
+            // 连接关闭后不会再收到这些消息的确认
+            for (CompletableFuture<Void> future : new ArrayList<>(awaitingConfirm)) {
+                future.completeExceptionally(new JMSException("异步发送连接已关闭，未收到broker确认"));
+            }
+        }
+    }
+}
@@ -7,6 +7,8 @@ import org.slf4j.LoggerFactory;
 import org.springframework.jms.annotation.JmsListener;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -32,8 +34,9 @@ public class MessageConsumerService {
 
     /**
      * 监听用户消息队列
+     * 启用批量消费(activemq.consumer.batch.enabled)时不启动，由 {@link #handleUserMessages(List)} 处理
      */
-    @JmsListener(destination = "${activemq.queue.user}", containerFactory = "queueListenerContainerFactory")
+    @JmsListener(destination = "${activemq.queue.user}", containerFactory = "perMessageQueueListenerContainerFactory")
     public void handleUserMessage(UserMessage userMessage) {
         try {
             long count = userMessageCount.incrementAndGet();
@@ -49,8 +52,9 @@ public class MessageConsumerService {
 
     /**
      * 监听订单消息队列
+     * 启用批量消费(activemq.consumer.batch.enabled)时不启动，由 {@link #handleOrderMessages(List)} 处理
      */
-    @JmsListener(destination = "${activemq.queue.order}", containerFactory = "queueListenerContainerFactory")
+    @JmsListener(destination = "${activemq.queue.order}", containerFactory = "perMessageQueueListenerContainerFactory")
     public void handleOrderMessage(OrderMessage orderMessage) {
         try {
             long count = orderMessageCount.incrementAndGet();
@@ -64,6 +68,30 @@ public class MessageConsumerService {
         }
     }
 
+    /**
+     * 批量处理用户消息
+     * 由批量监听容器调用，抛出异常时整批回滚并重新投递
+     */
+    public void handleUserMessages(List<UserMessage> userMessages) {
+        long count = userMessageCount.addAndGet(userMessages.size());
+        log.info("收到用户消息 {} 条, 累计 {}", userMessages.size(), count);
+        
+        // 模拟批量处理用户消息
+        processUserMessages(userMessages);
+    }
+
+    /**
+     * 批量处理订单消息
+     * 由批量监听容器调用，抛出异常时整批回滚并重新投递
+     */
+    public void handleOrderMessages(List<OrderMessage> orderMessages) {
+        long count = orderMessageCount.addAndGet(orderMessages.size());
+        log.info("收到订单消息 {} 条, 累计 {}", orderMessages.size(), count);
+        
+        // 模拟批量写入订单
+        processOrderMessages(orderMessages);
+    }
+
     /**
      * 监听邮件消息队列
      */
@@ -181,6 +209,41 @@ public class MessageConsumerService {
                 orderMessage.getTotalAmount());
     }
 
+    /**
+     * 批量处理用户消息
+     */
+    private void processUserMessages(List<UserMessage> userMessages) {
+        // 模拟一次批量处理的时间
+        try {
+            Thread.sleep(100);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        
+        if (log.isDebugEnabled()) {
+            userMessages.forEach(userMessage -> log.debug("用户消息处理完成: 用户={}, 类型={}",
+                    userMessage.getUsername(), userMessage.getMessageType()));
+        }
+    }
+
+    /**
+     * 批量处理订单消息
+     */
+    private void processOrderMessages(List<OrderMessage> orderMessages) {
+        // 模拟一次批量写入的时间
+        try {
+            Thread.sleep(200);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        
+        BigDecimal totalAmount = orderMessages.stream()
+                .map(OrderMessage::getTotalAmount)
+                .filter(amount -> amount != null)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        log.info("订单消息批量处理完成: {} 条, 总金额={}", orderMessages.size(), totalAmount);
+    }
+
     /**
      * 处理邮件消息
      */
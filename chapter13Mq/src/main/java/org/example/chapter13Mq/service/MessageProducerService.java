@@ -1,17 +1,28 @@
 package org.example.chapter13Mq.service;
 
+import org.example.chapter13Mq.model.BatchSendResult;
 import org.example.chapter13Mq.model.OrderMessage;
 import org.example.chapter13Mq.model.UserMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.support.JmsUtils;
 import org.springframework.stereotype.Service;
 
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 消息生产者服务
@@ -28,6 +39,25 @@ public class MessageProducerService {
     @Autowired
     private JmsTemplate jmsTemplate;
 
+    @Autowired
+    private AsyncMessageSender asyncMessageSender;
+
+    @Autowired
+    @Qualifier("transactedJmsTemplate")
+    private JmsTemplate transactedJmsTemplate;
+
+    /**
+     * 批量发送时每个事务块的消息数
+     */
+    @Value("${activemq.batch.chunk-size:100}")
+    private int batchChunkSize;
+
+    /**
+     * 批量发送时事务块的最长持续时间，到期即使未满也提交
+     */
+    @Value("${activemq.batch.commit-interval-ms:50}")
+    private long batchCommitIntervalMs;
+
     @Value("${activemq.queue.user}")
     private String userQueue;
 
@@ -82,12 +112,7 @@ public class MessageProducerService {
      */
     public void sendEmailMessage(String to, String subject, String content) {
         try {
-            UserMessage emailMessage = new UserMessage();
-            emailMessage.setUsername(to);
-            emailMessage.setEmail(to);
-            emailMessage.setContent("主题: " + subject + "\n内容: " + content);
-            emailMessage.setMessageType("EMAIL_MESSAGE");
-            
+            UserMessage emailMessage = buildEmailMessage(to, subject, content);
             jmsTemplate.convertAndSend(emailQueue, emailMessage);
             log.info("邮件消息已发送到队列 {}: 收件人={}, 主题={}", emailQueue, to, subject);
         } catch (Exception e) {
@@ -101,11 +126,7 @@ public class MessageProducerService {
      */
     public void sendNotificationMessage(String username, String title, String content) {
         try {
-            UserMessage notificationMessage = new UserMessage();
-            notificationMessage.setUsername(username);
-            notificationMessage.setContent("标题: " + title + "\n内容: " + content);
-            notificationMessage.setMessageType("NOTIFICATION_MESSAGE");
-            
+            UserMessage notificationMessage = buildNotificationMessage(username, title, content);
             jmsTemplate.convertAndSend(notificationQueue, notificationMessage);
             log.info("通知消息已发送到队列 {}: 用户={}, 标题={}", notificationQueue, username, title);
         } catch (Exception e) {
@@ -114,16 +135,82 @@ public class MessageProducerService {
         }
     }
 
+    private UserMessage buildEmailMessage(String to, String subject, String content) {
+        UserMessage emailMessage = new UserMessage();
+        emailMessage.setUsername(to);
+        emailMessage.setEmail(to);
+        emailMessage.setContent("主题: " + subject + "\n内容: " + content);
+        emailMessage.setMessageType("EMAIL_MESSAGE");
+        return emailMessage;
+    }
+
+    private UserMessage buildNotificationMessage(String username, String title, String content) {
+        UserMessage notificationMessage = new UserMessage();
+        notificationMessage.setUsername(username);
+        notificationMessage.setContent("标题: " + title + "\n内容: " + content);
+        notificationMessage.setMessageType("NOTIFICATION_MESSAGE");
+        return notificationMessage;
+    }
+
+    /**
+     * 异步发送用户消息到队列
+     *
+     * @param delivery 投递方式，为 null 时使用队列配置
+     */
+    public CompletableFuture<Void> sendUserMessageAsync(UserMessage userMessage, AsyncMessageSender.Delivery delivery) {
+        userMessage.setMessageType("USER_MESSAGE");
+        return sendAsync(userQueue, userMessage, delivery, "用户消息");
+    }
+
+    /**
+     * 异步发送订单消息到队列
+     */
+    public CompletableFuture<Void> sendOrderMessageAsync(OrderMessage orderMessage, AsyncMessageSender.Delivery delivery) {
+        orderMessage.setMessageType("ORDER_MESSAGE");
+        return sendAsync(orderQueue, orderMessage, delivery, "订单消息");
+    }
+
+    /**
+     * 异步发送邮件消息到队列
+     */
+    public CompletableFuture<Void> sendEmailMessageAsync(String to, String subject, String content,
+                                                         AsyncMessageSender.Delivery delivery) {
+        return sendAsync(emailQueue, buildEmailMessage(to, subject, content), delivery, "邮件消息");
+    }
+
+    /**
+     * 异步发送通知消息到队列
+     */
+    public CompletableFuture<Void> sendNotificationMessageAsync(String username, String title, String content,
+                                                                AsyncMessageSender.Delivery delivery) {
+        return sendAsync(notificationQueue, buildNotificationMessage(username, title, content), delivery, "通知消息");
+    }
+
+    /**
+     * 异步发送简单文本消息
+     */
+    public CompletableFuture<Void> sendTextMessageAsync(String destination, String message,
+                                                        AsyncMessageSender.Delivery delivery) {
+        return sendAsync(destination, message, delivery, "文本消息");
+    }
+
+    private CompletableFuture<Void> sendAsync(String destination, Object payload,
+                                              AsyncMessageSender.Delivery delivery, String description) {
+        return asyncMessageSender.send(destination, payload, delivery).whenComplete((result, error) -> {
+            if (error != null) {
+                log.error("异步发送{}失败: 目标={}", description, destination, error);
+            } else {
+                log.debug("{}已异步发送到 {}: {}", description, destination, payload);
+            }
+        });
+    }
+
     /**
      * 发布新闻消息到主题
      */
     public void publishNewsMessage(String title, String content, String category) {
         try {
-            UserMessage newsMessage = new UserMessage();
-            newsMessage.setUsername("SYSTEM");
-            newsMessage.setContent("标题: " + title + "\n内容: " + content + "\n分类: " + category);
-            newsMessage.setMessageType("NEWS_MESSAGE");
-            
+            UserMessage newsMessage = buildNewsMessage(title, content, category);
             jmsTemplate.convertAndSend(newsTopic, newsMessage);
             log.info("新闻消息已发布到主题 {}: 标题={}, 分类={}", newsTopic, title, category);
         } catch (Exception e) {
@@ -137,11 +224,7 @@ public class MessageProducerService {
      */
     public void publishWeatherMessage(String city, String weather, String temperature) {
         try {
-            UserMessage weatherMessage = new UserMessage();
-            weatherMessage.setUsername("WEATHER_SYSTEM");
-            weatherMessage.setContent("城市: " + city + "\n天气: " + weather + "\n温度: " + temperature);
-            weatherMessage.setMessageType("WEATHER_MESSAGE");
-            
+            UserMessage weatherMessage = buildWeatherMessage(city, weather, temperature);
             jmsTemplate.convertAndSend(weatherTopic, weatherMessage);
             log.info("天气消息已发布到主题 {}: 城市={}, 天气={}", weatherTopic, city, weather);
         } catch (Exception e) {
@@ -155,11 +238,7 @@ public class MessageProducerService {
      */
     public void publishStockMessage(String symbol, String price, String change) {
         try {
-            UserMessage stockMessage = new UserMessage();
-            stockMessage.setUsername("STOCK_SYSTEM");
-            stockMessage.setContent("股票代码: " + symbol + "\n价格: " + price + "\n涨跌: " + change);
-            stockMessage.setMessageType("STOCK_MESSAGE");
-            
+            UserMessage stockMessage = buildStockMessage(symbol, price, change);
             jmsTemplate.convertAndSend(stockTopic, stockMessage);
             log.info("股票消息已发布到主题 {}: 代码={}, 价格={}", stockTopic, symbol, price);
         } catch (Exception e) {
@@ -168,6 +247,67 @@ public class MessageProducerService {
         }
     }
 
+    private UserMessage buildNewsMessage(String title, String content, String category) {
+        UserMessage newsMessage = new UserMessage();
+        newsMessage.setUsername("SYSTEM");
+        newsMessage.setContent("标题: " + title + "\n内容: " + content + "\n分类: " + category);
+        newsMessage.setMessageType("NEWS_MESSAGE");
+        return newsMessage;
+    }
+
+    private UserMessage buildWeatherMessage(String city, String weather, String temperature) {
+        UserMessage weatherMessage = new UserMessage();
+        weatherMessage.setUsername("WEATHER_SYSTEM");
+        weatherMessage.setContent("城市: " + city + "\n天气: " + weather + "\n温度: " + temperature);
+        weatherMessage.setMessageType("WEATHER_MESSAGE");
+        return weatherMessage;
+    }
+
+    private UserMessage buildStockMessage(String symbol, String price, String change) {
+        UserMessage stockMessage = new UserMessage();
+        stockMessage.setUsername("STOCK_SYSTEM");
+        stockMessage.setContent("股票代码: " + symbol + "\n价格: " + price + "\n涨跌: " + change);
+        stockMessage.setMessageType("STOCK_MESSAGE");
+        return stockMessage;
+    }
+
+    /**
+     * 异步发布新闻消息到主题
+     *
+     * @param delivery 投递方式，为 null 时使用主题配置
+     */
+    public CompletableFuture<Void> publishNewsMessageAsync(String title, String content, String category,
+                                                           AsyncMessageSender.Delivery delivery) {
+        return publishAsync(newsTopic, buildNewsMessage(title, content, category), delivery, "新闻消息");
+    }
+
+    /**
+     * 异步发布天气消息到主题
+     */
+    public CompletableFuture<Void> publishWeatherMessageAsync(String city, String weather, String temperature,
+                                                              AsyncMessageSender.Delivery delivery) {
+        return publishAsync(weatherTopic, buildWeatherMessage(city, weather, temperature), delivery, "天气消息");
+    }
+
+    /**
+     * 异步发布股票消息到主题
+     */
+    public CompletableFuture<Void> publishStockMessageAsync(String symbol, String price, String change,
+                                                            AsyncMessageSender.Delivery delivery) {
+        return publishAsync(stockTopic, buildStockMessage(symbol, price, change), delivery, "股票消息");
+    }
+
+    private CompletableFuture<Void> publishAsync(String topic, Object payload,
+                                                 AsyncMessageSender.Delivery delivery, String description) {
+        return asyncMessageSender.publish(topic, payload, delivery).whenComplete((result, error) -> {
+            if (error != null) {
+                log.error("异步发布{}失败: 主题={}", description, topic, error);
+            } else {
+                log.debug("{}已异步发布到主题 {}: {}", description, topic, payload);
+            }
+        });
+    }
+
     /**
      * 发送简单文本消息
      */
@@ -184,22 +324,85 @@ public class MessageProducerService {
     /**
      * 批量发送用户消息
      */
-    public void sendBatchUserMessages(int count) {
+    public BatchSendResult sendBatchUserMessages(int count) {
+        return sendBatchUserMessages(count, batchChunkSize);
+    }
+
+    /**
+     * 批量发送用户消息，指定事务块大小
+     */
+    public BatchSendResult sendBatchUserMessages(int count, int chunkSize) {
+        List<UserMessage> messages = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            UserMessage userMessage = new UserMessage();
+            userMessage.setUsername("user" + i);
+            userMessage.setEmail("user" + i + "@example.com");
+            userMessage.setContent("这是第 " + i + " 条批量消息");
+            userMessage.setMessageType("BATCH_USER_MESSAGE");
+            messages.add(userMessage);
+        }
+        return sendBatch(userQueue, messages, chunkSize);
+    }
+
+    /**
+     * 批量发送消息
+     * 使用一个事务会话，每 chunkSize 条或每 activemq.batch.commit-interval-ms 毫秒提交一次。
+     * 事务内的持久消息不逐条等待broker确认，每个事务块只在提交时等待一次；
+     * 发送失败时回滚当前事务块，之前已提交的事务块不受影响
+     */
+    public BatchSendResult sendBatch(String destination, List<?> messages, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("事务块大小必须大于0: " + chunkSize);
+        }
+        BatchSendResult result = new BatchSendResult(destination, chunkSize);
+        long commitIntervalNanos = TimeUnit.MILLISECONDS.toNanos(batchCommitIntervalMs);
+        long start = System.nanoTime();
         try {
-            for (int i = 1; i <= count; i++) {
-                UserMessage userMessage = new UserMessage();
-                userMessage.setUsername("user" + i);
-                userMessage.setEmail("user" + i + "@example.com");
-                userMessage.setContent("这是第 " + i + " 条批量消息");
-                userMessage.setMessageType("BATCH_USER_MESSAGE");
-                
-                jmsTemplate.convertAndSend(userQueue, userMessage);
-            }
-            log.info("批量发送了 {} 条用户消息到队列 {}", count, userQueue);
+            transactedJmsTemplate.execute(session -> {
+                Destination target = transactedJmsTemplate.getDestinationResolver()
+                        .resolveDestinationName(session, destination, transactedJmsTemplate.isPubSubDomain());
+                MessageProducer producer = session.createProducer(target);
+                try {
+                    int pending = 0;
+                    long chunkStart = System.nanoTime();
+                    for (Object payload : messages) {
+                        Message message = transactedJmsTemplate.getMessageConverter().toMessage(payload, session);
+                        if (transactedJmsTemplate.isExplicitQosEnabled()) {
+                            producer.send(message, transactedJmsTemplate.getDeliveryMode(),
+                                    transactedJmsTemplate.getPriority(), transactedJmsTemplate.getTimeToLive());
+                        } else {
+                            producer.send(message);
+                        }
+                        pending++;
+                        if (pending >= chunkSize || System.nanoTime() - chunkStart >= commitIntervalNanos) {
+                            session.commit();
+                            result.addChunk(pending, System.nanoTime() - chunkStart);
+                            log.debug("批量发送事务块已提交: 目标={}, 消息数={}", destination, pending);
+                            pending = 0;
+                            chunkStart = System.nanoTime();
+                        }
+                    }
+                    if (pending > 0) {
+                        session.commit();
+                        result.addChunk(pending, System.nanoTime() - chunkStart);
+                    }
+                } catch (JMSException | RuntimeException e) {
+                    JmsUtils.rollbackIfNecessary(session);
+                    throw e;
+                } finally {
+                    JmsUtils.closeMessageProducer(producer);
+                }
+                return null;
+            }, true);
         } catch (Exception e) {
-            log.error("批量发送用户消息失败", e);
-            throw new RuntimeException("批量发送用户消息失败", e);
+            log.error("批量发送消息失败: 目标={}, 已提交 {} 条", destination, result.getSent(), e);
+            throw new RuntimeException("批量发送消息失败，已提交 " + result.getSent() + " 条", e);
         }
+        result.setTotalMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        log.info("批量发送了 {} 条消息到 {}: 事务块 {} 个, 总耗时 {} ms, 单块最长 {} ms",
+                result.getSent(), destination, result.getChunks().size(),
+                result.getTotalMillis(), String.format("%.2f", result.getMaxChunkMillis()));
+        return result;
     }
 
     /**
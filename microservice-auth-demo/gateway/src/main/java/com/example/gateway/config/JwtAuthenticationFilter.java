@@ -227,10 +227,18 @@ public class JwtAuthenticationFilter implements GatewayFilter {
                 finalUsername = rawUsername;
             }
             
+            // 租户：Keycloak映射的 tenant_id / tenant 声明，未配置时为默认租户
+            Object tenantClaim = claims.get("tenant_id");
+            if (tenantClaim == null) {
+                tenantClaim = claims.get("tenant");
+            }
+            final String tenantId = tenantClaim == null ? "default" : tenantClaim.toString();
+            
             // 构建用户信息JSON
             Map<String, Object> userInfo = new HashMap<>();
             userInfo.put("userId", finalUserId);
             userInfo.put("username", finalUsername);
+            userInfo.put("tenant", tenantId);
             userInfo.put("roles", roles);
             userInfo.put("issuer", issuer);
             if (claims.getExpiration() != null) {
@@ -245,7 +253,9 @@ public class JwtAuthenticationFilter implements GatewayFilter {
                     .header("X-User-Info", userInfoJson)
                     .header("X-User-ID", finalUserId)
                     .header("X-Username", finalUsername)
-                    .header("X-User-Roles", String.join(",", roles)))
+                    .header("X-User-Roles", String.join(",", roles))
+                    // 覆盖客户端自带的租户头，租户只能来自令牌
+                    .headers(headers -> headers.set("X-Tenant-ID", tenantId)))
                 .build();
             
             return chain.filter(modifiedExchange);
@@ -2,11 +2,15 @@ package com.example.userservice;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * 用户服务应用程序主类
  */
 @SpringBootApplication
+@EnableScheduling
+@ConfigurationPropertiesScan
 public class UserServiceApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,14 @@
+package com.example.userservice.cache;
+
+/**
+ * 用户服务使用的缓存名称
+ */
+public final class CacheNames {
+
+    public static final String USER_PROFILES = "userProfiles";
+    public static final String USER_PROFILES_BY_USERNAME = "userProfilesByUsername";
+    public static final String DEPARTMENT_USERS = "departmentUsers";
+
+    private CacheNames() {
+    }
+}
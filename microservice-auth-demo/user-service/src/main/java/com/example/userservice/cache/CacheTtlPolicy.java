@@ -0,0 +1,126 @@
+package com.example.userservice.cache;
+
+import com.example.userservice.config.UserServiceCacheProperties;
+import com.example.userservice.config.UserServiceCacheProperties.RedisSpec;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 二级缓存过期策略 - 按缓存名解析基准TTL、抖动比例、提前刷新窗口和旧值保留时间
+ *
+ * 启用旧值保留时，Redis中的实际TTL = 基准TTL(含抖动) + 旧值保留时间，
+ * 剩余时间进入最后的保留段后条目视为过期，读取时返回旧值并在后台重新加载
+ *
+ * 优先级：cache.redis.caches.{name} > 原有的 user-profile-ttl / department-list-ttl > cache.redis.defaults
+ */
+public class CacheTtlPolicy {
+
+    private final RedisSpec defaults;
+    private final Map<String, RedisSpec> specs = new HashMap<>();
+
+    public CacheTtlPolicy(UserServiceCacheProperties properties) {
+        UserServiceCacheProperties.Redis redis = properties.getRedis();
+        this.defaults = redis.getDefaults();
+
+        // 兼容原有的按业务配置的TTL
+        Duration profileTtl = Duration.ofSeconds(properties.getUserProfileTtl());
+        Duration departmentTtl = Duration.ofSeconds(properties.getDepartmentListTtl());
+        specs.put(CacheNames.USER_PROFILES, merge(new RedisSpec(profileTtl, null, null, null), defaults));
+        specs.put(CacheNames.USER_PROFILES_BY_USERNAME, merge(new RedisSpec(profileTtl, null, null, null), defaults));
+        specs.put(CacheNames.DEPARTMENT_USERS, merge(new RedisSpec(departmentTtl, null, null, null), defaults));
+
+        redis.getCaches().forEach((name, spec) ->
+                specs.put(name, merge(spec, specs.getOrDefault(name, defaults))));
+    }
+
+    /**
+     * 有单独配置的缓存名，启动时预先创建
+     */
+    public Set<String> getCacheNames() {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(specs.keySet()));
+    }
+
+    /**
+     * 基准过期时间
+     */
+    public Duration ttl(String cacheName) {
+        return spec(cacheName).getTtl();
+    }
+
+    /**
+     * 未单独配置的缓存使用的过期时间
+     */
+    public Duration defaultTtl() {
+        return defaults.getTtl();
+    }
+
+    /**
+     * 在给定TTL上叠加该缓存的随机抖动
+     */
+    public Duration jitter(String cacheName, Duration ttl) {
+        if (ttl == null || ttl.isZero() || ttl.isNegative()) {
+            return ttl;
+        }
+        Double jitter = spec(cacheName).getJitter();
+        if (jitter == null || jitter <= 0) {
+            return ttl;
+        }
+        long millis = ttl.toMillis();
+        long spread = (long) (millis * Math.min(jitter, 1.0));
+        long jittered = millis + ThreadLocalRandom.current().nextLong(-spread, spread + 1);
+        return Duration.ofMillis(Math.max(1000, jittered));
+    }
+
+    /**
+     * 写入Redis时实际使用的过期时间：基准TTL叠加抖动，再加上旧值保留时间
+     */
+    public Duration writeTtl(String cacheName, Duration ttl) {
+        Duration jittered = jitter(cacheName, ttl);
+        if (jittered == null || jittered.isZero() || jittered.isNegative()) {
+            return jittered;
+        }
+        return jittered.plus(staleWhileRevalidate(cacheName));
+    }
+
+    /**
+     * 按缓存配置的基准TTL计算写入过期时间，绕过RedisCache直接写Redis时使用
+     */
+    public Duration writeTtl(String cacheName) {
+        return writeTtl(cacheName, ttl(cacheName));
+    }
+
+    /**
+     * 提前刷新窗口，未配置时为 Duration.ZERO
+     */
+    public Duration refreshAhead(String cacheName) {
+        Duration refreshAhead = spec(cacheName).getRefreshAhead();
+        return refreshAhead == null ? Duration.ZERO : refreshAhead;
+    }
+
+    /**
+     * 旧值保留时间，未配置时为 Duration.ZERO；剩余过期时间小于该值的条目视为已过期的旧值
+     */
+    public Duration staleWhileRevalidate(String cacheName) {
+        Duration stale = spec(cacheName).getStaleWhileRevalidate();
+        return stale == null ? Duration.ZERO : stale;
+    }
+
+    private RedisSpec spec(String cacheName) {
+        return specs.getOrDefault(cacheName, defaults);
+    }
+
+    private static RedisSpec merge(RedisSpec spec, RedisSpec fallback) {
+        return new RedisSpec(
+                spec.getTtl() != null ? spec.getTtl() : fallback.getTtl(),
+                spec.getJitter() != null ? spec.getJitter() : fallback.getJitter(),
+                spec.getRefreshAhead() != null ? spec.getRefreshAhead() : fallback.getRefreshAhead(),
+                spec.getStaleWhileRevalidate() != null
+                        ? spec.getStaleWhileRevalidate() : fallback.getStaleWhileRevalidate());
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.userservice.cache;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 紧凑缓存值序列化器
+ *
+ * UserProfile 及其列表、UserProfileSummary 列表使用 {@link ProfileBinaryCodec} 编码，超过阈值时再做LZ4压缩；
+ * 其他类型交给原有的JSON序列化器。
+ * 二进制数据以 0xC0/0xC1 开头(UTF-8中不会出现的字节)，因此同一个缓存中新旧两种格式可以共存，
+ * 切换编码时无需清空缓存。
+ * 缓存中的字节来自Redis，按不可信输入处理：使用LZ4安全解压器，并校验声明的解压长度
+ */
+public class CompactValueSerializer implements RedisSerializer<Object> {
+
+    static final byte FORMAT_BINARY = (byte) 0xC0;
+    static final byte FORMAT_BINARY_LZ4 = (byte) 0xC1;
+
+    private static final LZ4Factory LZ4 = LZ4Factory.fastestInstance();
+
+    /**
+     * LZ4的最大压缩比约为255，声明的解压长度超过该倍数的数据一定已损坏
+     */
+    private static final long MAX_COMPRESSION_RATIO = 255;
+
+    private final RedisSerializer<Object> fallback;
+    private final int compressionThreshold;
+    private final LZ4Compressor compressor = LZ4.fastCompressor();
+    private final LZ4SafeDecompressor decompressor = LZ4.safeDecompressor();
+
+    /**
+     * @param fallback             非资料类型使用的序列化器
+     * @param compressionThreshold 编码后超过该字节数时压缩，小于等于0表示不压缩
+     */
+    public CompactValueSerializer(RedisSerializer<Object> fallback, int compressionThreshold) {
+        this.fallback = fallback;
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null || !ProfileBinaryCodec.supports(value)) {
+            return fallback.serialize(value);
+        }
+
+        byte[] encoded = ProfileBinaryCodec.encode(value);
+        if (compressionThreshold <= 0 || encoded.length <= compressionThreshold) {
+            return ByteBuffer.allocate(encoded.length + 1)
+                    .put(FORMAT_BINARY)
+                    .put(encoded)
+                    .array();
+        }
+
+        byte[] compressed = compressor.compress(encoded);
+        return ByteBuffer.allocate(compressed.length + 5)
+                .put(FORMAT_BINARY_LZ4)
+                .putInt(encoded.length)
+                .put(compressed)
+                .array();
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        try {
+            if (bytes[0] == FORMAT_BINARY) {
+                return ProfileBinaryCodec.decode(bytes, 1);
+            }
+            if (bytes[0] == FORMAT_BINARY_LZ4) {
+                if (bytes.length < 5) {
+                    throw new SerializationException("资料缓存数据不完整");
+                }
+                int length = ByteBuffer.wrap(bytes, 1, 4).getInt();
+                if (length < 0 || length > (bytes.length - 5) * MAX_COMPRESSION_RATIO) {
+                    throw new SerializationException("资料缓存解压长度无效: " + length);
+                }
+                byte[] encoded = new byte[length];
+                int decompressed = decompressor.decompress(bytes, 5, bytes.length - 5, encoded, 0, length);
+                if (decompressed != length) {
+                    throw new SerializationException("资料缓存解压长度不一致: " + decompressed + "/" + length);
+                }
+                return ProfileBinaryCodec.decode(encoded);
+            }
+        } catch (SerializationException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new SerializationException("资料缓存解码失败", e);
+        }
+        return fallback.deserialize(bytes);
+    }
+}
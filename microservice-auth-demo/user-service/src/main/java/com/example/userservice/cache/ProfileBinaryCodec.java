@@ -0,0 +1,316 @@
+package com.example.userservice.cache;
+
+import com.example.userservice.entity.UserProfile;
+import com.example.userservice.entity.UserProfileSummary;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * UserProfile / UserProfileSummary 紧凑二进制编码
+ *
+ * 字段顺序固定，不写类名和字段名：
+ * [版本][类型] 之后是单个资料，或 [数量] + 多个资料/摘要；
+ * 摘要复用资料的标志位，只写摘要包含的字段；
+ * 每个资料以16位标志开头，标记哪些字段非空以及isActive的值，
+ * 字符串为 变长长度 + UTF-8，数字为变长整数，时间为 UTC秒 + 纳秒；
+ * 版本2增加租户ID，版本1的数据解码为默认租户
+ */
+public final class ProfileBinaryCodec {
+
+    static final byte VERSION = 2;
+    static final byte VERSION_WITHOUT_TENANT = 1;
+    static final byte TYPE_PROFILE = 1;
+    static final byte TYPE_LIST = 2;
+    static final byte TYPE_SUMMARY_LIST = 3;
+
+    private static final int HAS_ID = 1;
+    private static final int HAS_USER_ID = 1 << 1;
+    private static final int HAS_USERNAME = 1 << 2;
+    private static final int HAS_EMAIL = 1 << 3;
+    private static final int HAS_DISPLAY_NAME = 1 << 4;
+    private static final int HAS_AVATAR_URL = 1 << 5;
+    private static final int HAS_PHONE = 1 << 6;
+    private static final int HAS_DEPARTMENT = 1 << 7;
+    private static final int HAS_POSITION = 1 << 8;
+    private static final int HAS_LAST_LOGIN = 1 << 9;
+    private static final int HAS_CREATED_AT = 1 << 10;
+    private static final int HAS_UPDATED_AT = 1 << 11;
+    private static final int HAS_ACTIVE = 1 << 12;
+    private static final int ACTIVE = 1 << 13;
+    private static final int HAS_TENANT_ID = 1 << 14;
+
+    private ProfileBinaryCodec() {
+    }
+
+    /**
+     * 是否可以用本编码表示：单个资料，或全部元素都是资料(或都是摘要)的列表
+     */
+    public static boolean supports(Object value) {
+        if (value instanceof UserProfile) {
+            return true;
+        }
+        if (value instanceof List<?> list) {
+            Class<?> elementType = list.isEmpty() ? UserProfile.class : list.get(0).getClass();
+            if (elementType != UserProfile.class && elementType != UserProfileSummary.class) {
+                return false;
+            }
+            for (Object element : list) {
+                if (element == null || element.getClass() != elementType) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    public static byte[] encode(Object value) {
+        Writer out = new Writer();
+        out.writeByte(VERSION);
+        if (value instanceof UserProfile profile) {
+            out.writeByte(TYPE_PROFILE);
+            writeProfile(out, profile);
+        } else if (isSummaryList((List<?>) value)) {
+            List<?> list = (List<?>) value;
+            out.writeByte(TYPE_SUMMARY_LIST);
+            out.writeVarLong(list.size());
+            for (Object element : list) {
+                writeSummary(out, (UserProfileSummary) element);
+            }
+        } else {
+            List<?> list = (List<?>) value;
+            out.writeByte(TYPE_LIST);
+            out.writeVarLong(list.size());
+            for (Object element : list) {
+                writeProfile(out, (UserProfile) element);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    public static Object decode(byte[] bytes) {
+        return decode(bytes, 0);
+    }
+
+    /**
+     * 从 offset 处开始解码，避免调用方为去掉头部而复制数组
+     */
+    public static Object decode(byte[] bytes, int offset) {
+        Reader in = new Reader(bytes, offset);
+        byte version = in.readByte();
+        if (version != VERSION && version != VERSION_WITHOUT_TENANT) {
+            throw new IllegalArgumentException("不支持的资料编码版本: " + version);
+        }
+        byte type = in.readByte();
+        if (type == TYPE_PROFILE) {
+            return readProfile(in);
+        }
+        int size = (int) in.readVarLong();
+        if (type == TYPE_SUMMARY_LIST) {
+            List<UserProfileSummary> summaries = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                summaries.add(readSummary(in));
+            }
+            return summaries;
+        }
+        List<UserProfile> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(readProfile(in));
+        }
+        return list;
+    }
+
+    private static boolean isSummaryList(List<?> list) {
+        return !list.isEmpty() && list.get(0) instanceof UserProfileSummary;
+    }
+
+    private static void writeProfile(Writer out, UserProfile profile) {
+        int flags = 0;
+        if (profile.getId() != null) flags |= HAS_ID;
+        if (profile.getUserId() != null) flags |= HAS_USER_ID;
+        if (profile.getUsername() != null) flags |= HAS_USERNAME;
+        if (profile.getEmail() != null) flags |= HAS_EMAIL;
+        if (profile.getDisplayName() != null) flags |= HAS_DISPLAY_NAME;
+        if (profile.getAvatarUrl() != null) flags |= HAS_AVATAR_URL;
+        if (profile.getPhone() != null) flags |= HAS_PHONE;
+        if (profile.getDepartment() != null) flags |= HAS_DEPARTMENT;
+        if (profile.getPosition() != null) flags |= HAS_POSITION;
+        if (profile.getLastLogin() != null) flags |= HAS_LAST_LOGIN;
+        if (profile.getCreatedAt() != null) flags |= HAS_CREATED_AT;
+        if (profile.getUpdatedAt() != null) flags |= HAS_UPDATED_AT;
+        if (profile.getIsActive() != null) flags |= HAS_ACTIVE;
+        if (Boolean.TRUE.equals(profile.getIsActive())) flags |= ACTIVE;
+        if (profile.getTenantId() != null) flags |= HAS_TENANT_ID;
+        out.writeShort(flags);
+
+        if (profile.getTenantId() != null) out.writeString(profile.getTenantId());
+        if (profile.getId() != null) out.writeVarLong(profile.getId());
+        if (profile.getUserId() != null) out.writeString(profile.getUserId());
+        if (profile.getUsername() != null) out.writeString(profile.getUsername());
+        if (profile.getEmail() != null) out.writeString(profile.getEmail());
+        if (profile.getDisplayName() != null) out.writeString(profile.getDisplayName());
+        if (profile.getAvatarUrl() != null) out.writeString(profile.getAvatarUrl());
+        if (profile.getPhone() != null) out.writeString(profile.getPhone());
+        if (profile.getDepartment() != null) out.writeString(profile.getDepartment());
+        if (profile.getPosition() != null) out.writeString(profile.getPosition());
+        if (profile.getLastLogin() != null) out.writeDateTime(profile.getLastLogin());
+        if (profile.getCreatedAt() != null) out.writeDateTime(profile.getCreatedAt());
+        if (profile.getUpdatedAt() != null) out.writeDateTime(profile.getUpdatedAt());
+    }
+
+    private static UserProfile readProfile(Reader in) {
+        int flags = in.readShort();
+        UserProfile profile = new UserProfile();
+        if ((flags & HAS_TENANT_ID) != 0) profile.setTenantId(in.readString());
+        profile.setId((flags & HAS_ID) != 0 ? in.readVarLong() : null);
+        profile.setUserId((flags & HAS_USER_ID) != 0 ? in.readString() : null);
+        profile.setUsername((flags & HAS_USERNAME) != 0 ? in.readString() : null);
+        profile.setEmail((flags & HAS_EMAIL) != 0 ? in.readString() : null);
+        profile.setDisplayName((flags & HAS_DISPLAY_NAME) != 0 ? in.readString() : null);
+        profile.setAvatarUrl((flags & HAS_AVATAR_URL) != 0 ? in.readString() : null);
+        profile.setPhone((flags & HAS_PHONE) != 0 ? in.readString() : null);
+        profile.setDepartment((flags & HAS_DEPARTMENT) != 0 ? in.readString() : null);
+        profile.setPosition((flags & HAS_POSITION) != 0 ? in.readString() : null);
+        profile.setLastLogin((flags & HAS_LAST_LOGIN) != 0 ? in.readDateTime() : null);
+        profile.setCreatedAt((flags & HAS_CREATED_AT) != 0 ? in.readDateTime() : null);
+        profile.setUpdatedAt((flags & HAS_UPDATED_AT) != 0 ? in.readDateTime() : null);
+        profile.setIsActive((flags & HAS_ACTIVE) != 0 ? (flags & ACTIVE) != 0 : null);
+        return profile;
+    }
+
+    private static void writeSummary(Writer out, UserProfileSummary summary) {
+        int flags = 0;
+        if (summary.id() != null) flags |= HAS_ID;
+        if (summary.userId() != null) flags |= HAS_USER_ID;
+        if (summary.username() != null) flags |= HAS_USERNAME;
+        if (summary.displayName() != null) flags |= HAS_DISPLAY_NAME;
+        if (summary.department() != null) flags |= HAS_DEPARTMENT;
+        if (summary.position() != null) flags |= HAS_POSITION;
+        if (summary.lastLogin() != null) flags |= HAS_LAST_LOGIN;
+        out.writeShort(flags);
+
+        if (summary.id() != null) out.writeVarLong(summary.id());
+        if (summary.userId() != null) out.writeString(summary.userId());
+        if (summary.username() != null) out.writeString(summary.username());
+        if (summary.displayName() != null) out.writeString(summary.displayName());
+        if (summary.department() != null) out.writeString(summary.department());
+        if (summary.position() != null) out.writeString(summary.position());
+        if (summary.lastLogin() != null) out.writeDateTime(summary.lastLogin());
+    }
+
+    private static UserProfileSummary readSummary(Reader in) {
+        int flags = in.readShort();
+        return new UserProfileSummary(
+                (flags & HAS_ID) != 0 ? in.readVarLong() : null,
+                (flags & HAS_USER_ID) != 0 ? in.readString() : null,
+                (flags & HAS_USERNAME) != 0 ? in.readString() : null,
+                (flags & HAS_DISPLAY_NAME) != 0 ? in.readString() : null,
+                (flags & HAS_DEPARTMENT) != 0 ? in.readString() : null,
+                (flags & HAS_POSITION) != 0 ? in.readString() : null,
+                (flags & HAS_LAST_LOGIN) != 0 ? in.readDateTime() : null);
+    }
+
+    /**
+     * 变长整数写入，直接操作字节数组(ByteArrayOutputStream每个字节都要加锁)
+     */
+    static final class Writer {
+        private byte[] buffer = new byte[256];
+        private int position;
+
+        void writeByte(int value) {
+            ensureCapacity(1);
+            buffer[position++] = (byte) value;
+        }
+
+        void writeShort(int value) {
+            ensureCapacity(2);
+            buffer[position++] = (byte) (value >>> 8);
+            buffer[position++] = (byte) value;
+        }
+
+        void writeVarLong(long value) {
+            ensureCapacity(10);
+            // zigzag编码，负数也能保持短小
+            long zigzag = (value << 1) ^ (value >> 63);
+            while ((zigzag & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((zigzag & 0x7F) | 0x80);
+                zigzag >>>= 7;
+            }
+            buffer[position++] = (byte) zigzag;
+        }
+
+        void writeString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        void writeDateTime(LocalDateTime value) {
+            writeVarLong(value.toEpochSecond(ZoneOffset.UTC));
+            writeVarLong(value.getNano());
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+
+        private void ensureCapacity(int extra) {
+            if (position + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + extra));
+            }
+        }
+    }
+
+    /**
+     * 变长整数读取
+     */
+    static final class Reader {
+        private final byte[] bytes;
+        private int position;
+
+        Reader(byte[] bytes, int offset) {
+            this.bytes = bytes;
+            this.position = offset;
+        }
+
+        byte readByte() {
+            return bytes[position++];
+        }
+
+        int readShort() {
+            return ((bytes[position++] & 0xFF) << 8) | (bytes[position++] & 0xFF);
+        }
+
+        long readVarLong() {
+            long zigzag = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[position++];
+                zigzag |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+
+        String readString() {
+            int length = (int) readVarLong();
+            String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        LocalDateTime readDateTime() {
+            long epochSecond = readVarLong();
+            int nano = (int) readVarLong();
+            return LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC);
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.example.userservice.cache;
+
+import com.example.userservice.entity.UserProfile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.util.ByteUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 用户资料缓存写入器 - 写穿透(write-through)
+ *
+ * 资料变更提交后，在一次Redis pipeline中同时：
+ * 1. 写入 userProfiles / userProfilesByUsername
+ * 2. 删除受影响的 departmentUsers
+ * 事务回滚时不会触碰缓存；缓存key均为资料所属租户的key(见 {@link TenantKeys})
+ */
+@Component
+public class ProfileCacheWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProfileCacheWriter.class);
+
+    @Autowired
+    private TwoLevelCacheManager cacheManager;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private CacheTtlPolicy cacheTtlPolicy;
+
+    /**
+     * 资料新增/修改后写入缓存
+     *
+     * @param previousDepartment 修改前的部门，新增时为null
+     */
+    public void writeThrough(UserProfile profile, String previousDepartment) {
+        String tenantId = profile.getTenantId();
+        Batch batch = new Batch()
+                .put(CacheNames.USER_PROFILES, tenantKey(tenantId, profile.getUserId()), profile)
+                .put(CacheNames.USER_PROFILES_BY_USERNAME, tenantKey(tenantId, profile.getUsername()), profile)
+                .evict(CacheNames.DEPARTMENT_USERS, tenantKey(tenantId, profile.getDepartment()));
+        if (previousDepartment != null && !previousDepartment.equals(profile.getDepartment())) {
+            batch.evict(CacheNames.DEPARTMENT_USERS, tenantKey(tenantId, previousDepartment));
+        }
+        submit(batch);
+    }
+
+    /**
+     * 资料删除后清除相关缓存
+     */
+    public void evictProfile(UserProfile profile) {
+        String tenantId = profile.getTenantId();
+        submit(new Batch()
+                .evict(CacheNames.USER_PROFILES, tenantKey(tenantId, profile.getUserId()))
+                .evict(CacheNames.USER_PROFILES_BY_USERNAME, tenantKey(tenantId, profile.getUsername()))
+                .evict(CacheNames.DEPARTMENT_USERS, tenantKey(tenantId, profile.getDepartment())));
+    }
+
+    /**
+     * 最后登录时间写入数据库后，清除这些用户已缓存的资料，下次读取时从数据库加载
+     *
+     * 不在缓存中复制后回写：读取缓存与回写之间并发的 writeThrough 会被旧副本覆盖到TTL过期；
+     * 用户名缓存key需要从已缓存的资料中取得，已缓存的资料先查L1，其余用一次MGET读取
+     *
+     * @param tenantKeys 租户key({租户}:{userId})
+     */
+    public void evictLastLogin(Collection<String> tenantKeys) {
+        Batch batch = new Batch();
+        cacheManager.getAll(CacheNames.USER_PROFILES, tenantKeys).forEach((key, value) -> {
+            if (value instanceof UserProfile cached) {
+                batch.evict(CacheNames.USER_PROFILES, key)
+                     .evict(CacheNames.USER_PROFILES_BY_USERNAME,
+                            tenantKey(TenantKeys.tenantOf(key), cached.getUsername()));
+            }
+        });
+        submit(batch);
+    }
+
+    /**
+     * 清理变更捕获到的缓存key：立即用一条DEL删除Redis key，再清理本实例L1
+     *
+     * 每个实例都会消费同一批变更，因此不发布L1失效通知；Redis删除失败时抛出异常，由调用方重试
+     *
+     * @param keysByCache 缓存名 -> key
+     */
+    public void evictCaptured(Map<String, ? extends Collection<String>> keysByCache) {
+        List<byte[]> keys = new ArrayList<>();
+        keysByCache.forEach((cacheName, cacheKeys) -> {
+            RedisCacheConfiguration config = cacheConfiguration(cacheName);
+            cacheKeys.forEach(key -> keys.add(redisKey(config, cacheName, key)));
+        });
+        if (keys.isEmpty()) {
+            return;
+        }
+        redisTemplate.execute((RedisCallback<Long>) connection ->
+                connection.keyCommands().del(keys.toArray(new byte[0][])));
+        keysByCache.forEach((cacheName, cacheKeys) ->
+                cacheKeys.forEach(key -> cacheManager.evictLocalOnly(cacheName, key)));
+    }
+
+    /**
+     * 批量回填数据库查询结果：一个pipeline中SET NX，不覆盖并发写入的较新值
+     */
+    public void backfill(String cacheName, Map<String, ?> values) {
+        if (values.isEmpty()) {
+            return;
+        }
+        RedisCacheConfiguration config = cacheConfiguration(cacheName);
+        List<Map.Entry<String, ?>> entries = new ArrayList<>(values.entrySet());
+        List<Object> results;
+        try {
+            results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (Map.Entry<String, ?> entry : entries) {
+                    connection.stringCommands().set(
+                            redisKey(config, cacheName, entry.getKey()),
+                            ByteUtils.getBytes(config.getValueSerializationPair().write(entry.getValue())),
+                            expiration(cacheTtlPolicy.writeTtl(cacheName)),
+                            RedisStringCommands.SetOption.ifAbsent());
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            logger.warn("回填资料缓存失败: {}", e.getMessage());
+            return;
+        }
+        // 只有写入成功的key才回填L1，已存在的较新值以Redis为准
+        for (int i = 0; i < entries.size() && i < results.size(); i++) {
+            if (Boolean.TRUE.equals(results.get(i))) {
+                cacheManager.fillLocal(cacheName, entries.get(i).getKey(), entries.get(i).getValue());
+            }
+        }
+    }
+
+    /**
+     * 提交一批缓存操作：有事务时在提交后执行，否则立即执行
+     */
+    public void submit(Batch batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    execute(batch);
+                }
+            });
+        } else {
+            execute(batch);
+        }
+    }
+
+    private void execute(Batch batch) {
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (Put put : batch.puts) {
+                    RedisCacheConfiguration config = cacheConfiguration(put.cacheName);
+                    byte[] key = redisKey(config, put.cacheName, put.key);
+                    byte[] value = ByteUtils.getBytes(config.getValueSerializationPair().write(put.value));
+                    connection.stringCommands().set(key, value, expiration(cacheTtlPolicy.writeTtl(put.cacheName)),
+                            RedisStringCommands.SetOption.upsert());
+                }
+                if (!batch.evicts.isEmpty()) {
+                    byte[][] keys = new byte[batch.evicts.size()][];
+                    for (int i = 0; i < keys.length; i++) {
+                        Evict evict = batch.evicts.get(i);
+                        keys[i] = redisKey(cacheConfiguration(evict.cacheName), evict.cacheName, evict.key);
+                    }
+                    connection.keyCommands().del(keys);
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            // 缓存写入失败不影响业务，旧数据最多保留到TTL过期
+            logger.warn("写入资料缓存失败: {}", e.getMessage());
+            return;
+        }
+
+        for (Put put : batch.puts) {
+            cacheManager.refreshLocal(put.cacheName, put.key, put.value);
+        }
+        for (Evict evict : batch.evicts) {
+            cacheManager.evictLocal(evict.cacheName, evict.key);
+        }
+    }
+
+    /**
+     * 业务key为null(如未分配部门)时返回null，由Batch跳过
+     */
+    private static String tenantKey(String tenantId, String key) {
+        return key == null ? null : TenantKeys.of(tenantId, key);
+    }
+
+    private RedisCacheConfiguration cacheConfiguration(String cacheName) {
+        RedisCache redisCache = cacheManager.getRedisCache(cacheName);
+        return redisCache.getCacheConfiguration();
+    }
+
+    private static byte[] redisKey(RedisCacheConfiguration config, String cacheName, Object key) {
+        return (config.getKeyPrefixFor(cacheName) + key).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Expiration expiration(Duration ttl) {
+        return ttl == null || ttl.isZero() || ttl.isNegative()
+                ? Expiration.persistent()
+                : Expiration.from(ttl);
+    }
+
+    /**
+     * 一批需要在同一个pipeline中执行的缓存写入和删除
+     */
+    public static class Batch {
+        private final List<Put> puts = new ArrayList<>();
+        private final List<Evict> evicts = new ArrayList<>();
+
+        public Batch put(String cacheName, Object key, Object value) {
+            if (key != null && value != null) {
+                puts.add(new Put(cacheName, key, value));
+            }
+            return this;
+        }
+
+        public Batch evict(String cacheName, Object key) {
+            if (key != null) {
+                evicts.add(new Evict(cacheName, key));
+            }
+            return this;
+        }
+
+        public boolean isEmpty() {
+            return puts.isEmpty() && evicts.isEmpty();
+        }
+    }
+
+    private record Put(String cacheName, Object key, Object value) {
+    }
+
+    private record Evict(String cacheName, Object key) {
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.userservice.cache;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 缓存回源锁 - 集群内同一个key同时只有一个实例查询数据库
+ *
+ * SET NX PX 加锁，值为随机令牌，释放时只删除自己持有的锁；
+ * 锁在TTL后自动失效，持有者宕机不会导致其他实例一直等待
+ */
+public class RedisLoadLock {
+
+    private static final String LOCK_PREFIX = "lock:";
+
+    private static final RedisScript<Long> RELEASE = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final Duration lockTtl;
+
+    public RedisLoadLock(StringRedisTemplate redisTemplate, Duration lockTtl) {
+        this.redisTemplate = redisTemplate;
+        this.lockTtl = lockTtl;
+    }
+
+    /**
+     * 尝试加锁
+     *
+     * @return 加锁成功返回令牌，锁已被其他实例持有时返回null
+     */
+    public String tryAcquire(String redisKey) {
+        String token = UUID.randomUUID().toString();
+        Boolean acquired = redisTemplate.opsForValue().setIfAbsent(LOCK_PREFIX + redisKey, token, lockTtl);
+        return Boolean.TRUE.equals(acquired) ? token : null;
+    }
+
+    /**
+     * 锁是否仍被持有
+     */
+    public boolean isHeld(String redisKey) {
+        return Boolean.TRUE.equals(redisTemplate.hasKey(LOCK_PREFIX + redisKey));
+    }
+
+    public void release(String redisKey, String token) {
+        redisTemplate.execute(RELEASE, List.of(LOCK_PREFIX + redisKey), token);
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.userservice.cache;
+
+import org.springframework.cache.interceptor.KeyGenerator;
+
+import java.lang.reflect.Method;
+
+/**
+ * 租户缓存key - 格式为 {租户}:{key}
+ *
+ * Redis中为 {缓存名}::{租户}:{key}，可按租户前缀扫描；L1按key中的租户分区。
+ * 作为 {@link KeyGenerator} 使用时，方法的第一个参数为租户，第二个参数为业务key
+ */
+public class TenantKeys implements KeyGenerator {
+
+    /**
+     * KeyGenerator的Bean名称，用于 @Cacheable(keyGenerator = ...)
+     */
+    public static final String GENERATOR = "tenantKeyGenerator";
+
+    public static final char SEPARATOR = ':';
+
+    public static String of(String tenantId, Object key) {
+        return tenantId + SEPARATOR + key;
+    }
+
+    /**
+     * key中的租户，不含租户的key返回null
+     */
+    public static String tenantOf(String key) {
+        int index = key.indexOf(SEPARATOR);
+        return index > 0 ? key.substring(0, index) : null;
+    }
+
+    /**
+     * 去掉租户后的业务key
+     */
+    public static String keyOf(String key) {
+        return key.substring(key.indexOf(SEPARATOR) + 1);
+    }
+
+    @Override
+    public Object generate(Object target, Method method, Object... params) {
+        if (params.length != 2 || !(params[0] instanceof String tenantId)) {
+            throw new IllegalArgumentException("租户缓存方法的参数应为(租户, key): " + method);
+        }
+        return of(tenantId, params[1]);
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.userservice.cache;
+
+import com.example.userservice.entity.UserProfile;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 按租户分区的本地缓存 - 每个租户一个Caffeine实例，容量为该租户的配额
+ *
+ * 租户取自key前缀(见 {@link TenantKeys})，不含租户的key归入默认租户；
+ * 分区在租户第一次写入时创建，之后不再移除
+ */
+public class TenantLocalCache {
+
+    private final TenantTags tenantTags;
+    private final Function<String, Cache<Object, Object>> partitionFactory;
+    private final ConcurrentMap<String, Cache<Object, Object>> partitions = new ConcurrentHashMap<>();
+    private final List<BiConsumer<String, Cache<Object, Object>>> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param partitionFactory 分区名 -> 按该租户配额创建的Caffeine缓存
+     */
+    public TenantLocalCache(TenantTags tenantTags, Function<String, Cache<Object, Object>> partitionFactory) {
+        this.tenantTags = tenantTags;
+        this.partitionFactory = partitionFactory;
+    }
+
+    public Object getIfPresent(String key) {
+        Cache<Object, Object> partition = partitions.get(partitionName(key));
+        return partition == null ? null : partition.getIfPresent(key);
+    }
+
+    public void put(String key, Object value) {
+        partition(partitionName(key)).put(key, value);
+    }
+
+    public void invalidate(String key) {
+        Cache<Object, Object> partition = partitions.get(partitionName(key));
+        if (partition != null) {
+            partition.invalidate(key);
+        }
+    }
+
+    public void invalidateAll() {
+        partitions.values().forEach(Cache::invalidateAll);
+    }
+
+    public long estimatedSize() {
+        return partitions.values().stream().mapToLong(Cache::estimatedSize).sum();
+    }
+
+    /**
+     * 所有分区的统计之和
+     */
+    public CacheStats stats() {
+        return partitions.values().stream().map(Cache::stats).reduce(CacheStats.empty(), CacheStats::plus);
+    }
+
+    /**
+     * 分区名 -> 分区
+     */
+    public Map<String, Cache<Object, Object>> partitions() {
+        return partitions;
+    }
+
+    /**
+     * 分区创建时回调，已有分区立即回调一次；用于绑定按租户的统计指标
+     */
+    public void onPartitionCreated(BiConsumer<String, Cache<Object, Object>> listener) {
+        listeners.add(listener);
+        partitions.forEach(listener);
+    }
+
+    private Cache<Object, Object> partition(String name) {
+        Cache<Object, Object> partition = partitions.get(name);
+        if (partition != null) {
+            return partition;
+        }
+        Cache<Object, Object> created = partitionFactory.apply(name);
+        Cache<Object, Object> existing = partitions.putIfAbsent(name, created);
+        if (existing != null) {
+            return existing;
+        }
+        listeners.forEach(listener -> listener.accept(name, created));
+        return created;
+    }
+
+    private String partitionName(String key) {
+        String tenantId = TenantKeys.tenantOf(key);
+        return tenantTags.of(tenantId != null ? tenantId : UserProfile.DEFAULT_TENANT);
+    }
+}
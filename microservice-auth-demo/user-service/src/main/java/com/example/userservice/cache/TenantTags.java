@@ -0,0 +1,34 @@
+package com.example.userservice.cache;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 租户分区名/指标标签 - 限制租户维度的基数
+ *
+ * 最先出现的 maxTenants 个租户使用自己的名称，之后出现的租户统一为 {@link #OTHER}
+ */
+public class TenantTags {
+
+    public static final String OTHER = "other";
+
+    private final int maxTenants;
+    private final Set<String> tracked = ConcurrentHashMap.newKeySet();
+
+    public TenantTags(int maxTenants) {
+        this.maxTenants = maxTenants;
+    }
+
+    public String of(String tenantId) {
+        if (tracked.contains(tenantId)) {
+            return tenantId;
+        }
+        synchronized (tracked) {
+            if (tracked.size() < maxTenants) {
+                tracked.add(tenantId);
+                return tenantId;
+            }
+        }
+        return OTHER;
+    }
+}
@@ -0,0 +1,343 @@
+package com.example.userservice.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 二级缓存 - 本地Caffeine(L1) + Redis(L2)
+ *
+ * L1按key中的租户分区(见 {@link TenantLocalCache})，一个租户的大量读取不会挤出其他租户的热点条目
+ * 读：先查L1，未命中再查L2并回填L1；配置了提前刷新的缓存在同一个pipeline中读取值和剩余过期时间，
+ * 剩余过期时间进入提前刷新窗口时在后台重新加载，带回源方法(sync)和不带回源方法的读取行为一致
+ * 回源：实例内同一个key只有一个线程查询数据库，其余线程等待其结果(可选再加Redis锁)；
+ * 已过期但仍在保留期内的旧值直接返回，同时调用缓存注册的重新加载方法在后台刷新
+ * 写/删：同时操作L1和L2，并通过Redis发布失效通知，让其他实例清理各自的L1
+ */
+public class TwoLevelCache extends AbstractValueAdaptingCache {
+
+    private final String name;
+    private final TenantLocalCache localCache;
+    private final Cache redisCache;
+    private final TwoLevelCacheManager cacheManager;
+    private final ConcurrentMap<String, CompletableFuture<Object>> loading = new ConcurrentHashMap<>();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder localWaits = new LongAdder();
+    private final LongAdder lockWaits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder remoteHits = new LongAdder();
+    private final LongAdder remoteMisses = new LongAdder();
+    private final LongAdder loadSuccesses = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder loadSuccessNanos = new LongAdder();
+    private final LongAdder loadFailureNanos = new LongAdder();
+
+    public TwoLevelCache(String name,
+                         TenantLocalCache localCache,
+                         Cache redisCache,
+                         TwoLevelCacheManager cacheManager) {
+        // Redis缓存配置了disableCachingNullValues，这里保持一致
+        super(false);
+        this.name = name;
+        this.localCache = localCache;
+        this.redisCache = redisCache;
+        this.cacheManager = cacheManager;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return localCache;
+    }
+
+    /**
+     * 二级缓存实例(Redis)
+     */
+    public Cache getRedisCache() {
+        return redisCache;
+    }
+
+    /**
+     * 一级缓存实例(按租户分区的Caffeine)，统计信息来源
+     */
+    public TenantLocalCache getLocalCache() {
+        return localCache;
+    }
+
+    /**
+     * 提前刷新完成次数
+     */
+    public long getRefreshCount() {
+        return refreshes.sum();
+    }
+
+    /**
+     * 等待本实例其他线程回源结果的次数
+     */
+    public long getLocalWaitCount() {
+        return localWaits.sum();
+    }
+
+    /**
+     * 等待其他实例持有的回源锁的次数
+     */
+    public long getLockWaitCount() {
+        return lockWaits.sum();
+    }
+
+    /**
+     * 返回过期旧值的次数
+     */
+    public long getStaleHitCount() {
+        return staleHits.sum();
+    }
+
+    /**
+     * 同时读取剩余过期时间的L2读取(不经过RedisCacheWriter，不计入RedisCache统计)命中次数
+     */
+    public long getRemoteHitCount() {
+        return remoteHits.sum();
+    }
+
+    /**
+     * 同时读取剩余过期时间的L2读取未命中次数
+     */
+    public long getRemoteMissCount() {
+        return remoteMisses.sum();
+    }
+
+    /**
+     * 回源成功次数
+     */
+    public long getLoadSuccessCount() {
+        return loadSuccesses.sum();
+    }
+
+    /**
+     * 回源失败次数
+     */
+    public long getLoadFailureCount() {
+        return loadFailures.sum();
+    }
+
+    /**
+     * 回源成功的累计耗时(纳秒)
+     */
+    public long getLoadSuccessNanos() {
+        return loadSuccessNanos.sum();
+    }
+
+    /**
+     * 回源失败的累计耗时(纳秒)
+     */
+    public long getLoadFailureNanos() {
+        return loadFailureNanos.sum();
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        String localKey = localKey(key);
+        Object value = localCache.getIfPresent(localKey);
+        if (value != null) {
+            return value;
+        }
+
+        TwoLevelCacheManager.RemoteEntry entry = cacheManager.getRemoteEntry(this, key);
+        if (entry == null) {
+            return null;
+        }
+        if (cacheManager.revalidateIfExpiring(this, key, entry.remainingMillis())) {
+            // 已过期且没有后台重新加载方法，按未命中处理，由调用方回源后写入
+            return null;
+        }
+        localCache.put(localKey, entry.value());
+        return entry.value();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        String localKey = localKey(key);
+        Object value = localCache.getIfPresent(localKey);
+        if (value != null) {
+            return (T) value;
+        }
+
+        // 同一实例内同一个key只有一个线程会穿透到Redis/数据库，其余线程等待同一个结果
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = loading.putIfAbsent(localKey, future);
+        if (inFlight != null) {
+            localWaits.increment();
+            return (T) await(inFlight);
+        }
+        try {
+            value = loadThrough(key, valueLoader);
+            if (value != null) {
+                localCache.put(localKey, value);
+            }
+            future.complete(value);
+            return (T) value;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(localKey, future);
+        }
+    }
+
+    private Object loadThrough(Object key, Callable<?> valueLoader) {
+        TwoLevelCacheManager.RemoteEntry entry = cacheManager.getRemoteEntry(this, key);
+        if (entry != null) {
+            if (cacheManager.revalidateIfExpiring(this, key, entry.remainingMillis())) {
+                // 已过期且没有后台重新加载方法，在当前线程回源
+                Object value = invokeLoader(key, valueLoader);
+                refreshed(key, value);
+                return value;
+            }
+            return entry.value();
+        }
+        return cacheManager.loadFromSource(this, key, valueLoader);
+    }
+
+    private static Object await(CompletableFuture<Object> inFlight) {
+        try {
+            return inFlight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 调用回源方法，异常按Spring缓存约定包装
+     */
+    Object invokeLoader(Object key, Callable<?> valueLoader) {
+        long start = System.nanoTime();
+        try {
+            Object value = valueLoader.call();
+            loadSuccesses.increment();
+            loadSuccessNanos.add(System.nanoTime() - start);
+            return value;
+        } catch (Exception e) {
+            loadFailures.increment();
+            loadFailureNanos.add(System.nanoTime() - start);
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+    }
+
+    /**
+     * 只写L2，回源结果首次写入时使用，其他实例的L1此时没有该key，无需通知
+     */
+    void putRemote(Object key, Object value) {
+        redisCache.put(key, value);
+    }
+
+    /**
+     * 只读L2
+     */
+    Object getRemote(Object key) {
+        ValueWrapper wrapper = redisCache.get(key);
+        return wrapper == null ? null : wrapper.get();
+    }
+
+    void recordLockWait() {
+        lockWaits.increment();
+    }
+
+    void recordStaleHit() {
+        staleHits.increment();
+    }
+
+    void recordRemoteGet(boolean hit) {
+        (hit ? remoteHits : remoteMisses).increment();
+    }
+
+    /**
+     * 重新加载完成后写回两级缓存，数据已不存在(null)时删除旧值
+     */
+    void refreshed(Object key, Object value) {
+        put(key, value);
+        refreshes.increment();
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (value == null) {
+            evict(key);
+            return;
+        }
+        redisCache.put(key, value);
+        localCache.put(localKey(key), value);
+        cacheManager.publishEvict(name, localKey(key));
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = redisCache.putIfAbsent(key, value);
+        localCache.invalidate(localKey(key));
+        if (existing == null) {
+            cacheManager.publishEvict(name, localKey(key));
+        }
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        redisCache.evict(key);
+        localCache.invalidate(localKey(key));
+        cacheManager.publishEvict(name, localKey(key));
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        boolean present = redisCache.evictIfPresent(key);
+        localCache.invalidate(localKey(key));
+        cacheManager.publishEvict(name, localKey(key));
+        return present;
+    }
+
+    @Override
+    public void clear() {
+        redisCache.clear();
+        localCache.invalidateAll();
+        cacheManager.publishClear(name);
+    }
+
+    /**
+     * 只操作本实例的L1，收到其他实例的失效通知或Redis被直接写入时调用
+     */
+    Object getLocal(String localKey) {
+        return localCache.getIfPresent(localKey);
+    }
+
+    void putLocal(String localKey, Object value) {
+        localCache.put(localKey, value);
+    }
+
+    void evictLocal(String localKey) {
+        localCache.invalidate(localKey);
+    }
+
+    void clearLocal() {
+        localCache.invalidateAll();
+    }
+
+    /**
+     * L1统一使用字符串key，与Redis中的key格式一致，便于跨实例按key失效
+     */
+    static String localKey(Object key) {
+        return String.valueOf(key);
+    }
+}
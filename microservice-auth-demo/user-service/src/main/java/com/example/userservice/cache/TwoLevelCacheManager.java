@@ -0,0 +1,460 @@
+package com.example.userservice.cache;
+
+import com.example.userservice.config.TenantProperties;
+import com.example.userservice.config.UserServiceCacheProperties;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 二级缓存管理器
+ *
+ * 包装RedisCacheManager，为每个缓存名加一层按租户分区的本地Caffeine缓存；
+ * 同时订阅失效频道，收到其他实例的写/删通知后清理本地L1；
+ * 提前刷新/旧值重新加载在一个小线程池中执行，同一个key同时只有一个刷新任务；
+ * 后台任务调用按缓存注册的重新加载方法，不复用请求线程中的回源Callable
+ */
+public class TwoLevelCacheManager implements CacheManager, MessageListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(TwoLevelCacheManager.class);
+
+    private static final String OP_EVICT = "E";
+    private static final String OP_CLEAR = "C";
+    private static final String SEPARATOR = "|";
+
+    private static final int REFRESH_THREADS = 2;
+    private static final int REFRESH_QUEUE_CAPACITY = 1000;
+
+    private final CacheManager redisCacheManager;
+    private final UserServiceCacheProperties.Local localProperties;
+    private final TenantProperties tenantProperties;
+    private final TenantTags tenantTags;
+    private final CacheTtlPolicy ttlPolicy;
+    private final UserServiceCacheProperties.Stampede stampede;
+    private final RedisLoadLock loadLock;
+    private final StringRedisTemplate redisTemplate;
+    private final String topic;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private final ConcurrentMap<String, Cache> caches = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Function<String, ?>> reloaders = new ConcurrentHashMap<>();
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolExecutor refreshExecutor;
+
+    public TwoLevelCacheManager(CacheManager redisCacheManager,
+                                UserServiceCacheProperties properties,
+                                TenantProperties tenantProperties,
+                                CacheTtlPolicy ttlPolicy,
+                                StringRedisTemplate redisTemplate) {
+        this.redisCacheManager = redisCacheManager;
+        this.localProperties = properties.getLocal();
+        this.tenantProperties = tenantProperties;
+        this.tenantTags = new TenantTags(tenantProperties.getMaxTenants());
+        this.ttlPolicy = ttlPolicy;
+        this.stampede = properties.getStampede();
+        this.loadLock = stampede.isDistributedLock()
+                ? new RedisLoadLock(redisTemplate, stampede.getLockTtl())
+                : null;
+        this.redisTemplate = redisTemplate;
+        this.topic = properties.getInvalidationTopic();
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.refreshExecutor = new ThreadPoolExecutor(REFRESH_THREADS, REFRESH_THREADS,
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(REFRESH_QUEUE_CAPACITY), runnable -> {
+                    Thread thread = new Thread(runnable, "cache-refresh-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.refreshExecutor.allowCoreThreadTimeOut(true);
+
+        // 预先创建已配置的缓存，启动时即可绑定统计指标
+        ttlPolicy.getCacheNames().forEach(this::getCache);
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, this::createCache);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        Set<String> names = new LinkedHashSet<>(redisCacheManager.getCacheNames());
+        names.addAll(caches.keySet());
+        return Collections.unmodifiableSet(names);
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    private Cache createCache(String name) {
+        Cache redisCache = redisCacheManager.getCache(name);
+        if (!localProperties.isEnabled()) {
+            return redisCache;
+        }
+
+        UserServiceCacheProperties.Spec spec = localProperties.specFor(name);
+        TenantLocalCache localCache = new TenantLocalCache(tenantTags, tenantId -> Caffeine.newBuilder()
+                .maximumSize(tenantProperties.quotaFor(tenantId, spec.getMaximumSize()))
+                .expireAfterWrite(spec.getTtl())
+                .recordStats()
+                .build());
+        logger.info("创建二级缓存: {}, L1容量={}(租户默认配额{}), L1过期={}, L2过期={}, 提前刷新={}, 旧值保留={}", name,
+                spec.getMaximumSize(), tenantProperties.getCacheQuota(), spec.getTtl(), ttlPolicy.ttl(name), ttlPolicy.refreshAhead(name),
+                ttlPolicy.staleWhileRevalidate(name));
+        return new TwoLevelCache(name, localCache, redisCache, this);
+    }
+
+    /**
+     * 获取缓存对应的RedisCache，用于绕过注解直接批量读写Redis
+     */
+    public RedisCache getRedisCache(String name) {
+        Cache cache = getCache(name);
+        if (cache instanceof TwoLevelCache twoLevelCache) {
+            cache = twoLevelCache.getRedisCache();
+        }
+        return (RedisCache) cache;
+    }
+
+    /**
+     * 注册缓存的后台重新加载方法，参数为缓存key(即 {租户}:{key})
+     *
+     * 请求线程中的回源Callable是本次方法调用的AOP调用链，不能在其他线程重复执行，
+     * 这里应通过Spring代理调用不带缓存注解的加载方法，使事务和数据源路由照常生效；
+     * 未注册的缓存不做后台刷新，已过期的旧值由读取线程同步回源
+     */
+    public void registerReloader(String cacheName, Function<String, ?> reloader) {
+        reloaders.put(cacheName, reloader);
+    }
+
+    /**
+     * 读取L2的值；缓存配置了提前刷新或旧值保留时，GET和PTTL在同一个pipeline中执行，只有一次网络往返
+     *
+     * @return 未命中时返回null；未配置提前刷新时剩余过期时间为-1
+     */
+    RemoteEntry getRemoteEntry(TwoLevelCache cache, Object key) {
+        String name = cache.getName();
+        if (refreshWindowMillis(name) <= 0) {
+            Object value = cache.getRemote(key);
+            return value == null ? null : new RemoteEntry(value, -1);
+        }
+
+        byte[] rawKey = redisKey(name, key).getBytes(StandardCharsets.UTF_8);
+        // 不做结果反序列化，GET返回原始字节
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.stringCommands().get(rawKey);
+            connection.keyCommands().pTtl(rawKey);
+            return null;
+        }, null);
+        Object value = null;
+        if (results.size() == 2 && results.get(0) instanceof byte[] raw) {
+            value = getRedisCache(name).getCacheConfiguration().getValueSerializationPair().read(ByteBuffer.wrap(raw));
+        }
+        cache.recordRemoteGet(value != null);
+        if (value == null) {
+            return null;
+        }
+        long remaining = results.get(1) instanceof Long ttl ? ttl : -1;
+        return new RemoteEntry(value, remaining);
+    }
+
+    /**
+     * L2命中后按同一次读取得到的剩余过期时间检查：
+     * 进入旧值保留段说明已逻辑过期，返回旧值并后台重新加载；进入提前刷新窗口同样后台重新加载。
+     * 只在L1未命中时检查，因此提前刷新窗口应大于L1过期时间
+     *
+     * @param remaining L2剩余过期时间(毫秒)，小于0表示未知或不过期
+     * @return 已逻辑过期且该缓存没有注册重新加载方法时返回true，由调用方回源
+     */
+    boolean revalidateIfExpiring(TwoLevelCache cache, Object key, long remaining) {
+        String name = cache.getName();
+        long staleMillis = ttlPolicy.staleWhileRevalidate(name).toMillis();
+        long windowMillis = refreshWindowMillis(name);
+        if (windowMillis <= 0 || remaining < 0 || remaining > windowMillis) {
+            return false;
+        }
+        Function<String, ?> reloader = reloaders.get(name);
+        if (reloader == null) {
+            return remaining <= staleMillis;
+        }
+        if (remaining <= staleMillis) {
+            cache.recordStaleHit();
+        }
+
+        String localKey = TwoLevelCache.localKey(key);
+        String refreshKey = name + SEPARATOR + localKey;
+        if (!refreshing.add(refreshKey)) {
+            return false;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    cache.refreshed(key, reloader.apply(localKey));
+                    logger.debug("后台刷新缓存: {}::{}, 剩余{}ms", name, key, remaining);
+                } catch (Exception e) {
+                    // 刷新失败时旧值继续有效，过期后由正常读路径加载
+                    logger.warn("后台刷新缓存失败: {}::{}, {}", name, key, e.getMessage());
+                } finally {
+                    refreshing.remove(refreshKey);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(refreshKey);
+            logger.debug("后台刷新队列已满，跳过: {}", refreshKey);
+        }
+        return false;
+    }
+
+    private long refreshWindowMillis(String cacheName) {
+        return ttlPolicy.staleWhileRevalidate(cacheName).toMillis() + ttlPolicy.refreshAhead(cacheName).toMillis();
+    }
+
+    /**
+     * L2中的值及其剩余过期时间(毫秒)
+     */
+    record RemoteEntry(Object value, long remainingMillis) {
+    }
+
+    /**
+     * L2未命中时回源并写入L2
+     *
+     * 启用分布式锁时，只有拿到锁的实例查询数据库；其余实例轮询L2等待结果，
+     * 锁被释放仍未等到结果(回源结果为null或持有者失败)或等待超时，再自行回源
+     */
+    Object loadFromSource(TwoLevelCache cache, Object key, Callable<?> valueLoader) {
+        if (loadLock == null) {
+            return loadAndStore(cache, key, valueLoader);
+        }
+
+        String redisKey = redisKey(cache.getName(), key);
+        String token;
+        try {
+            token = loadLock.tryAcquire(redisKey);
+        } catch (Exception e) {
+            logger.debug("获取回源锁失败，直接回源: {}", e.getMessage());
+            return loadAndStore(cache, key, valueLoader);
+        }
+
+        if (token != null) {
+            try {
+                // 拿到锁之前其他实例可能刚写入
+                Object value = cache.getRemote(key);
+                return value != null ? value : loadAndStore(cache, key, valueLoader);
+            } finally {
+                releaseQuietly(redisKey, token);
+            }
+        }
+
+        cache.recordLockWait();
+        long deadline = System.nanoTime() + stampede.getLockWait().toNanos();
+        try {
+            while (System.nanoTime() < deadline) {
+                Thread.sleep(stampede.getPollInterval().toMillis());
+                Object value = cache.getRemote(key);
+                if (value != null) {
+                    return value;
+                }
+                if (!loadLock.isHeld(redisKey)) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        logger.debug("等待回源锁未取得结果，自行回源: {}", redisKey);
+        return loadAndStore(cache, key, valueLoader);
+    }
+
+    private Object loadAndStore(TwoLevelCache cache, Object key, Callable<?> valueLoader) {
+        Object value = cache.invokeLoader(key, valueLoader);
+        // 不缓存null，L1同样不会保存null结果
+        if (value != null) {
+            cache.putRemote(key, value);
+        }
+        return value;
+    }
+
+    private void releaseQuietly(String redisKey, String token) {
+        try {
+            loadLock.release(redisKey, token);
+        } catch (Exception e) {
+            // 释放失败时锁在TTL后自动失效
+            logger.debug("释放回源锁失败: {}", e.getMessage());
+        }
+    }
+
+    private String redisKey(String cacheName, Object key) {
+        return getRedisCache(cacheName).getCacheConfiguration().getKeyPrefixFor(cacheName) + key;
+    }
+
+    /**
+     * 关闭后台刷新线程池(容器关闭时自动调用)
+     */
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    /**
+     * 批量读取：先查L1，其余key用一次MGET读Redis并回填L1
+     *
+     * @return 命中的key与值，未命中的key不在结果中；Redis不可用时只返回L1命中部分
+     */
+    public Map<String, Object> getAll(String cacheName, Collection<String> keys) {
+        Map<String, Object> found = new HashMap<>();
+        TwoLevelCache twoLevelCache = getCache(cacheName) instanceof TwoLevelCache cache ? cache : null;
+        List<String> remoteKeys = new ArrayList<>();
+        for (String key : keys) {
+            Object value = twoLevelCache != null ? twoLevelCache.getLocal(TwoLevelCache.localKey(key)) : null;
+            if (value != null) {
+                found.put(key, value);
+            } else {
+                remoteKeys.add(key);
+            }
+        }
+        if (remoteKeys.isEmpty()) {
+            return found;
+        }
+
+        RedisCacheConfiguration config = getRedisCache(cacheName).getCacheConfiguration();
+        byte[][] rawKeys = new byte[remoteKeys.size()][];
+        for (int i = 0; i < rawKeys.length; i++) {
+            rawKeys[i] = (config.getKeyPrefixFor(cacheName) + remoteKeys.get(i)).getBytes(StandardCharsets.UTF_8);
+        }
+        try {
+            List<byte[]> values = redisTemplate.execute(
+                    (RedisCallback<List<byte[]>>) connection -> connection.stringCommands().mGet(rawKeys));
+            for (int i = 0; values != null && i < values.size(); i++) {
+                byte[] raw = values.get(i);
+                if (raw == null) {
+                    continue;
+                }
+                Object value = config.getValueSerializationPair().read(ByteBuffer.wrap(raw));
+                if (value != null) {
+                    found.put(remoteKeys.get(i), value);
+                    if (twoLevelCache != null) {
+                        twoLevelCache.putLocal(TwoLevelCache.localKey(remoteKeys.get(i)), value);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            // 按未命中处理，由调用方回源
+            logger.warn("批量读取缓存失败: {}, {}", cacheName, e.getMessage());
+        }
+        return found;
+    }
+
+    /**
+     * 回源结果已用SET NX写入Redis后，只回填本实例L1；其他实例L1中不会有该key，无需通知
+     */
+    public void fillLocal(String cacheName, Object key, Object value) {
+        if (getCache(cacheName) instanceof TwoLevelCache twoLevelCache) {
+            twoLevelCache.putLocal(TwoLevelCache.localKey(key), value);
+        }
+    }
+
+    /**
+     * Redis已被直接写入后，更新本实例L1并通知其他实例失效
+     */
+    public void refreshLocal(String cacheName, Object key, Object value) {
+        String localKey = TwoLevelCache.localKey(key);
+        if (getCache(cacheName) instanceof TwoLevelCache twoLevelCache) {
+            twoLevelCache.putLocal(localKey, value);
+        }
+        publishEvict(cacheName, localKey);
+    }
+
+    /**
+     * Redis中的key已被直接删除后，清理本实例L1并通知其他实例失效
+     */
+    public void evictLocal(String cacheName, Object key) {
+        String localKey = TwoLevelCache.localKey(key);
+        if (getCache(cacheName) instanceof TwoLevelCache twoLevelCache) {
+            twoLevelCache.evictLocal(localKey);
+        }
+        publishEvict(cacheName, localKey);
+    }
+
+    /**
+     * 只清理本实例L1，不通知其他实例；用于每个实例各自消费的失效事件(如资料变更捕获)
+     */
+    public void evictLocalOnly(String cacheName, Object key) {
+        if (getCache(cacheName) instanceof TwoLevelCache twoLevelCache) {
+            twoLevelCache.evictLocal(TwoLevelCache.localKey(key));
+        }
+    }
+
+    /**
+     * 通知其他实例清理指定key
+     */
+    void publishEvict(String cacheName, String key) {
+        publish(String.join(SEPARATOR, instanceId, OP_EVICT, cacheName, key));
+    }
+
+    /**
+     * 通知其他实例清空指定缓存
+     */
+    void publishClear(String cacheName) {
+        publish(String.join(SEPARATOR, instanceId, OP_CLEAR, cacheName, ""));
+    }
+
+    private void publish(String payload) {
+        try {
+            redisTemplate.convertAndSend(topic, payload);
+        } catch (Exception e) {
+            // 通知失败时其他实例的L1最多保留到本地TTL过期
+            logger.warn("发布缓存失效通知失败: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String payload = new String(message.getBody(), StandardCharsets.UTF_8);
+        // 格式: instanceId|op|cacheName|key，key中可能包含分隔符
+        String[] parts = payload.split("\\" + SEPARATOR, 4);
+        if (parts.length < 4 || instanceId.equals(parts[0])) {
+            return;
+        }
+
+        Cache cache = caches.get(parts[2]);
+        if (!(cache instanceof TwoLevelCache twoLevelCache)) {
+            return;
+        }
+        if (OP_CLEAR.equals(parts[1])) {
+            logger.debug("收到缓存清空通知: {}", parts[2]);
+            twoLevelCache.clearLocal();
+        } else {
+            logger.debug("收到缓存失效通知: {}::{}", parts[2], parts[3]);
+            twoLevelCache.evictLocal(parts[3]);
+        }
+    }
+}
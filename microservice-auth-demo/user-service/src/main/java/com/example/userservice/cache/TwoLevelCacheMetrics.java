@@ -0,0 +1,164 @@
+package com.example.userservice.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.binder.cache.CacheMeterBinder;
+import org.springframework.data.redis.cache.CacheStatistics;
+import org.springframework.data.redis.cache.RedisCache;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * 二级缓存统计指标
+ *
+ * 通用的 cache.gets/puts/evictions/size 按整体口径统计：任一级命中即为命中，两级都未命中才算未命中；
+ * 另外按层级输出 cache.level.gets{level=local|remote,result=hit|miss}，以及提前刷新次数 cache.refreshes、
+ * 击穿保护等待次数 cache.load.waits{scope=local|distributed}、返回旧值次数 cache.stale.hits，
+ * 回源次数和耗时 cache.loads{result=success|failure}；
+ * L1按租户分区输出 cache.tenant.gets{tenant,result=hit|miss}、cache.tenant.evictions、cache.tenant.size
+ */
+public class TwoLevelCacheMetrics extends CacheMeterBinder<TwoLevelCache> {
+
+    public TwoLevelCacheMetrics(TwoLevelCache cache, Iterable<Tag> tags) {
+        super(cache, cache.getName(), tags);
+    }
+
+    @Override
+    protected Long size() {
+        TwoLevelCache cache = getCache();
+        return cache == null ? null : cache.getLocalCache().estimatedSize();
+    }
+
+    @Override
+    protected long hitCount() {
+        return localStats(CacheStats::hitCount) + remoteHits();
+    }
+
+    @Override
+    protected Long missCount() {
+        return remoteMisses();
+    }
+
+    @Override
+    protected Long evictionCount() {
+        return localStats(CacheStats::evictionCount);
+    }
+
+    @Override
+    protected long putCount() {
+        return remoteStats(CacheStatistics::getPuts);
+    }
+
+    @Override
+    protected void bindImplementationSpecificMetrics(MeterRegistry registry) {
+        TwoLevelCache cache = getCache();
+        levelCounter(registry, cache, "local", "hit", c -> localStats(CacheStats::hitCount));
+        levelCounter(registry, cache, "local", "miss", c -> localStats(CacheStats::missCount));
+        levelCounter(registry, cache, "remote", "hit", c -> remoteHits());
+        levelCounter(registry, cache, "remote", "miss", c -> remoteMisses());
+
+        FunctionCounter.builder("cache.refreshes", cache, c -> c.getRefreshCount())
+                .tags(getTagsWithCacheName())
+                .description("提前刷新完成次数")
+                .register(registry);
+
+        waitCounter(registry, cache, "local", c -> c.getLocalWaitCount());
+        waitCounter(registry, cache, "distributed", c -> c.getLockWaitCount());
+
+        FunctionCounter.builder("cache.stale.hits", cache, c -> c.getStaleHitCount())
+                .tags(getTagsWithCacheName())
+                .description("返回过期旧值并后台重新加载的次数")
+                .register(registry);
+
+        loadTimer(registry, cache, "success", TwoLevelCache::getLoadSuccessCount, TwoLevelCache::getLoadSuccessNanos);
+        loadTimer(registry, cache, "failure", TwoLevelCache::getLoadFailureCount, TwoLevelCache::getLoadFailureNanos);
+
+        cache.getLocalCache().onPartitionCreated((tenant, partition) -> bindTenantMetrics(registry, tenant, partition));
+    }
+
+    private void bindTenantMetrics(MeterRegistry registry, String tenant, Cache<Object, Object> partition) {
+        tenantCounter(registry, tenant, partition, "hit", CacheStats::hitCount);
+        tenantCounter(registry, tenant, partition, "miss", CacheStats::missCount);
+        FunctionCounter.builder("cache.tenant.evictions", partition, p -> p.stats().evictionCount())
+                .tags(getTagsWithCacheName())
+                .tag("tenant", tenant)
+                .description("按租户统计的本地缓存驱逐数，达到租户配额后只驱逐该租户自己的条目")
+                .register(registry);
+        Gauge.builder("cache.tenant.size", partition, Cache::estimatedSize)
+                .tags(getTagsWithCacheName())
+                .tag("tenant", tenant)
+                .description("按租户统计的本地缓存条目数")
+                .register(registry);
+    }
+
+    private void tenantCounter(MeterRegistry registry, String tenant, Cache<Object, Object> partition, String result,
+                               ToLongFunction<CacheStats> count) {
+        FunctionCounter.builder("cache.tenant.gets", partition, p -> count.applyAsLong(p.stats()))
+                .tags(getTagsWithCacheName())
+                .tag("tenant", tenant)
+                .tag("result", result)
+                .description("按租户统计的本地缓存读取次数")
+                .register(registry);
+    }
+
+    private void loadTimer(MeterRegistry registry, TwoLevelCache cache, String result,
+                           ToLongFunction<TwoLevelCache> count, ToDoubleFunction<TwoLevelCache> totalNanos) {
+        FunctionTimer.builder("cache.loads", cache, count, totalNanos, TimeUnit.NANOSECONDS)
+                .tags(getTagsWithCacheName())
+                .tag("result", result)
+                .description("两级都未命中时回源加载的次数和耗时")
+                .register(registry);
+    }
+
+    private void waitCounter(MeterRegistry registry, TwoLevelCache cache, String scope,
+                             ToDoubleFunction<TwoLevelCache> count) {
+        FunctionCounter.builder("cache.load.waits", cache, count)
+                .tags(getTagsWithCacheName())
+                .tag("scope", scope)
+                .description("未命中时等待其他线程或实例回源的请求数")
+                .register(registry);
+    }
+
+    private void levelCounter(MeterRegistry registry, TwoLevelCache cache, String level, String result,
+                              ToDoubleFunction<TwoLevelCache> count) {
+        FunctionCounter.builder("cache.level.gets", cache, count)
+                .tags(getTagsWithCacheName())
+                .tag("level", level)
+                .tag("result", result)
+                .description("按缓存层级统计的读取次数")
+                .register(registry);
+    }
+
+    private long localStats(ToLongFunction<CacheStats> metric) {
+        TwoLevelCache cache = getCache();
+        return cache == null ? 0 : metric.applyAsLong(cache.getLocalCache().stats());
+    }
+
+    /**
+     * RedisCache统计 + 同时读取剩余过期时间的L2读取(不经过RedisCacheWriter)
+     */
+    private long remoteHits() {
+        TwoLevelCache cache = getCache();
+        return remoteStats(CacheStatistics::getHits) + (cache == null ? 0 : cache.getRemoteHitCount());
+    }
+
+    private long remoteMisses() {
+        TwoLevelCache cache = getCache();
+        return remoteStats(CacheStatistics::getMisses) + (cache == null ? 0 : cache.getRemoteMissCount());
+    }
+
+    private long remoteStats(ToLongFunction<CacheStatistics> metric) {
+        TwoLevelCache cache = getCache();
+        if (cache == null || !(cache.getRedisCache() instanceof RedisCache redisCache)) {
+            return 0;
+        }
+        return metric.applyAsLong(redisCache.getStatistics());
+    }
+}
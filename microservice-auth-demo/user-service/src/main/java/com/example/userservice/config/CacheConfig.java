@@ -1,22 +1,45 @@
 package com.example.userservice.config;
 
+import com.example.userservice.cache.CacheNames;
+import com.example.userservice.cache.CacheTtlPolicy;
+import com.example.userservice.cache.CompactValueSerializer;
+import com.example.userservice.cache.JitteredRedisCacheWriter;
+import com.example.userservice.cache.TenantKeys;
+import com.example.userservice.cache.TwoLevelCache;
+import com.example.userservice.cache.TwoLevelCacheManager;
+import com.example.userservice.cache.TwoLevelCacheMetrics;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.springframework.boot.actuate.metrics.cache.CacheMeterBinderProvider;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Redis缓存配置 - 支持LocalDateTime序列化
+ *
+ * 缓存管理器为二级结构：本地Caffeine(L1) + Redis(L2)，
+ * 跨实例的L1失效通过Redis发布/订阅完成；
+ * 每个缓存的L2过期时间、抖动和提前刷新由 user-service.cache.redis 配置
  */
 @Configuration
 @EnableCaching
@@ -24,6 +47,19 @@ public class CacheConfig {
 
     @Bean
     public RedisCacheConfiguration cacheConfiguration() {
+        return RedisCacheConfiguration.defaultCacheConfig()
+                .entryTtl(Duration.ofMinutes(10)) // 默认缓存10分钟
+                .disableCachingNullValues()
+                .serializeKeysWith(RedisSerializationContext.SerializationPair
+                    .fromSerializer(new StringRedisSerializer()))
+                .serializeValuesWith(RedisSerializationContext.SerializationPair
+                    .fromSerializer(jsonValueSerializer()));
+    }
+
+    /**
+     * 默认的缓存值序列化器 - 带类型信息的JSON
+     */
+    public static GenericJackson2JsonRedisSerializer jsonValueSerializer() {
         // 创建配置了JSR310的ObjectMapper
         ObjectMapper objectMapper = new ObjectMapper();
         objectMapper.registerModule(new JavaTimeModule());
@@ -35,15 +71,82 @@ public class CacheConfig {
         );
         
         // 创建支持LocalDateTime的Redis序列化器
-        GenericJackson2JsonRedisSerializer serializer = 
-            new GenericJackson2JsonRedisSerializer(objectMapper);
-        
-        return RedisCacheConfiguration.defaultCacheConfig()
-                .entryTtl(Duration.ofMinutes(10)) // 默认缓存10分钟
-                .disableCachingNullValues()
-                .serializeKeysWith(RedisSerializationContext.SerializationPair
-                    .fromSerializer(new StringRedisSerializer()))
-                .serializeValuesWith(RedisSerializationContext.SerializationPair
-                    .fromSerializer(serializer));
+        return new GenericJackson2JsonRedisSerializer(objectMapper);
+    }
+
+    @Bean
+    public CacheTtlPolicy cacheTtlPolicy(UserServiceCacheProperties cacheProperties) {
+        return new CacheTtlPolicy(cacheProperties);
+    }
+
+    /**
+     * 二级缓存管理器 - 替代自动配置的RedisCacheManager
+     */
+    @Bean
+    public TwoLevelCacheManager cacheManager(RedisConnectionFactory connectionFactory,
+                                             RedisCacheConfiguration cacheConfiguration,
+                                             UserServiceCacheProperties cacheProperties,
+                                             TenantProperties tenantProperties,
+                                             CacheTtlPolicy cacheTtlPolicy,
+                                             StringRedisTemplate stringRedisTemplate) {
+        // 按缓存名启用紧凑二进制编码
+        UserServiceCacheProperties.Codec codec = cacheProperties.getCodec();
+        RedisCacheConfiguration compactConfiguration = cacheConfiguration.serializeValuesWith(
+            RedisSerializationContext.SerializationPair.fromSerializer(
+                new CompactValueSerializer(jsonValueSerializer(), codec.getCompressionThreshold())));
+
+        // 按缓存名设置基准TTL，抖动在写入时由JitteredRedisCacheWriter叠加
+        Set<String> cacheNames = new HashSet<>(cacheTtlPolicy.getCacheNames());
+        cacheNames.addAll(codec.getCaches());
+        Map<String, RedisCacheConfiguration> perCache = new HashMap<>();
+        for (String cacheName : cacheNames) {
+            RedisCacheConfiguration base = codec.getCaches().contains(cacheName)
+                    ? compactConfiguration : cacheConfiguration;
+            perCache.put(cacheName, base.entryTtl(cacheTtlPolicy.ttl(cacheName)));
+        }
+        // 部门列表的缓存值由资料列表改为摘要列表，使用新的key前缀，旧格式的条目不再读取，按TTL过期
+        perCache.computeIfPresent(CacheNames.DEPARTMENT_USERS, (cacheName, config) ->
+                config.computePrefixWith(name -> name + ":summary::"));
+
+        RedisCacheWriter cacheWriter = new JitteredRedisCacheWriter(
+                RedisCacheWriter.nonLockingRedisCacheWriter(connectionFactory), cacheTtlPolicy);
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(cacheWriter)
+                .cacheDefaults(cacheConfiguration.entryTtl(cacheTtlPolicy.defaultTtl()))
+                .withInitialCacheConfigurations(perCache)
+                .enableStatistics()
+                .build();
+        // 未注册为Bean，需要手动初始化
+        redisCacheManager.initializeCaches();
+        return new TwoLevelCacheManager(redisCacheManager, cacheProperties, tenantProperties, cacheTtlPolicy,
+                stringRedisTemplate);
+    }
+
+    /**
+     * 租户缓存key，方法参数为(租户, key)
+     */
+    @Bean(TenantKeys.GENERATOR)
+    public TenantKeys tenantKeyGenerator() {
+        return new TenantKeys();
+    }
+
+    /**
+     * 二级缓存统计指标，通过 /actuator/metrics/cache.gets?tag=cache:{name} 查看
+     */
+    @Bean
+    public CacheMeterBinderProvider<TwoLevelCache> twoLevelCacheMeterBinderProvider() {
+        return TwoLevelCacheMetrics::new;
+    }
+
+    /**
+     * 订阅缓存失效频道
+     */
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(
+            RedisConnectionFactory connectionFactory,
+            TwoLevelCacheManager cacheManager) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(cacheManager, new ChannelTopic(cacheManager.getTopic()));
+        return container;
     }
 }
@@ -0,0 +1,91 @@
+package com.example.userservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 资料变更捕获配置 - 对应 user-service.change-capture.*
+ *
+ * user_profiles 上的触发器把每次变更写入 user_profile_changes(与业务写入同一事务)，
+ * 各实例轮询该表并清理受影响的缓存
+ */
+@ConfigurationProperties(prefix = "user-service.change-capture")
+public class ChangeCaptureProperties {
+
+    /**
+     * 是否启用变更捕获，关闭时只依赖本服务写入时的缓存更新和TTL
+     */
+    private boolean enabled = true;
+
+    /**
+     * 启动时创建变更表和触发器(已存在则跳过)；需要 TRIGGER 权限，
+     * 生产环境通常关闭并手动执行 sql/user_profile_changes.sql
+     */
+    private boolean installSchema = true;
+
+    /**
+     * 轮询间隔，即直接写入数据库后缓存最长的不一致时间
+     */
+    private Duration pollInterval = Duration.ofSeconds(1);
+
+    /**
+     * 每次轮询最多处理的变更数
+     */
+    private int batchSize = 500;
+
+    /**
+     * 变更ID出现空洞时等待的最长时间：自增ID在事务开始时分配、提交时才可见，
+     * 较小的ID可能晚于较大的ID出现；超过该时间仍未出现视为事务已回滚
+     */
+    private Duration gapTimeout = Duration.ofSeconds(30);
+
+    /**
+     * 同时等待的空洞ID上限，超过后丢弃最早的
+     */
+    private int maxGaps = 10000;
+
+    /**
+     * 变更记录保留时间，过期记录定期删除
+     */
+    private Duration retention = Duration.ofHours(1);
+
+    /**
+     * 过期记录清理间隔
+     */
+    private Duration cleanupInterval = Duration.ofMinutes(10);
+
+    /**
+     * 本服务写入的来源标识：主库连接建立时设置为会话变量，触发器记入变更的 origin 列。
+     * 本服务的写入已在提交后写穿透缓存，消费时不再删除这些变更的缓存key，
+     * 避免删掉刚写入的新值后又被回源读到旧数据
+     */
+    private String origin = "user-service";
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public boolean isInstallSchema() { return installSchema; }
+    public void setInstallSchema(boolean installSchema) { this.installSchema = installSchema; }
+
+    public Duration getPollInterval() { return pollInterval; }
+    public void setPollInterval(Duration pollInterval) { this.pollInterval = pollInterval; }
+
+    public int getBatchSize() { return batchSize; }
+    public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
+
+    public Duration getGapTimeout() { return gapTimeout; }
+    public void setGapTimeout(Duration gapTimeout) { this.gapTimeout = gapTimeout; }
+
+    public int getMaxGaps() { return maxGaps; }
+    public void setMaxGaps(int maxGaps) { this.maxGaps = maxGaps; }
+
+    public Duration getRetention() { return retention; }
+    public void setRetention(Duration retention) { this.retention = retention; }
+
+    public Duration getCleanupInterval() { return cleanupInterval; }
+    public void setCleanupInterval(Duration cleanupInterval) { this.cleanupInterval = cleanupInterval; }
+
+    public String getOrigin() { return origin; }
+    public void setOrigin(String origin) { this.origin = origin; }
+}
@@ -0,0 +1,132 @@
+package com.example.userservice.config;
+
+import com.example.userservice.datasource.ReadFromReplica;
+import com.example.userservice.datasource.ReadFromReplicaInterceptor;
+import com.example.userservice.datasource.ReadWriteRoutingDataSource;
+import com.example.userservice.datasource.ReplicationLagMonitor;
+import com.example.userservice.repository.ProfileChangeRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.Pointcut;
+import org.springframework.aop.support.ComposablePointcut;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 数据源配置 - 主库 + 可选只读从库，@ReadFromReplica 标记的只读事务路由到从库
+ *
+ * 主库沿用 spring.datasource.*，从库使用 user-service.datasource.replica.*；
+ * 两个Hikari连接池各自注册为Bean，hikaricp.* 指标按 pool 标签区分；
+ * 另有一个连接主库的小连接池只供流式导出使用
+ */
+@Configuration
+public class DataSourceConfig {
+
+    private static final String REPLICA_PREFIX = "user-service.datasource.replica";
+
+    /**
+     * 启用变更捕获时，连接建立后设置写入来源，触发器据此区分本服务的写入
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties, ChangeCaptureProperties changeCapture) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        if (changeCapture.isEnabled()) {
+            dataSource.setConnectionInitSql(ProfileChangeRepository.originInitSql(changeCapture.getOrigin()));
+        }
+        return dataSource;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = REPLICA_PREFIX, name = "enabled", havingValue = "true")
+    @ConfigurationProperties(REPLICA_PREFIX + ".hikari")
+    public HikariDataSource replicaDataSource(ReplicaDataSourceProperties properties) {
+        return DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(properties.getDriverClassName())
+                .url(properties.getUrl())
+                .username(properties.getUsername())
+                .password(properties.getPassword())
+                .build();
+    }
+
+    /**
+     * 导出专用连接池：只有这个池的连接启用 useCursorFetch，按 fetchSize 分批读取服务端游标，
+     * 其他查询的取数方式不受影响
+     */
+    @Bean
+    public HikariDataSource exportDataSource(DataSourceProperties properties,
+                                             @Value("${user-service.export.max-pool-size:2}") int maxPoolSize) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("UserServiceExportHikariCP");
+        dataSource.setMaximumPoolSize(maxPoolSize);
+        dataSource.setMinimumIdle(0);
+        dataSource.addDataSourceProperty("useCursorFetch", "true");
+        return dataSource;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = REPLICA_PREFIX, name = "enabled", havingValue = "true")
+    public ReplicationLagMonitor replicationLagMonitor(@Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                                       ReplicaDataSourceProperties properties,
+                                                       MeterRegistry meterRegistry) {
+        return new ReplicationLagMonitor(replicaDataSource, properties, meterRegistry);
+    }
+
+    /**
+     * 为 @ReadFromReplica 方法设置从库标记，排在事务拦截器之前
+     */
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor readFromReplicaAdvisor() {
+        Pointcut pointcut = new ComposablePointcut(new AnnotationMatchingPointcut(ReadFromReplica.class, true))
+                .union(AnnotationMatchingPointcut.forMethodAnnotation(ReadFromReplica.class));
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(pointcut, new ReadFromReplicaInterceptor());
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return advisor;
+    }
+
+    /**
+     * 应用使用的数据源(JPA、JdbcTemplate、事务管理器)
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                 @Qualifier("replicaDataSource") ObjectProvider<DataSource> replicaDataSource,
+                                 ObjectProvider<ReplicationLagMonitor> lagMonitor,
+                                 MeterRegistry meterRegistry) {
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(ReadWriteRoutingDataSource.PRIMARY, primaryDataSource);
+        DataSource replica = replicaDataSource.getIfAvailable();
+        if (replica != null) {
+            targets.put(ReadWriteRoutingDataSource.REPLICA, replica);
+        }
+
+        ReadWriteRoutingDataSource routingDataSource =
+                new ReadWriteRoutingDataSource(replica != null ? lagMonitor.getIfAvailable() : null, meterRegistry);
+        routingDataSource.setTargetDataSources(targets);
+        routingDataSource.setDefaultTargetDataSource(primaryDataSource);
+        routingDataSource.afterPropertiesSet();
+        // 延迟到第一条语句执行时才获取物理连接，此时事务的只读属性已确定
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+}
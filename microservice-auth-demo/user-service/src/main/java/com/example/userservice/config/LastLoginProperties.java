@@ -0,0 +1,48 @@
+package com.example.userservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 最后登录时间批量写回配置 - 对应 user-service.last-login.*
+ *
+ * 注册为 lastLoginProperties，定时任务通过SpEL读取 flushInterval
+ */
+@Component("lastLoginProperties")
+@ConfigurationProperties(prefix = "user-service.last-login")
+public class LastLoginProperties {
+
+    /**
+     * 定时刷新间隔
+     */
+    private Duration flushInterval = Duration.ofSeconds(5);
+
+    /**
+     * 缓冲中的用户数达到该值时立即刷新；数据库不可用时缓冲也不会超过该值
+     */
+    private int maxBufferSize = 5000;
+
+    /**
+     * 最早一条未落库记录允许在内存中停留的最长时间，即实例崩溃时最多丢失的时间窗口
+     */
+    private Duration maxLossWindow = Duration.ofSeconds(10);
+
+    /**
+     * 每个JDBC批次包含的语句数
+     */
+    private int batchSize = 500;
+
+    public Duration getFlushInterval() { return flushInterval; }
+    public void setFlushInterval(Duration flushInterval) { this.flushInterval = flushInterval; }
+
+    public int getMaxBufferSize() { return maxBufferSize; }
+    public void setMaxBufferSize(int maxBufferSize) { this.maxBufferSize = maxBufferSize; }
+
+    public Duration getMaxLossWindow() { return maxLossWindow; }
+    public void setMaxLossWindow(Duration maxLossWindow) { this.maxLossWindow = maxLossWindow; }
+
+    public int getBatchSize() { return batchSize; }
+    public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
+}
@@ -0,0 +1,60 @@
+package com.example.userservice.config;
+
+import com.example.userservice.cache.TenantTags;
+import io.lettuce.core.metrics.MicrometerOptions;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.common.KeyValue;
+import io.micrometer.common.KeyValues;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.server.observation.DefaultServerRequestObservationConvention;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+import org.springframework.http.server.observation.ServerRequestObservationConvention;
+
+/**
+ * 指标配置
+ *
+ * Spring Data仓库方法(spring.data.repository.invocations)、Hikari连接池(hikaricp.*)和缓存(cache.*)的指标
+ * 由Spring Boot自动注册；这里补充JDBC仓库的 @Timed 支持和Lettuce命令耗时直方图。
+ * 直方图和百分位的开关见 management.metrics.distribution；
+ * HTTP请求指标(http.server.requests)增加 tenant 标签
+ */
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * 使 @Timed 生效，JDBC仓库按方法记录 jdbc.repository.invocations
+     */
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+
+    /**
+     * Redis命令耗时 lettuce.command.completion / lettuce.command.firstresponse，按命令类型区分
+     */
+    @Bean
+    public MicrometerOptions micrometerOptions() {
+        return MicrometerOptions.builder()
+                .histogram(true)
+                .targetPercentiles(new double[] {0.5, 0.95, 0.99})
+                .build();
+    }
+
+    /**
+     * http.server.requests 按租户打标签；未认证请求为 none，超出 max-tenants 的租户为 other
+     */
+    @Bean
+    public ServerRequestObservationConvention tenantServerRequestObservationConvention(TenantProperties tenantProperties) {
+        TenantTags tenantTags = new TenantTags(tenantProperties.getMaxTenants());
+        return new DefaultServerRequestObservationConvention() {
+            @Override
+            public KeyValues getLowCardinalityKeyValues(ServerRequestObservationContext context) {
+                Object tenantId = context.getCarrier().getAttribute(UserInfoExtractionFilter.TENANT_ATTRIBUTE);
+                String tenant = tenantId == null ? "none" : tenantTags.of(tenantId.toString());
+                return super.getLowCardinalityKeyValues(context).and(KeyValue.of("tenant", tenant));
+            }
+        };
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.userservice.config;
 
+import com.example.userservice.entity.UserProfile;
 import org.springframework.security.core.GrantedAuthority;
 
 import java.util.List;
@@ -10,6 +11,7 @@ import java.util.Map;
  * 封装从API网关传递过来的用户信息
  */
 public class MicroserviceUserDetails {
+    private final String tenantId;
     private final String userId;
     private final String username;
     private final List<GrantedAuthority> authorities;
@@ -18,6 +20,13 @@ public class MicroserviceUserDetails {
     public MicroserviceUserDetails(String userId, String username, 
                                  List<GrantedAuthority> authorities, 
                                  Map<String, Object> additionalInfo) {
+        this(UserProfile.DEFAULT_TENANT, userId, username, authorities, additionalInfo);
+    }
+    
+    public MicroserviceUserDetails(String tenantId, String userId, String username, 
+                                 List<GrantedAuthority> authorities, 
+                                 Map<String, Object> additionalInfo) {
+        this.tenantId = tenantId;
         this.userId = userId;
         this.username = username;
         this.authorities = authorities;
@@ -25,6 +34,7 @@ public class MicroserviceUserDetails {
     }
     
     // Getters
+    public String getTenantId() { return tenantId; }
     public String getUserId() { return userId; }
     public String getUsername() { return username; }
     public List<GrantedAuthority> getAuthorities() { return authorities; }
@@ -33,7 +43,8 @@ public class MicroserviceUserDetails {
     @Override
     public String toString() {
         return "MicroserviceUserDetails{" +
-                "userId='" + userId + '\'' +
+                "tenantId='" + tenantId + '\'' +
+                ", userId='" + userId + '\'' +
                 ", username='" + username + '\'' +
                 ", authorities=" + authorities +
                 '}';
@@ -0,0 +1,76 @@
+package com.example.userservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 资料事件推送配置 - 对应 user-service.events.*
+ */
+@ConfigurationProperties(prefix = "user-service.events")
+public class ProfileEventProperties {
+
+    /**
+     * 每个订阅者的待发送事件上限，写满后丢弃新事件，恢复发送时先推送 resync 事件
+     */
+    private int bufferSize = 256;
+
+    /**
+     * 两次成功发送之间累计丢弃超过该数量时断开订阅者(慢消费者)，客户端重连后重新加载
+     */
+    private int maxDroppedEvents = 1024;
+
+    /**
+     * 单次写出的最大事件数
+     */
+    private int batchSize = 64;
+
+    /**
+     * 同时连接的订阅者上限
+     */
+    private int maxSubscribers = 200;
+
+    /**
+     * 发送线程数，每个订阅者同一时间只占用一个线程
+     */
+    private int dispatchThreads = 4;
+
+    /**
+     * 单次写出(事件或心跳)的最长时间，超过后断开该订阅者，卡住的连接不会一直占用发送线程
+     */
+    private Duration sendTimeout = Duration.ofSeconds(10);
+
+    /**
+     * 心跳间隔，保持连接不被代理断开并及时发现已断开的客户端
+     */
+    private Duration heartbeatInterval = Duration.ofSeconds(15);
+
+    /**
+     * 单个连接的最长时间，到期后由客户端重连
+     */
+    private Duration timeout = Duration.ofMinutes(30);
+
+    public int getBufferSize() { return bufferSize; }
+    public void setBufferSize(int bufferSize) { this.bufferSize = bufferSize; }
+
+    public int getMaxDroppedEvents() { return maxDroppedEvents; }
+    public void setMaxDroppedEvents(int maxDroppedEvents) { this.maxDroppedEvents = maxDroppedEvents; }
+
+    public int getBatchSize() { return batchSize; }
+    public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
+
+    public int getMaxSubscribers() { return maxSubscribers; }
+    public void setMaxSubscribers(int maxSubscribers) { this.maxSubscribers = maxSubscribers; }
+
+    public int getDispatchThreads() { return dispatchThreads; }
+    public void setDispatchThreads(int dispatchThreads) { this.dispatchThreads = dispatchThreads; }
+
+    public Duration getSendTimeout() { return sendTimeout; }
+    public void setSendTimeout(Duration sendTimeout) { this.sendTimeout = sendTimeout; }
+
+    public Duration getHeartbeatInterval() { return heartbeatInterval; }
+    public void setHeartbeatInterval(Duration heartbeatInterval) { this.heartbeatInterval = heartbeatInterval; }
+
+    public Duration getTimeout() { return timeout; }
+    public void setTimeout(Duration timeout) { this.timeout = timeout; }
+}
@@ -0,0 +1,67 @@
+package com.example.userservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 只读从库配置 - 对应 user-service.datasource.replica.*
+ *
+ * 连接池参数写在 user-service.datasource.replica.hikari 下，与主库的 spring.datasource.hikari 相同；
+ * 固定Bean名称，延迟检查的 @Scheduled 通过SpEL读取检查间隔
+ */
+@Component("replicaDataSourceProperties")
+@ConfigurationProperties(prefix = "user-service.datasource.replica")
+public class ReplicaDataSourceProperties {
+
+    /**
+     * 是否启用从库，关闭时所有查询走主库；启用后只有 @ReadFromReplica 标记的只读查询读从库
+     */
+    private boolean enabled = false;
+
+    private String url;
+    private String username;
+    private String password;
+    private String driverClassName = "com.mysql.cj.jdbc.Driver";
+
+    /**
+     * 允许的最大复制延迟，超过后从库查询回退到主库
+     */
+    private Duration maxLag = Duration.ofSeconds(5);
+
+    /**
+     * 复制延迟检查间隔
+     */
+    private Duration lagCheckInterval = Duration.ofSeconds(5);
+
+    /**
+     * 查询复制延迟的语句，读取结果中的 Seconds_Behind_Source(或 Seconds_Behind_Master) 列；
+     * 没有结果行表示该库不是从库(如本地测试用的独立schema)，按无延迟处理
+     */
+    private String lagQuery = "SHOW REPLICA STATUS";
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public String getUrl() { return url; }
+    public void setUrl(String url) { this.url = url; }
+
+    public String getUsername() { return username; }
+    public void setUsername(String username) { this.username = username; }
+
+    public String getPassword() { return password; }
+    public void setPassword(String password) { this.password = password; }
+
+    public String getDriverClassName() { return driverClassName; }
+    public void setDriverClassName(String driverClassName) { this.driverClassName = driverClassName; }
+
+    public Duration getMaxLag() { return maxLag; }
+    public void setMaxLag(Duration maxLag) { this.maxLag = maxLag; }
+
+    public Duration getLagCheckInterval() { return lagCheckInterval; }
+    public void setLagCheckInterval(Duration lagCheckInterval) { this.lagCheckInterval = lagCheckInterval; }
+
+    public String getLagQuery() { return lagQuery; }
+    public void setLagQuery(String lagQuery) { this.lagQuery = lagQuery; }
+}
@@ -1,5 +1,6 @@
 package com.example.userservice.config;
 
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
@@ -34,6 +35,9 @@ public class SecurityConfig {
             
             // 配置请求授权
             .authorizeHttpRequests(authz -> authz
+                // 流式响应(SSE、导出)结束时的异步分派，首次请求已完成鉴权
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+                
                 // 健康检查端点允许匿名访问
                 .requestMatchers("/actuator/health", "/actuator/info").permitAll()
                 
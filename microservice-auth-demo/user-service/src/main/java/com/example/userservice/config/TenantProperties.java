@@ -0,0 +1,49 @@
+package com.example.userservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 多租户配置 - 对应 user-service.tenant.*
+ *
+ * 租户来自网关的 X-Tenant-ID 请求头；本地一级缓存按租户分区，
+ * 每个分区的容量为缓存 maximum-size 乘以租户配额，一个租户的大量读取只会挤出自己的条目
+ */
+@ConfigurationProperties(prefix = "user-service.tenant")
+public class TenantProperties {
+
+    /**
+     * 单独分区和单独打指标标签的租户数上限，超出的租户共用 other 分区和标签，
+     * 本地缓存总条目数最多为 (max-tenants + 1) × 单个分区容量
+     */
+    private int maxTenants = 100;
+
+    /**
+     * 默认租户配额：单个租户最多占用每个一级缓存 maximum-size 的比例
+     */
+    private double cacheQuota = 0.25;
+
+    /**
+     * 按租户覆盖配额
+     */
+    private Map<String, Double> quotas = new HashMap<>();
+
+    public int getMaxTenants() { return maxTenants; }
+    public void setMaxTenants(int maxTenants) { this.maxTenants = maxTenants; }
+
+    public double getCacheQuota() { return cacheQuota; }
+    public void setCacheQuota(double cacheQuota) { this.cacheQuota = cacheQuota; }
+
+    public Map<String, Double> getQuotas() { return quotas; }
+    public void setQuotas(Map<String, Double> quotas) { this.quotas = quotas; }
+
+    /**
+     * 租户在容量为 maximumSize 的缓存中可占用的条目数，至少为1
+     */
+    public long quotaFor(String tenantId, long maximumSize) {
+        double share = quotas.getOrDefault(tenantId, cacheQuota);
+        return Math.max(1, (long) Math.ceil(maximumSize * Math.min(1.0, share)));
+    }
+}
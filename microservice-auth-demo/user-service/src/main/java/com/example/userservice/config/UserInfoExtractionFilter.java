@@ -1,6 +1,9 @@
 package com.example.userservice.config;
 
+import com.example.userservice.entity.UserProfile;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -13,21 +16,55 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
 
 /**
  * 用户信息提取过滤器
  * 
  * 从API网关传递的请求头中提取用户信息，并设置到Spring Security上下文中
  * 这样微服务就可以获取到当前用户的认证信息
+ *
+ * 同一用户的请求头内容不变，构建好的认证对象按三个请求头的原值缓存(有容量上限)，
+ * 命中时不再解析JSON和创建权限对象；权限对象按名称全局共享
+ *
+ * 租户取自 X-Tenant-ID，缺省为 {@link UserProfile#DEFAULT_TENANT}；
+ * 格式非法时不设置认证信息，同时写入请求属性 {@link #TENANT_ATTRIBUTE} 供HTTP指标使用
  */
 public class UserInfoExtractionFilter extends OncePerRequestFilter {
     
+    public static final String TENANT_HEADER = "X-Tenant-ID";
+    public static final String TENANT_ATTRIBUTE = UserInfoExtractionFilter.class.getName() + ".tenant";
+    
+    /**
+     * 租户ID会拼入缓存key，只允许字母、数字、下划线和横线，且不能包含key分隔符
+     */
+    private static final Pattern TENANT_PATTERN = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+    
+    private static final int MAX_CACHED_AUTHENTICATIONS = 10_000;
+    private static final Duration AUTHENTICATION_TTL = Duration.ofMinutes(10);
+    
+    /**
+     * 角色名称是有限集合，超过该数量不再驻留，防止异常请求头撑大内存
+     */
+    private static final int MAX_INTERNED_AUTHORITIES = 1_000;
+    
+    private static final ConcurrentMap<String, GrantedAuthority> AUTHORITIES = new ConcurrentHashMap<>();
+    
     private final ObjectMapper objectMapper = new ObjectMapper();
     
+    private final Cache<HeaderKey, Authentication> authentications = Caffeine.newBuilder()
+        .maximumSize(MAX_CACHED_AUTHENTICATIONS)
+        .expireAfterAccess(AUTHENTICATION_TTL)
+        .build();
+    
     @Override
     protected void doFilterInternal(HttpServletRequest request, 
                                   HttpServletResponse response, 
@@ -38,32 +75,24 @@ public class UserInfoExtractionFilter extends OncePerRequestFilter {
             String userInfoHeader = request.getHeader("X-User-Info");
             String userId = request.getHeader("X-User-ID");
             String username = request.getHeader("X-Username");
+            String tenantId = request.getHeader(TENANT_HEADER);
+            if (tenantId == null) {
+                tenantId = UserProfile.DEFAULT_TENANT;
+            }
             
-            if (userInfoHeader != null && userId != null) {
-                // 解析用户信息JSON
-                @SuppressWarnings("unchecked")
-                Map<String, Object> userInfo = objectMapper.readValue(userInfoHeader, Map.class);
-                
-                // 提取角色信息
-                @SuppressWarnings("unchecked")
-                List<String> roles = (List<String>) userInfo.getOrDefault("roles", new ArrayList<>());
-                
-                // 转换为Spring Security的权限格式
-                List<GrantedAuthority> authorities = roles.stream()
-                    .map(role -> new SimpleGrantedAuthority("ROLE_" + role.toUpperCase()))
-                    .collect(Collectors.toList());
-                
-                // 创建认证对象
-                MicroserviceUserDetails userDetails = new MicroserviceUserDetails(
-                    userId, username, authorities, userInfo);
-                
-                Authentication authentication = new UsernamePasswordAuthenticationToken(
-                    userDetails, null, authorities);
+            if (userInfoHeader != null && userId != null && !TENANT_PATTERN.matcher(tenantId).matches()) {
+                logger.warn("非法的租户ID，忽略用户信息: " + userId);
+            } else if (userInfoHeader != null && userId != null) {
+                Authentication authentication = authentications.get(
+                    new HeaderKey(userInfoHeader, tenantId, userId, username), this::buildAuthentication);
+                request.setAttribute(TENANT_ATTRIBUTE, tenantId);
                 
                 // 设置到安全上下文中
                 SecurityContextHolder.getContext().setAuthentication(authentication);
                 
-                logger.debug("已设置用户认证信息: " + username + ", 角色: " + roles);
+                if (logger.isDebugEnabled()) {
+                    logger.debug("已设置用户认证信息: " + username + ", 权限: " + authentication.getAuthorities());
+                }
             }
             
         } catch (Exception e) {
@@ -73,4 +102,51 @@ public class UserInfoExtractionFilter extends OncePerRequestFilter {
         
         filterChain.doFilter(request, response);
     }
-}
\ No newline at end of file
+    
+    /**
+     * 解析请求头并创建认证对象，结果在多个请求间共享，内部集合均为只读
+     */
+    private Authentication buildAuthentication(HeaderKey key) {
+        Map<String, Object> userInfo;
+        try {
+            // 解析用户信息JSON
+            @SuppressWarnings("unchecked")
+            Map<String, Object> parsed = objectMapper.readValue(key.userInfo(), Map.class);
+            userInfo = Collections.unmodifiableMap(parsed);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        
+        // 提取角色信息
+        @SuppressWarnings("unchecked")
+        List<String> roles = (List<String>) userInfo.getOrDefault("roles", new ArrayList<>());
+        
+        // 转换为Spring Security的权限格式
+        List<GrantedAuthority> authorities = roles.stream()
+            .map(UserInfoExtractionFilter::authority)
+            .toList();
+        
+        // 创建认证对象
+        MicroserviceUserDetails userDetails = new MicroserviceUserDetails(
+            key.tenantId(), key.userId(), key.username(), authorities, userInfo);
+        return new UsernamePasswordAuthenticationToken(userDetails, null, authorities);
+    }
+    
+    private static GrantedAuthority authority(String role) {
+        String name = "ROLE_" + role.toUpperCase();
+        GrantedAuthority authority = AUTHORITIES.get(name);
+        if (authority != null) {
+            return authority;
+        }
+        if (AUTHORITIES.size() >= MAX_INTERNED_AUTHORITIES) {
+            return new SimpleGrantedAuthority(name);
+        }
+        return AUTHORITIES.computeIfAbsent(name, SimpleGrantedAuthority::new);
+    }
+    
+    /**
+     * 缓存key使用请求头原值而不是哈希，避免哈希碰撞导致串用身份
+     */
+    private record HeaderKey(String userInfo, String tenantId, String userId, String username) {
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.userservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 用户服务缓存配置 - 对应 user-service.cache.*
+ */
+@ConfigurationProperties(prefix = "user-service.cache")
+public class UserServiceCacheProperties {
+
+    /**
+     * 用户资料缓存时间(秒)
+     */
+    private long userProfileTtl = 600;
+
+    /**
+     * 部门列表缓存时间(秒)
+     */
+    private long departmentListTtl = 1800;
+
+    /**
+     * 跨实例失效通知使用的Redis频道
+     */
+    private String invalidationTopic = "user-service:cache-invalidation";
+
+    /**
+     * 本地一级缓存(Caffeine)配置
+     */
+    private Local local = new Local();
+
+    /**
+     * Redis二级缓存过期配置
+     */
+    private Redis redis = new Redis();
+
+    /**
+     * 缓存击穿保护配置
+     */
+    private Stampede stampede = new Stampede();
+
+    /**
+     * Redis缓存值编码配置
+     */
+    private Codec codec = new Codec();
+
+    public long getUserProfileTtl() { return userProfileTtl; }
+    public void setUserProfileTtl(long userProfileTtl) { this.userProfileTtl = userProfileTtl; }
+
+    public long getDepartmentListTtl() { return departmentListTtl; }
+    public void setDepartmentListTtl(long departmentListTtl) { this.departmentListTtl = departmentListTtl; }
+
+    public String getInvalidationTopic() { return invalidationTopic; }
+    public void setInvalidationTopic(String invalidationTopic) { this.invalidationTopic = invalidationTopic; }
+
+    public Local getLocal() { return local; }
+    public void setLocal(Local local) { this.local = local; }
+
+    public Redis getRedis() { return redis; }
+    public void setRedis(Redis redis) { this.redis = redis; }
+
+    public Stampede getStampede() { return stampede; }
+    public void setStampede(Stampede stampede) { this.stampede = stampede; }
+
+    public Codec getCodec() { return codec; }
+    public void setCodec(Codec codec) { this.codec = codec; }
+
+    /**
+     * 一级缓存配置：defaults 为默认值，caches 按缓存名覆盖
+     */
+    public static class Local {
+        private boolean enabled = true;
+        private Spec defaults = new Spec(10_000L, Duration.ofSeconds(60));
+        private Map<String, Spec> caches = new HashMap<>();
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public Spec getDefaults() { return defaults; }
+        public void setDefaults(Spec defaults) { this.defaults = defaults; }
+
+        public Map<String, Spec> getCaches() { return caches; }
+        public void setCaches(Map<String, Spec> caches) { this.caches = caches; }
+
+        /**
+         * 获取指定缓存的配置，未单独配置的项使用默认值
+         */
+        public Spec specFor(String cacheName) {
+            Spec spec = caches.get(cacheName);
+            if (spec == null) {
+                return defaults;
+            }
+            return new Spec(
+                spec.getMaximumSize() != null ? spec.getMaximumSize() : defaults.getMaximumSize(),
+                spec.getTtl() != null ? spec.getTtl() : defaults.getTtl());
+        }
+    }
+
+    /**
+     * 单个一级缓存的容量和过期时间
+     */
+    public static class Spec {
+        private Long maximumSize;
+        private Duration ttl;
+
+        public Spec() {
+        }
+
+        public Spec(Long maximumSize, Duration ttl) {
+            this.maximumSize = maximumSize;
+            this.ttl = ttl;
+        }
+
+        public Long getMaximumSize() { return maximumSize; }
+        public void setMaximumSize(Long maximumSize) { this.maximumSize = maximumSize; }
+
+        public Duration getTtl() { return ttl; }
+        public void setTtl(Duration ttl) { this.ttl = ttl; }
+    }
+
+    /**
+     * 二级缓存(Redis)配置：defaults 为默认值，caches 按缓存名覆盖
+     */
+    public static class Redis {
+        private RedisSpec defaults = new RedisSpec(Duration.ofMinutes(10), 0.1, null, null);
+        private Map<String, RedisSpec> caches = new HashMap<>();
+
+        public RedisSpec getDefaults() { return defaults; }
+        public void setDefaults(RedisSpec defaults) { this.defaults = defaults; }
+
+        public Map<String, RedisSpec> getCaches() { return caches; }
+        public void setCaches(Map<String, RedisSpec> caches) { this.caches = caches; }
+    }
+
+    /**
+     * 单个二级缓存的过期策略
+     */
+    public static class RedisSpec {
+        /**
+         * 基准过期时间
+         */
+        private Duration ttl;
+
+        /**
+         * 过期时间随机抖动比例，0.1表示在基准值上下浮动10%，避免同批写入的key同时过期
+         */
+        private Double jitter;
+
+        /**
+         * 剩余过期时间小于该值时，命中的同时在后台提前刷新，为空表示不提前刷新
+         */
+        private Duration refreshAhead;
+
+        /**
+         * 过期后继续保留旧值的时间：期间读取直接返回旧值并在后台重新加载，为空表示不保留
+         */
+        private Duration staleWhileRevalidate;
+
+        public RedisSpec() {
+        }
+
+        public RedisSpec(Duration ttl, Double jitter, Duration refreshAhead, Duration staleWhileRevalidate) {
+            this.ttl = ttl;
+            this.jitter = jitter;
+            this.refreshAhead = refreshAhead;
+            this.staleWhileRevalidate = staleWhileRevalidate;
+        }
+
+        public Duration getTtl() { return ttl; }
+        public void setTtl(Duration ttl) { this.ttl = ttl; }
+
+        public Double getJitter() { return jitter; }
+        public void setJitter(Double jitter) { this.jitter = jitter; }
+
+        public Duration getRefreshAhead() { return refreshAhead; }
+        public void setRefreshAhead(Duration refreshAhead) { this.refreshAhead = refreshAhead; }
+
+        public Duration getStaleWhileRevalidate() { return staleWhileRevalidate; }
+        public void setStaleWhileRevalidate(Duration staleWhileRevalidate) { this.staleWhileRevalidate = staleWhileRevalidate; }
+    }
+
+    /**
+     * 缓存击穿保护：实例内同一个key只有一个线程回源，可选再用Redis锁保证集群内只有一个实例回源
+     */
+    public static class Stampede {
+        private boolean distributedLock = false;
+        private Duration lockTtl = Duration.ofSeconds(10);
+        private Duration lockWait = Duration.ofSeconds(3);
+        private Duration pollInterval = Duration.ofMillis(50);
+
+        public boolean isDistributedLock() { return distributedLock; }
+        public void setDistributedLock(boolean distributedLock) { this.distributedLock = distributedLock; }
+
+        public Duration getLockTtl() { return lockTtl; }
+        public void setLockTtl(Duration lockTtl) { this.lockTtl = lockTtl; }
+
+        public Duration getLockWait() { return lockWait; }
+        public void setLockWait(Duration lockWait) { this.lockWait = lockWait; }
+
+        public Duration getPollInterval() { return pollInterval; }
+        public void setPollInterval(Duration pollInterval) { this.pollInterval = pollInterval; }
+    }
+
+    /**
+     * 紧凑二进制编码：只对 caches 中列出的缓存启用，其余缓存继续使用JSON
+     */
+    public static class Codec {
+        private Set<String> caches = new HashSet<>();
+        private int compressionThreshold = 1024;
+
+        public Set<String> getCaches() { return caches; }
+        public void setCaches(Set<String> caches) { this.caches = caches; }
+
+        public int getCompressionThreshold() { return compressionThreshold; }
+        public void setCompressionThreshold(int compressionThreshold) { this.compressionThreshold = compressionThreshold; }
+    }
+}
@@ -1,16 +1,35 @@
 package com.example.userservice.controller;
 
+import com.example.userservice.cache.TenantKeys;
 import com.example.userservice.config.MicroserviceUserDetails;
+import com.example.userservice.controller.response.ApiResponse;
+import com.example.userservice.controller.response.ErrorResponse;
+import com.example.userservice.controller.response.JsonResponseWriter;
+import com.example.userservice.controller.response.Meta;
+import com.example.userservice.controller.response.ProfileEventStream;
+import com.example.userservice.controller.response.ProfileView;
 import com.example.userservice.entity.UserProfile;
+import com.example.userservice.entity.UserProfileSummary;
+import com.example.userservice.service.RecentActivityIndex;
+import com.example.userservice.service.ServiceStatusReporter;
 import com.example.userservice.service.UserProfileService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.time.LocalDateTime;
 import java.util.*;
 
 /**
@@ -23,62 +42,63 @@ public class EnhancedUserController {
     
     private static final Logger logger = LoggerFactory.getLogger(EnhancedUserController.class);
     
+    private static final int MAX_PAGE_SIZE = 1000;
+    
+    private static final int MAX_BATCH_SIZE = 1000;
+    
+    private static final String NDJSON = "application/x-ndjson";
+    
+    private static final String CACHED_SOURCE = "MySQL + Redis Cache";
+    
+    private static final String VERSION = "enhanced-v1.0";
+    
     @Autowired
     private UserProfileService userProfileService;
+    
+    @Autowired
+    private JsonResponseWriter responseWriter;
+
+    @Autowired
+    private ServiceStatusReporter serviceStatusReporter;
+
+    @Autowired
+    private ProfileEventStream profileEventStream;
 
     /**
      * 获取完整的用户资料 (MySQL + Redis缓存)
      */
     @GetMapping("/profile")
     @PreAuthorize("hasAuthority('ROLE_USER')")
-    public ResponseEntity<Map<String, Object>> getEnhancedProfile(Authentication authentication) {
+    public ResponseEntity<byte[]> getEnhancedProfile(Authentication authentication) {
         try {
             MicroserviceUserDetails userDetails = (MicroserviceUserDetails) authentication.getPrincipal();
             logger.info("获取增强用户资料: {}", userDetails.getUserId());
             
             // 从数据库查询用户详细资料 (带Redis缓存)
-            UserProfile profile = userProfileService.getUserProfile(userDetails.getUserId());
+            UserProfile profile = userProfileService.getUserProfile(userDetails.getTenantId(), userDetails.getUserId());
+            if (profile == null || profile.getId() == null) {
+                // 资料不存在：返回默认资料并异步创建
+                profile = userProfileService.provisionDefaultProfile(userDetails.getTenantId(),
+                    userDetails.getUserId(), userDetails.getUsername());
+            }
             
-            // 更新最后访问时间
-            userProfileService.updateLastLogin(userDetails.getUserId());
+            // 更新最后访问时间 (写入内存缓冲，定时批量落库)
+            userProfileService.updateLastLogin(userDetails.getTenantId(), userDetails.getUserId(),
+                Boolean.TRUE.equals(profile.getIsActive()));
             
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("data", Map.of(
-                "basic", Map.of(
-                    "userId", profile.getUserId(),
-                    "username", profile.getUsername(),
-                    "displayName", profile.getDisplayName()
-                ),
-                "organization", Map.of(
-                    "department", profile.getDepartment(),
-                    "position", profile.getPosition()),
-                "profile", Map.of(
-                    "lastLogin", profile.getLastLogin(),
-                    "createdAt", profile.getCreatedAt(),
-                    "updatedAt", profile.getUpdatedAt(),
-                    "isActive", profile.getIsActive()
-                ),
-                "security", Map.of(
-                    "authorities", userDetails.getAuthorities(),
-                    "sessionInfo", userDetails.getAdditionalInfo()
-                )
-            ));
-            response.put("meta", Map.of(
-                "dataSource", "MySQL + Redis Cache",
-                "timestamp", System.currentTimeMillis(),
-                "version", "enhanced-v1.0"
-            ));
+            // 本地缓存命中时是同一个资料对象，basic/organization 直接复用已序列化的片段
+            JsonResponseWriter.Fragments fragments = responseWriter.fragments(profile);
+            ProfileView data = new ProfileView(
+                fragments.basic(),
+                fragments.organization(),
+                new ProfileView.Timeline(profile.getLastLogin(), profile.getCreatedAt(),
+                    profile.getUpdatedAt(), profile.getIsActive()),
+                new ProfileView.Security(userDetails.getAuthorities(), userDetails.getAdditionalInfo()));
             
-            return ResponseEntity.ok(response);
+            return responseWriter.ok(ApiResponse.of(data, Meta.of(CACHED_SOURCE).withVersion(VERSION)));
         } catch (Exception e) {
             logger.error("获取增强用户资料失败", e);
-            return ResponseEntity.status(500).body(Map.of(
-                "success", false,
-                "error", "获取用户资料失败",
-                "message", e.getMessage(),
-                "timestamp", System.currentTimeMillis()
-            ));
+            return error("获取用户资料失败", e);
         }
     }
 
@@ -87,75 +107,105 @@ public class EnhancedUserController {
      */
     @PutMapping("/profile")
     @PreAuthorize("hasAuthority('ROLE_USER')")
-    public ResponseEntity<Map<String, Object>> updateProfile(
+    public ResponseEntity<byte[]> updateProfile(
             @RequestBody UserProfile updatedProfile,
             Authentication authentication) {
         try {
             MicroserviceUserDetails userDetails = (MicroserviceUserDetails) authentication.getPrincipal();
             logger.info("更新用户资料: {}", userDetails.getUserId());
             
-            // 设置用户ID
+            // 设置用户ID和租户
             updatedProfile.setUserId(userDetails.getUserId());
             updatedProfile.setUsername(userDetails.getUsername());
+            updatedProfile.setTenantId(userDetails.getTenantId());
             
             // 保存到数据库并更新缓存
-            UserProfile savedProfile = userProfileService.saveOrUpdateProfile(updatedProfile);
-            
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("message", "用户资料更新成功");
-            response.put("data", savedProfile);
-            response.put("timestamp", System.currentTimeMillis());
+            UserProfile savedProfile = userProfileService.saveOrUpdateProfile(userDetails.getTenantId(), updatedProfile);
             
-            return ResponseEntity.ok(response);
+            return responseWriter.ok(ApiResponse.of("用户资料更新成功", savedProfile));
         } catch (Exception e) {
             logger.error("更新用户资料失败", e);
-            return ResponseEntity.status(500).body(Map.of(
-                "success", false,
-                "error", "更新用户资料失败",
-                "message", e.getMessage(),
-                "timestamp", System.currentTimeMillis()
-            ));
+            return error("更新用户资料失败", e);
         }
     }
 
     /**
-     * 管理员获取所有用户 (MySQL查询 + 统计信息)
+     * 管理员分页获取用户 (主键游标分页 + 统计信息)
+     *
+     * 翻页时把上一页返回的 nextCursor 作为 afterId 传入，nextCursor 为null表示已到最后一页
      */
     @GetMapping("/admin/users")
     @PreAuthorize("hasAuthority('ROLE_ADMIN')")
-    public ResponseEntity<Map<String, Object>> getAllUsers() {
+    public ResponseEntity<byte[]> getAllUsers(
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(defaultValue = "100") int size,
+            Authentication authentication) {
         try {
-            logger.info("管理员查询所有用户");
+            String tenantId = tenantOf(authentication);
+            int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+            logger.info("管理员分页查询用户: tenant={}, afterId={}, size={}", tenantId, afterId, pageSize);
             
-            List<UserProfile> users = userProfileService.getAllActiveUsers();
-            Map<String, Long> departmentStats = userProfileService.getDepartmentStatistics();
+            List<UserProfileSummary> users = userProfileService.getActiveUsersPage(tenantId, afterId, pageSize);
+            Map<String, Long> departmentStats = userProfileService.getDepartmentStatistics(tenantId);
+            long total = departmentStats.values().stream().mapToLong(Long::longValue).sum();
+            Long nextCursor = users.size() == pageSize ? users.get(users.size() - 1).id() : null;
             
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("data", Map.of(
-                "users", users,
-                "statistics", Map.of(
-                    "total", users.size(),
-                    "departments", departmentStats,
-                    "byDepartment", departmentStats
-                )
-            ));
-            response.put("meta", Map.of(
-                "dataSource", "MySQL Database",
-                "timestamp", System.currentTimeMillis(),
-                "query", "SELECT * FROM user_profiles WHERE is_active = true"
-            ));
+            UsersPage data = new UsersPage(users, new CursorPage(pageSize, users.size()), nextCursor,
+                new Statistics(total, departmentStats, departmentStats));
+            Meta meta = Meta.of("MySQL Database")
+                .withQuery("SELECT id, user_id, username, display_name, department, position, last_login " +
+                    "FROM user_profiles WHERE tenant_id = ? AND is_active = true AND id > ? ORDER BY id LIMIT ?");
             
-            return ResponseEntity.ok(response);
+            return responseWriter.ok(ApiResponse.of(data, meta));
         } catch (Exception e) {
             logger.error("查询用户列表失败", e);
-            return ResponseEntity.status(500).body(Map.of(
-                "success", false,
-                "error", "查询用户列表失败",
-                "message", e.getMessage(),
-                "timestamp", System.currentTimeMillis()
-            ));
+            return error("查询用户列表失败", e);
+        }
+    }
+
+    /**
+     * 管理员导出所有活跃用户 (NDJSON流式输出，每行一个用户)
+     */
+    @GetMapping(value = "/admin/users/export", produces = NDJSON)
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportUsers(Authentication authentication) {
+        // 响应体在异步线程中写出，租户在请求线程中取出
+        String tenantId = tenantOf(authentication);
+        logger.info("管理员导出所有用户: tenant={}", tenantId);
+        StreamingResponseBody body = outputStream -> userProfileService.exportActiveUsers(tenantId, outputStream);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"users.ndjson\"")
+                .body(body);
+    }
+
+    /**
+     * 按用户ID批量获取资料 (缓存MGET + 分批IN查询)
+     *
+     * 请求体为用户ID数组，返回的 users 与输入顺序一致，不存在的ID列在 missing 中
+     */
+    @PostMapping("/admin/users/batch")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<byte[]> getUsersBatch(@RequestBody List<String> userIds, Authentication authentication) {
+        try {
+            if (userIds == null || userIds.size() > MAX_BATCH_SIZE) {
+                return responseWriter.status(HttpStatus.BAD_REQUEST,
+                    ErrorResponse.of("用户ID数量不能超过" + MAX_BATCH_SIZE));
+            }
+            logger.info("批量获取用户资料: {}个", userIds.size());
+            
+            List<UserProfile> users = userProfileService.getUserProfiles(tenantOf(authentication), userIds);
+            Set<String> found = new HashSet<>();
+            users.forEach(user -> found.add(user.getUserId()));
+            List<String> missing = userIds.stream()
+                .filter(userId -> !found.contains(userId))
+                .distinct()
+                .toList();
+            
+            return responseWriter.ok(ApiResponse.of(new BatchUsers(users, users.size(), missing)));
+        } catch (Exception e) {
+            logger.error("批量获取用户资料失败", e);
+            return error("批量获取用户资料失败", e);
         }
     }
 
@@ -164,34 +214,20 @@ public class EnhancedUserController {
      */
     @GetMapping("/admin/department/{department}")
     @PreAuthorize("hasAuthority('ROLE_ADMIN')")
-    public ResponseEntity<Map<String, Object>> getUsersByDepartment(@PathVariable String department) {
+    public ResponseEntity<byte[]> getUsersByDepartment(@PathVariable String department,
+                                                       Authentication authentication) {
         try {
-            logger.info("查询部门用户: {}", department);
-            
-            List<UserProfile> users = userProfileService.getUsersByDepartment(department);
+            String tenantId = tenantOf(authentication);
+            logger.info("查询部门用户: {}/{}", tenantId, department);
             
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("data", Map.of(
-                "department", department,
-                "users", users,
-                "count", users.size()
-            ));
-            response.put("meta", Map.of(
-                "dataSource", "MySQL + Redis Cache",
-                "cacheKey", "department-users::" + department,
-                "timestamp", System.currentTimeMillis()
-            ));
+            List<UserProfileSummary> users = userProfileService.getUsersByDepartment(tenantId, department);
             
-            return ResponseEntity.ok(response);
+            return responseWriter.ok(ApiResponse.of(
+                new DepartmentUsers(department, users, users.size()),
+                Meta.of(CACHED_SOURCE).withCacheKey("department-users::" + TenantKeys.of(tenantId, department))));
         } catch (Exception e) {
             logger.error("查询部门用户失败", e);
-            return ResponseEntity.status(500).body(Map.of(
-                "success", false,
-                "error", "查询部门用户失败",
-                "message", e.getMessage(),
-                "timestamp", System.currentTimeMillis()
-            ));
+            return error("查询部门用户失败", e);
         }
     }
 
@@ -200,115 +236,118 @@ public class EnhancedUserController {
      */
     @GetMapping("/admin/role/{roleName}")
     @PreAuthorize("hasAuthority('ROLE_ADMIN')")
-    public ResponseEntity<Map<String, Object>> getUsersByRole(@PathVariable String roleName) {
+    public ResponseEntity<byte[]> getUsersByRole(@PathVariable String roleName) {
         try {
             logger.info("查询角色用户: {}", roleName);
             
             List<UserProfile> users = userProfileService.getUsersByRole(roleName);
             
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("data", Map.of(
-                "roleName", roleName,
-                "users", users,
-                "count", users.size()
-            ));
-            response.put("meta", Map.of(
-                "dataSource", "MySQL + Redis Cache", 
-                "cacheKey", "role-users::" + roleName,
-                "timestamp", System.currentTimeMillis()
-            ));
-            
-            return ResponseEntity.ok(response);
+            return responseWriter.ok(ApiResponse.of(
+                new RoleUsers(roleName, users, users.size()),
+                Meta.of(CACHED_SOURCE).withCacheKey("role-users::" + roleName)));
         } catch (Exception e) {
             logger.error("查询角色用户失败", e);
-            return ResponseEntity.status(500).body(Map.of(
-                "success", false,
-                "error", "查询角色用户失败", 
-                "message", e.getMessage(),
-                "timestamp", System.currentTimeMillis()
-            ));
+            return error("查询角色用户失败", e);
         }
     }
 
     /**
-     * 获取最近活跃用户 (Redis缓存)
+     * 获取最近活跃用户 (内存活跃索引，游标分页)
+     *
+     * 翻页时把上一页返回的 nextCursor 的 lastLogin、userId 作为 afterLogin、afterUserId 传入，
+     * nextCursor 为null表示已到最后一页；一页的用户数可能少于 size
      */
     @GetMapping("/admin/recent-active/{hours}")
     @PreAuthorize("hasAuthority('ROLE_ADMIN')")
-    public ResponseEntity<Map<String, Object>> getRecentlyActiveUsers(@PathVariable int hours) {
+    public ResponseEntity<byte[]> getRecentlyActiveUsers(
+            @PathVariable int hours,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime afterLogin,
+            @RequestParam(required = false) String afterUserId,
+            @RequestParam(defaultValue = "50") int size,
+            Authentication authentication) {
         try {
-            logger.info("查询最近{}小时活跃用户", hours);
+            String tenantId = tenantOf(authentication);
+            int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+            RecentActivityIndex.Activity after = afterLogin != null && afterUserId != null
+                ? new RecentActivityIndex.Activity(afterUserId, afterLogin) : null;
+            logger.info("查询最近{}小时活跃用户: tenant={}, after={}, size={}", hours, tenantId, after, pageSize);
             
-            List<UserProfile> users = userProfileService.getRecentlyActiveUsers(hours);
+            UserProfileService.RecentlyActiveUsers page =
+                userProfileService.getRecentlyActiveUsers(tenantId, hours, after, pageSize);
+            int total = userProfileService.countRecentlyActiveUsers(tenantId, hours);
             
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("data", Map.of(
-                "timeRange", hours + " hours",
-                "users", users,
-                "count", users.size()
-            ));
-            response.put("meta", Map.of(
-                "dataSource", "MySQL + Redis Cache",
-                "cacheKey", "recent-users::" + hours,
-                "timestamp", System.currentTimeMillis()
-            ));
+            RecentUsers data = new RecentUsers(hours + " hours", page.users(), page.users().size(),
+                new CursorPage(pageSize, page.users().size()), total, page.next());
             
-            return ResponseEntity.ok(response);
+            return responseWriter.ok(ApiResponse.of(data, Meta.of("In-memory Activity Index")));
         } catch (Exception e) {
             logger.error("查询活跃用户失败", e);
-            return ResponseEntity.status(500).body(Map.of(
-                "success", false,
-                "error", "查询活跃用户失败",
-                "message", e.getMessage(),
-                "timestamp", System.currentTimeMillis()
-            ));
+            return error("查询活跃用户失败", e);
+        }
+    }
+
+    /**
+     * 订阅本租户的资料事件 (SSE：资料新增/修改/删除、登录、部门计数变化)
+     *
+     * 收到 resync 事件或重连后应重新加载 /admin/users 等列表
+     */
+    @GetMapping(value = "/admin/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public SseEmitter streamEvents(Authentication authentication) throws IOException {
+        String tenantId = tenantOf(authentication);
+        try {
+            logger.info("订阅资料事件: tenant={}", tenantId);
+            return profileEventStream.open(tenantId);
+        } catch (IllegalStateException e) {
+            logger.warn("订阅资料事件失败: {}", e.getMessage());
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
         }
     }
 
     /**
-     * 获取服务状态 (展示数据源集成状态)
+     * 获取服务状态 (依赖健康状态 + 缓存、仓库、连接池、Redis指标)
      */
     @GetMapping("/admin/service-status")
     @PreAuthorize("hasAuthority('ROLE_ADMIN')")
-    public ResponseEntity<Map<String, Object>> getServiceStatus() {
+    public ResponseEntity<byte[]> getServiceStatus() {
         try {
-            Map<String, Object> status = new HashMap<>();
-            status.put("mysql", Map.of(
-                "status", "connected",
-                "database", "microservice_db",
-                "host", "localhost:3307",
-                "tables", Arrays.asList("user_profiles", "user_roles")
-            ));
-            status.put("redis", Map.of(
-                "status", "connected", 
-                "host", "localhost:6379",
-                "caches", Arrays.asList("user-profiles", "department-users", "role-users", "recent-users", "department-stats")
-            ));
-            status.put("nacos", Map.of(
-                "status", "registered",
-                "server", "localhost:8848", 
-                "service", "user-service",
-                "namespace", "microservice-auth"
-            ));
-            
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("service", "user-service");
-            response.put("version", "enhanced-v1.0");
-            response.put("integrations", status);
-            response.put("timestamp", System.currentTimeMillis());
-            
-            return ResponseEntity.ok(response);
+            return responseWriter.ok(serviceStatusReporter.report());
         } catch (Exception e) {
             logger.error("获取服务状态失败", e);
-            return ResponseEntity.status(500).body(Map.of(
-                "success", false,
-                "error", "获取服务状态失败",
-                "message", e.getMessage(),
-                "timestamp", System.currentTimeMillis()
-            ));
+            return error("获取服务状态失败", e);
         }
     }
+
+    /**
+     * 当前请求所属租户，由网关请求头 X-Tenant-ID 传入
+     */
+    private static String tenantOf(Authentication authentication) {
+        return ((MicroserviceUserDetails) authentication.getPrincipal()).getTenantId();
+    }
+
+    private ResponseEntity<byte[]> error(String error, Exception e) {
+        return responseWriter.status(HttpStatus.INTERNAL_SERVER_ERROR, ErrorResponse.of(error, e.getMessage()));
+    }
+
+    record CursorPage(int size, int count) {
+    }
+
+    record Statistics(long total, Map<String, Long> departments, Map<String, Long> byDepartment) {
+    }
+
+    record UsersPage(List<UserProfileSummary> users, CursorPage page, Long nextCursor, Statistics statistics) {
+    }
+
+    record BatchUsers(List<UserProfile> users, int count, List<String> missing) {
+    }
+
+    record DepartmentUsers(String department, List<UserProfileSummary> users, int count) {
+    }
+
+    record RoleUsers(String roleName, List<UserProfile> users, int count) {
+    }
+
+    record RecentUsers(String timeRange, List<UserProfileSummary> users, int count, CursorPage page, int total,
+                       RecentActivityIndex.Activity nextCursor) {
+    }
 }
@@ -0,0 +1,24 @@
+package com.example.userservice.controller.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * 成功响应信封
+ *
+ * 带 meta 的响应时间戳放在 meta 中，其余响应放在顶层，与原有的响应格式保持一致
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ApiResponse<T>(boolean success, String message, T data, Meta meta, Long timestamp) {
+
+    public static <T> ApiResponse<T> of(T data, Meta meta) {
+        return new ApiResponse<>(true, null, data, meta, null);
+    }
+
+    public static <T> ApiResponse<T> of(T data) {
+        return new ApiResponse<>(true, null, data, null, System.currentTimeMillis());
+    }
+
+    public static <T> ApiResponse<T> of(String message, T data) {
+        return new ApiResponse<>(true, message, data, null, System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.userservice.controller.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * 失败响应
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ErrorResponse(boolean success, String error, String message, long timestamp) {
+
+    public static ErrorResponse of(String error, String message) {
+        return new ErrorResponse(false, error, message, System.currentTimeMillis());
+    }
+
+    public static ErrorResponse of(String error) {
+        return of(error, null);
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.userservice.controller.response;
+
+import com.example.userservice.entity.UserProfile;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 响应序列化 - 每个响应类型复用同一个 ObjectWriter，直接输出字节
+ *
+ * 资料的 basic/organization 片段按资料对象缓存：本地缓存命中时拿到的是同一个资料对象，
+ * 片段直接以预编码的UTF-8字节写出；资料被修改或移出本地缓存后换成新对象，片段随之失效
+ */
+@Component
+public class JsonResponseWriter {
+
+    /**
+     * 与 userProfiles 本地缓存容量一致
+     */
+    private static final long MAX_CACHED_FRAGMENTS = 50_000;
+
+    private static final MediaType JSON_UTF8 = new MediaType(MediaType.APPLICATION_JSON, StandardCharsets.UTF_8);
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final ConcurrentMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+    /**
+     * 弱引用key按对象标识比较，资料对象被回收后条目自动清除
+     */
+    private final Cache<UserProfile, Fragments> fragments = Caffeine.newBuilder()
+            .weakKeys()
+            .maximumSize(MAX_CACHED_FRAGMENTS)
+            .build();
+
+    public ResponseEntity<byte[]> ok(Object body) {
+        return status(HttpStatus.OK, body);
+    }
+
+    public ResponseEntity<byte[]> status(HttpStatus status, Object body) {
+        return ResponseEntity.status(status).contentType(JSON_UTF8).body(write(body));
+    }
+
+    public byte[] write(Object body) {
+        try {
+            return writer(body.getClass()).writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("响应序列化失败: " + body.getClass().getSimpleName(), e);
+        }
+    }
+
+    /**
+     * 资料的 basic/organization 片段
+     */
+    public Fragments fragments(UserProfile profile) {
+        return fragments.get(profile, this::prepare);
+    }
+
+    private Fragments prepare(UserProfile profile) {
+        return new Fragments(
+                raw(new ProfileView.Basic(profile.getUserId(), profile.getUsername(), profile.getDisplayName())),
+                raw(new ProfileView.Organization(profile.getDepartment(), profile.getPosition())));
+    }
+
+    private RawValue raw(Object fragment) {
+        // SerializedString缓存UTF-8编码结果，写出时直接复制字节
+        return new RawValue(new SerializedString(new String(write(fragment), StandardCharsets.UTF_8)));
+    }
+
+    private ObjectWriter writer(Class<?> type) {
+        return writers.computeIfAbsent(type, objectMapper::writerFor);
+    }
+
+    public record Fragments(RawValue basic, RawValue organization) {
+    }
+}
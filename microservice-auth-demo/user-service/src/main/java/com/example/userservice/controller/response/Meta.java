@@ -0,0 +1,26 @@
+package com.example.userservice.controller.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * 响应元信息：数据来源、缓存key、查询语句、接口版本
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record Meta(String dataSource, String cacheKey, String query, String version, long timestamp) {
+
+    public static Meta of(String dataSource) {
+        return new Meta(dataSource, null, null, null, System.currentTimeMillis());
+    }
+
+    public Meta withCacheKey(String cacheKey) {
+        return new Meta(dataSource, cacheKey, query, version, timestamp);
+    }
+
+    public Meta withQuery(String query) {
+        return new Meta(dataSource, cacheKey, query, version, timestamp);
+    }
+
+    public Meta withVersion(String version) {
+        return new Meta(dataSource, cacheKey, query, version, timestamp);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.userservice.controller.response;
+
+import com.example.userservice.config.ProfileEventProperties;
+import com.example.userservice.service.ProfileEvent;
+import com.example.userservice.service.ProfileEventBus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 资料事件SSE输出 - 把 {@link ProfileEventBus} 的订阅转换为 text/event-stream
+ *
+ * 每个事件的 id 为事件序号、event 为事件类型、data 为JSON；
+ * 一批事件在一次写出中发送，只刷新一次；写出是阻塞的，由总线在写出线程上执行并限时，
+ * 超时后总线调用 close 结束连接
+ */
+@Component
+public class ProfileEventStream {
+
+    /**
+     * 客户端断开后的重连间隔
+     */
+    private static final long RECONNECT_MILLIS = 3000;
+
+    @Autowired
+    private ProfileEventBus profileEventBus;
+
+    @Autowired
+    private ProfileEventProperties properties;
+
+    @Autowired
+    private JsonResponseWriter responseWriter;
+
+    /**
+     * 打开一个租户的事件流
+     *
+     * @throws IllegalStateException 订阅者数量已达上限
+     */
+    public SseEmitter open(String tenantId) throws IOException {
+        SseEmitter emitter = new SseEmitter(properties.getTimeout().toMillis());
+        ProfileEventBus.Subscription subscription = profileEventBus.subscribe(tenantId, new EmitterSubscriber(emitter));
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> subscription.cancel());
+        emitter.send(SseEmitter.event().reconnectTime(RECONNECT_MILLIS).comment("connected"));
+        return emitter;
+    }
+
+    private class EmitterSubscriber implements ProfileEventBus.Subscriber {
+
+        private final SseEmitter emitter;
+
+        EmitterSubscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        @Override
+        public void deliver(List<ProfileEvent> events) throws IOException {
+            Set<ResponseBodyEmitter.DataWithMediaType> items = new LinkedHashSet<>();
+            for (ProfileEvent event : events) {
+                items.addAll(SseEmitter.event()
+                        .id(Long.toString(event.sequence()))
+                        .name(event.type().eventName())
+                        .data(new String(responseWriter.write(event), StandardCharsets.UTF_8), MediaType.APPLICATION_JSON)
+                        .build());
+            }
+            emitter.send(items);
+        }
+
+        @Override
+        public void heartbeat() throws IOException {
+            emitter.send(SseEmitter.event().comment("heartbeat"));
+        }
+
+        @Override
+        public void close() {
+            emitter.complete();
+        }
+    }
+}
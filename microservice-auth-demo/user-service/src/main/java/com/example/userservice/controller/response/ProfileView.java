@@ -0,0 +1,29 @@
+package com.example.userservice.controller.response;
+
+import com.fasterxml.jackson.databind.util.RawValue;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 增强资料接口的 data 部分
+ *
+ * basic 和 organization 是预先序列化好的JSON片段，见 {@link JsonResponseWriter#fragments}
+ */
+public record ProfileView(RawValue basic, RawValue organization, Timeline profile, Security security) {
+
+    public record Basic(String userId, String username, String displayName) {
+    }
+
+    public record Organization(String department, String position) {
+    }
+
+    public record Timeline(LocalDateTime lastLogin, LocalDateTime createdAt, LocalDateTime updatedAt,
+                           Boolean isActive) {
+    }
+
+    public record Security(Collection<? extends GrantedAuthority> authorities, Map<String, Object> sessionInfo) {
+    }
+}
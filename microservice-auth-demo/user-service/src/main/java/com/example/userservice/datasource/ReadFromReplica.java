@@ -0,0 +1,19 @@
+package com.example.userservice.datasource;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标记可以读从库的方法(或类中的全部方法)
+ *
+ * 只有带此标记且处于只读事务中的查询才路由到从库；其余只读事务(缓存回源、写后读等)仍走主库，
+ * 避免读到复制延迟期间的旧数据。适用于管理端列表、统计等可以容忍秒级延迟的查询
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ReadFromReplica {
+}
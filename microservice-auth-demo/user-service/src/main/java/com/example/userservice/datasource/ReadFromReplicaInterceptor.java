@@ -0,0 +1,34 @@
+package com.example.userservice.datasource;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+/**
+ * {@link ReadFromReplica} 的方法拦截器 - 在当前线程上标记本次调用可以读从库
+ *
+ * 排在事务拦截器之前执行，事务开始和获取连接时标记已就绪；嵌套调用结束后保留外层的标记
+ */
+public class ReadFromReplicaInterceptor implements MethodInterceptor {
+
+    private static final ThreadLocal<Boolean> REQUESTED = new ThreadLocal<>();
+
+    /**
+     * 当前线程是否处于 {@link ReadFromReplica} 方法中
+     */
+    public static boolean isRequested() {
+        return REQUESTED.get() != null;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        if (isRequested()) {
+            return invocation.proceed();
+        }
+        REQUESTED.set(Boolean.TRUE);
+        try {
+            return invocation.proceed();
+        } finally {
+            REQUESTED.remove();
+        }
+    }
+}
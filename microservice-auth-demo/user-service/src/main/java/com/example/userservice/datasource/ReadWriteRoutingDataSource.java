@@ -0,0 +1,58 @@
+package com.example.userservice.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 读写分离路由数据源
+ *
+ * 标记了 {@link ReadFromReplica} 的只读事务(@Transactional(readOnly = true))使用从库，
+ * 其余情况(读写事务、无事务、未标记的只读事务)使用主库，缓存回源和写后读不会读到复制延迟期间的旧数据；
+ * 从库未配置或复制延迟超限时回退到主库。
+ * 需要包装在 LazyConnectionDataSourceProxy 中，事务开始时只读标记才已就绪
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String PRIMARY = "primary";
+    public static final String REPLICA = "replica";
+
+    private final ReplicationLagMonitor lagMonitor;
+    private final Counter primaryRoutes;
+    private final Counter replicaRoutes;
+    private final Counter fallbackRoutes;
+
+    /**
+     * @param lagMonitor 从库延迟监控，未启用从库时为null
+     */
+    public ReadWriteRoutingDataSource(ReplicationLagMonitor lagMonitor, MeterRegistry meterRegistry) {
+        this.lagMonitor = lagMonitor;
+        this.primaryRoutes = routeCounter(meterRegistry, PRIMARY, "default");
+        this.replicaRoutes = routeCounter(meterRegistry, REPLICA, "read-from-replica");
+        this.fallbackRoutes = routeCounter(meterRegistry, PRIMARY, "replica-unavailable");
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                || !ReadFromReplicaInterceptor.isRequested()) {
+            primaryRoutes.increment();
+            return PRIMARY;
+        }
+        if (lagMonitor == null || !lagMonitor.isAvailable()) {
+            fallbackRoutes.increment();
+            return PRIMARY;
+        }
+        replicaRoutes.increment();
+        return REPLICA;
+    }
+
+    private static Counter routeCounter(MeterRegistry meterRegistry, String target, String reason) {
+        return Counter.builder("datasource.routes")
+                .tag("target", target)
+                .tag("reason", reason)
+                .description("按目标库统计的连接获取次数")
+                .register(meterRegistry);
+    }
+}
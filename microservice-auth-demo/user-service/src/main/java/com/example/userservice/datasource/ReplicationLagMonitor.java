@@ -0,0 +1,114 @@
+package com.example.userservice.datasource;
+
+import com.example.userservice.config.ReplicaDataSourceProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * 从库复制延迟监控
+ *
+ * 定期在从库上查询复制延迟，延迟超过 max-lag、复制停止或从库不可用时标记为不可用，
+ * 此期间 {@link ReadFromReplica} 查询回退到主库，恢复后自动切回
+ */
+public class ReplicationLagMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicationLagMonitor.class);
+
+    private static final String[] LAG_COLUMNS = {"Seconds_Behind_Source", "Seconds_Behind_Master"};
+
+    private final JdbcTemplate replicaJdbcTemplate;
+    private final String lagQuery;
+    private final Duration maxLag;
+
+    private volatile boolean available;
+
+    /**
+     * 最近一次检查到的延迟(秒)，未知时为-1
+     */
+    private volatile long lagSeconds = -1;
+
+    public ReplicationLagMonitor(DataSource replicaDataSource, ReplicaDataSourceProperties properties,
+                                 MeterRegistry meterRegistry) {
+        this.replicaJdbcTemplate = new JdbcTemplate(replicaDataSource);
+        this.lagQuery = properties.getLagQuery();
+        this.maxLag = properties.getMaxLag();
+
+        Gauge.builder("datasource.replica.lag", this, monitor -> monitor.lagSeconds < 0 ? Double.NaN : monitor.lagSeconds)
+                .baseUnit("seconds")
+                .description("从库复制延迟")
+                .register(meterRegistry);
+        Gauge.builder("datasource.replica.available", this, monitor -> monitor.available ? 1 : 0)
+                .description("从库是否可用于只读事务")
+                .register(meterRegistry);
+
+        check();
+    }
+
+    /**
+     * 从库当前是否可以承接只读事务
+     */
+    public boolean isAvailable() {
+        return available;
+    }
+
+    public long getLagSeconds() {
+        return lagSeconds;
+    }
+
+    @Scheduled(fixedDelayString = "#{@replicaDataSourceProperties.lagCheckInterval.toMillis()}")
+    public void check() {
+        Long lag;
+        try {
+            lag = replicaJdbcTemplate.query(lagQuery, rs -> rs.next() ? readLag(rs) : Long.valueOf(0));
+        } catch (Exception e) {
+            update(false, -1, "从库不可用: " + e.getMessage());
+            return;
+        }
+
+        if (lag == null) {
+            update(false, -1, "从库复制已停止");
+        } else if (lag > maxLag.toSeconds()) {
+            update(false, lag, "从库复制延迟" + lag + "秒，超过" + maxLag.toSeconds() + "秒");
+        } else {
+            update(true, lag, "从库复制延迟" + lag + "秒");
+        }
+    }
+
+    private void update(boolean nowAvailable, long lag, String reason) {
+        boolean wasAvailable = available;
+        available = nowAvailable;
+        lagSeconds = lag;
+        if (wasAvailable && !nowAvailable) {
+            logger.warn("只读事务切换到主库: {}", reason);
+        } else if (!wasAvailable && nowAvailable) {
+            logger.info("只读事务切换到从库: {}", reason);
+        }
+    }
+
+    /**
+     * 复制延迟列为NULL表示复制线程未运行
+     */
+    private static Long readLag(ResultSet rs) throws SQLException {
+        ResultSetMetaData metaData = rs.getMetaData();
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            String label = metaData.getColumnLabel(i);
+            for (String column : LAG_COLUMNS) {
+                if (column.equalsIgnoreCase(label)) {
+                    long value = rs.getLong(i);
+                    return rs.wasNull() ? null : value;
+                }
+            }
+        }
+        throw new SQLException("复制状态结果中没有延迟列: " + String.join("/", LAG_COLUMNS));
+    }
+}
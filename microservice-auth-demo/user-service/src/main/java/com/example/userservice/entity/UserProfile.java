@@ -3,24 +3,61 @@ package com.example.userservice.entity;
 import jakarta.persistence.*;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonFormat;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 import java.time.LocalDateTime;
 // import java.util.Set; // 不再需要Set导入，角色由Keycloak管理
 
 /**
  * 用户资料实体 - MySQL数据持久化
+ *
+ * 按租户(tenant_id)分区：user_id(Keycloak用户ID)和用户名都在租户内唯一，查询和索引都以 tenant_id 开头
+ *
+ * 启用Hibernate二级缓存时(prod profile)按主键和 (tenantId, userId)(自然键) 缓存；
+ * 绕过Hibernate的JDBC写入需要调用 UserProfileJdbcRepository#evictFromEntityCache
  */
 @Entity
-@Table(name = "user_profiles")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = UserProfile.CACHE_REGION)
+@NaturalIdCache(region = UserProfile.NATURAL_ID_CACHE_REGION)
+@Table(name = "user_profiles", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_user_profiles_tenant_user_id", columnNames = {"tenant_id", "user_id"}),
+    @UniqueConstraint(name = "uk_user_profiles_tenant_username", columnNames = {"tenant_id", "username"})
+}, indexes = {
+    // 部门用户列表、部门统计(GROUP BY tenant_id, department)
+    @Index(name = "idx_user_profiles_tenant_department_active", columnList = "tenant_id, department, is_active"),
+    // 最近活跃用户同步(跨租户): is_active = ? AND last_login >= ?
+    @Index(name = "idx_user_profiles_active_last_login", columnList = "is_active, last_login"),
+    // 租户内活跃用户按主键游标分页
+    @Index(name = "idx_user_profiles_tenant_active_id", columnList = "tenant_id, is_active, id"),
+    @Index(name = "idx_user_profiles_tenant_email", columnList = "tenant_id, email")
+})
 public class UserProfile {
     
+    public static final String CACHE_REGION = "user-profile";
+    
+    public static final String NATURAL_ID_CACHE_REGION = "user-profile-natural-id";
+    
+    /**
+     * 网关未传租户时使用的租户，也是多租户之前已有数据的租户
+     */
+    public static final String DEFAULT_TENANT = "default";
+    
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     
-    @Column(name = "user_id", unique = true, nullable = false)
+    @NaturalId
+    @Column(name = "tenant_id", nullable = false, updatable = false, length = 64,
+            columnDefinition = "varchar(64) not null default '" + DEFAULT_TENANT + "'")
+    private String tenantId = DEFAULT_TENANT;
+    
+    @NaturalId
+    @Column(name = "user_id", nullable = false)
     private String userId; // 对应Keycloak的用户ID
     
-    @Column(name = "username", unique = true, nullable = false)
+    @Column(name = "username", nullable = false)
     private String username;
     
     @Column(name = "email")
@@ -76,6 +113,9 @@ public class UserProfile {
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
     
+    public String getTenantId() { return tenantId; }
+    public void setTenantId(String tenantId) { this.tenantId = tenantId; }
+    
     public String getUserId() { return userId; }
     public void setUserId(String userId) { this.userId = userId; }
     
@@ -114,6 +154,25 @@ public class UserProfile {
     public Boolean getIsActive() { return isActive; }
     public void setIsActive(Boolean isActive) { this.isActive = isActive; }
     
+    /**
+     * 复制为独立对象，修改已缓存的共享实例前使用
+     */
+    public UserProfile copy() {
+        UserProfile copy = new UserProfile(userId, username, email);
+        copy.id = id;
+        copy.tenantId = tenantId;
+        copy.displayName = displayName;
+        copy.avatarUrl = avatarUrl;
+        copy.phone = phone;
+        copy.department = department;
+        copy.position = position;
+        copy.lastLogin = lastLogin;
+        copy.createdAt = createdAt;
+        copy.updatedAt = updatedAt;
+        copy.isActive = isActive;
+        return copy;
+    }
+    
     // 更新时自动设置更新时间
     @PreUpdate
     protected void onUpdate() {
@@ -124,6 +183,7 @@ public class UserProfile {
     public String toString() {
         return "UserProfile{" +
                 "id=" + id +
+                ", tenantId='" + tenantId + '\'' +
                 ", userId='" + userId + '\'' +
                 ", username='" + username + '\'' +
                 ", email='" + email + '\'' +
@@ -0,0 +1,25 @@
+package com.example.userservice.entity;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDateTime;
+
+/**
+ * 用户资料摘要 - 列表类接口和部门缓存使用
+ *
+ * 只包含标识、名称和组织信息；邮箱、手机、头像和审计时间只在资料详情中加载。
+ * 作为Spring Data的DTO投影使用时只查询这几列
+ */
+public record UserProfileSummary(Long id,
+                                 String userId,
+                                 String username,
+                                 String displayName,
+                                 String department,
+                                 String position,
+                                 @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime lastLogin) {
+
+    public static UserProfileSummary of(UserProfile profile) {
+        return new UserProfileSummary(profile.getId(), profile.getUserId(), profile.getUsername(),
+                profile.getDisplayName(), profile.getDepartment(), profile.getPosition(), profile.getLastLogin());
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.userservice.repository;
+
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 资料变更表(user_profile_changes)数据访问
+ *
+ * 变更由 user_profiles 上的触发器写入，覆盖本服务、其他服务和手工SQL的所有写入；
+ * 只有 last_login/updated_at 变化的更新(最后登录时间批量写回)不记录。
+ * 触发器把会话变量 @profile_change_origin 记入 origin 列，本服务的连接在建立时设置该变量(见 {@link #originInitSql})，
+ * 其他来源的写入 origin 为NULL
+ */
+@Repository
+@Timed(value = "jdbc.repository.invocations", histogram = true, percentiles = {0.5, 0.95, 0.99})
+public class ProfileChangeRepository {
+
+    static final String CREATE_TABLE_SQL =
+        "CREATE TABLE IF NOT EXISTS user_profile_changes (" +
+        "id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY, " +
+        "op CHAR(1) NOT NULL, " +
+        "profile_id BIGINT NOT NULL, " +
+        "tenant_id VARCHAR(64) NULL, " +
+        "old_user_id VARCHAR(255) NULL, new_user_id VARCHAR(255) NULL, " +
+        "old_username VARCHAR(255) NULL, new_username VARCHAR(255) NULL, " +
+        "old_department VARCHAR(255) NULL, new_department VARCHAR(255) NULL, " +
+        "old_active BOOLEAN NULL, new_active BOOLEAN NULL, " +
+        "origin VARCHAR(64) NULL, " +
+        "created_at DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3), " +
+        "KEY idx_user_profile_changes_created_at (created_at))";
+
+    static final String INSERT_TRIGGER = "trg_user_profiles_capture_insert";
+    static final String UPDATE_TRIGGER = "trg_user_profiles_capture_update";
+    static final String DELETE_TRIGGER = "trg_user_profiles_capture_delete";
+
+    static final String CREATE_INSERT_TRIGGER_SQL =
+        "CREATE TRIGGER " + INSERT_TRIGGER + " AFTER INSERT ON user_profiles FOR EACH ROW " +
+        "INSERT INTO user_profile_changes (op, profile_id, tenant_id, new_user_id, new_username, new_department, new_active, origin) " +
+        "VALUES ('I', NEW.id, NEW.tenant_id, NEW.user_id, NEW.username, NEW.department, NEW.is_active, @profile_change_origin)";
+
+    static final String CREATE_UPDATE_TRIGGER_SQL =
+        "CREATE TRIGGER " + UPDATE_TRIGGER + " AFTER UPDATE ON user_profiles FOR EACH ROW " +
+        "BEGIN " +
+        "IF NOT (OLD.user_id <=> NEW.user_id AND OLD.username <=> NEW.username AND OLD.email <=> NEW.email " +
+        "AND OLD.display_name <=> NEW.display_name AND OLD.avatar_url <=> NEW.avatar_url " +
+        "AND OLD.phone <=> NEW.phone AND OLD.department <=> NEW.department AND OLD.position <=> NEW.position " +
+        "AND OLD.is_active <=> NEW.is_active AND OLD.created_at <=> NEW.created_at) THEN " +
+        "INSERT INTO user_profile_changes (op, profile_id, tenant_id, old_user_id, new_user_id, old_username, new_username, " +
+        "old_department, new_department, old_active, new_active, origin) " +
+        "VALUES ('U', NEW.id, NEW.tenant_id, OLD.user_id, NEW.user_id, OLD.username, NEW.username, " +
+        "OLD.department, NEW.department, OLD.is_active, NEW.is_active, @profile_change_origin); " +
+        "END IF; " +
+        "END";
+
+    static final String CREATE_DELETE_TRIGGER_SQL =
+        "CREATE TRIGGER " + DELETE_TRIGGER + " AFTER DELETE ON user_profiles FOR EACH ROW " +
+        "INSERT INTO user_profile_changes (op, profile_id, tenant_id, old_user_id, old_username, old_department, old_active, origin) " +
+        "VALUES ('D', OLD.id, OLD.tenant_id, OLD.user_id, OLD.username, OLD.department, OLD.is_active, @profile_change_origin)";
+
+    private static final String TRIGGER_EXISTS_SQL =
+        "SELECT COUNT(*) FROM information_schema.TRIGGERS WHERE TRIGGER_SCHEMA = DATABASE() AND TRIGGER_NAME = ?";
+
+    private static final String COLUMN_EXISTS_SQL =
+        "SELECT COUNT(*) FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE() " +
+        "AND TABLE_NAME = 'user_profile_changes' AND COLUMN_NAME = ?";
+
+    private static final String SELECT_COLUMNS =
+        "SELECT id, op, profile_id, tenant_id, old_user_id, new_user_id, old_username, new_username, " +
+        "old_department, new_department, old_active, new_active, origin FROM user_profile_changes ";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 本服务连接的初始化语句：设置触发器记录的来源
+     */
+    public static String originInitSql(String origin) {
+        return "SET @profile_change_origin = '" + origin.replace("'", "''") + "'";
+    }
+
+    /**
+     * 创建变更表和触发器，已存在的跳过
+     *
+     * 较早创建的变更表没有 tenant_id / origin 列：补上缺少的列，并重建触发器
+     */
+    public void installSchema() {
+        jdbcTemplate.execute(CREATE_TABLE_SQL);
+        boolean added = addColumnIfAbsent("tenant_id", "VARCHAR(64) NULL AFTER profile_id");
+        added |= addColumnIfAbsent("origin", "VARCHAR(64) NULL AFTER new_active");
+        if (added) {
+            for (String trigger : List.of(INSERT_TRIGGER, UPDATE_TRIGGER, DELETE_TRIGGER)) {
+                jdbcTemplate.execute("DROP TRIGGER IF EXISTS " + trigger);
+            }
+        }
+        createTriggerIfAbsent(INSERT_TRIGGER, CREATE_INSERT_TRIGGER_SQL);
+        createTriggerIfAbsent(UPDATE_TRIGGER, CREATE_UPDATE_TRIGGER_SQL);
+        createTriggerIfAbsent(DELETE_TRIGGER, CREATE_DELETE_TRIGGER_SQL);
+    }
+
+    /**
+     * 当前最大的变更ID，没有记录时为0
+     */
+    public long findMaxId() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM user_profile_changes", Long.class);
+        return maxId == null ? 0 : maxId;
+    }
+
+    /**
+     * 按ID顺序读取 afterId 之后的变更，以及 pendingIds 中此前未出现的变更
+     */
+    public List<ProfileChange> findChanges(long afterId, Collection<Long> pendingIds, int limit) {
+        List<Object> args = new ArrayList<>(pendingIds.size() + 2);
+        StringBuilder sql = new StringBuilder(SELECT_COLUMNS).append("WHERE id > ?");
+        args.add(afterId);
+        if (!pendingIds.isEmpty()) {
+            sql.append(" OR id IN (").append(String.join(", ", Collections.nCopies(pendingIds.size(), "?"))).append(')');
+            args.addAll(pendingIds);
+        }
+        sql.append(" ORDER BY id LIMIT ?");
+        args.add(limit);
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> mapChange(rs), args.toArray());
+    }
+
+    /**
+     * 删除超过保留时间的变更，按数据库时间计算，避免各实例时钟偏差
+     *
+     * @return 删除的行数
+     */
+    public int deleteOlderThan(long retentionSeconds, int limit) {
+        return jdbcTemplate.update(
+            "DELETE FROM user_profile_changes WHERE created_at < NOW(3) - INTERVAL ? SECOND LIMIT ?",
+            retentionSeconds, limit);
+    }
+
+    private boolean addColumnIfAbsent(String column, String definition) {
+        Integer existing = jdbcTemplate.queryForObject(COLUMN_EXISTS_SQL, Integer.class, column);
+        if (existing != null && existing > 0) {
+            return false;
+        }
+        jdbcTemplate.execute("ALTER TABLE user_profile_changes ADD COLUMN " + column + " " + definition);
+        return true;
+    }
+
+    private void createTriggerIfAbsent(String name, String sql) {
+        Integer existing = jdbcTemplate.queryForObject(TRIGGER_EXISTS_SQL, Integer.class, name);
+        if (existing == null || existing == 0) {
+            jdbcTemplate.execute(sql);
+        }
+    }
+
+    private static ProfileChange mapChange(ResultSet rs) throws SQLException {
+        return new ProfileChange(
+            rs.getLong("id"),
+            rs.getString("op").charAt(0),
+            rs.getLong("profile_id"),
+            rs.getString("tenant_id"),
+            rs.getString("old_user_id"),
+            rs.getString("new_user_id"),
+            rs.getString("old_username"),
+            rs.getString("new_username"),
+            rs.getString("old_department"),
+            rs.getString("new_department"),
+            getBoolean(rs, "old_active"),
+            getBoolean(rs, "new_active"),
+            rs.getString("origin"));
+    }
+
+    private static Boolean getBoolean(ResultSet rs, String column) throws SQLException {
+        boolean value = rs.getBoolean(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    /**
+     * 一条资料变更，新增时 old* 为null，删除时 new* 为null；租户不可修改，只有一列；
+     * origin 为写入连接设置的来源，其他服务或手工SQL的写入为null
+     */
+    public record ProfileChange(long id, char op, long profileId, String tenantId,
+                                String oldUserId, String newUserId,
+                                String oldUsername, String newUsername,
+                                String oldDepartment, String newDepartment,
+                                Boolean oldActive, Boolean newActive, String origin) {
+
+        public boolean wasActive() {
+            return Boolean.TRUE.equals(oldActive);
+        }
+
+        public boolean isActive() {
+            return Boolean.TRUE.equals(newActive);
+        }
+    }
+}
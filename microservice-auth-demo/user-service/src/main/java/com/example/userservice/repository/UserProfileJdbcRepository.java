@@ -0,0 +1,203 @@
+package com.example.userservice.repository;
+
+import com.example.userservice.cache.TenantKeys;
+import com.example.userservice.entity.UserProfile;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 用户资料JDBC数据访问 - 用于JPA不擅长的批量写入和流式读取
+ */
+@Repository
+@Timed(value = "jdbc.repository.invocations", histogram = true, percentiles = {0.5, 0.95, 0.99})
+public class UserProfileJdbcRepository {
+
+    private static final String UPDATE_LAST_LOGIN_SQL =
+        "UPDATE user_profiles SET last_login = ?, updated_at = ? WHERE tenant_id = ? AND user_id = ?";
+
+    private static final String INSERT_IF_ABSENT_SQL =
+        "INSERT IGNORE INTO user_profiles (tenant_id, user_id, username, display_name, department, position, " +
+        "is_active, last_login, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String SELECT_ACTIVE_SQL =
+        "SELECT id, tenant_id, user_id, username, email, display_name, avatar_url, phone, department, position, " +
+        "last_login, created_at, updated_at, is_active FROM user_profiles " +
+        "WHERE tenant_id = ? AND is_active = true ORDER BY id";
+
+    private static final String SELECT_IDS_SQL = "SELECT id FROM user_profiles WHERE (tenant_id, user_id) IN (%s)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * 导出专用连接池上的JdbcTemplate，见 DataSourceConfig#exportDataSource；
+     * 未定义导出连接池时(如测试切片)为null，使用默认数据源
+     */
+    private JdbcTemplate exportJdbcTemplate;
+
+    @Autowired
+    void setExportDataSource(@Qualifier("exportDataSource") ObjectProvider<DataSource> exportDataSource) {
+        DataSource dataSource = exportDataSource.getIfAvailable();
+        this.exportJdbcTemplate = dataSource == null ? null : new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * 批量更新最后登录时间
+     *
+     * 配合连接参数 rewriteBatchedStatements=true，驱动会把一批语句合并成一次网络往返
+     *
+     * @param lastLogins 租户key({租户}:{userId}) -> 最后登录时间
+     */
+    public void batchUpdateLastLogin(Map<String, LocalDateTime> lastLogins, int batchSize) {
+        List<Map.Entry<String, LocalDateTime>> entries = new ArrayList<>(lastLogins.entrySet());
+        jdbcTemplate.batchUpdate(UPDATE_LAST_LOGIN_SQL, entries, batchSize, (ps, entry) -> {
+            Timestamp loginTime = Timestamp.valueOf(entry.getValue());
+            ps.setTimestamp(1, loginTime);
+            ps.setTimestamp(2, loginTime);
+            ps.setString(3, TenantKeys.tenantOf(entry.getKey()));
+            ps.setString(4, TenantKeys.keyOf(entry.getKey()));
+        });
+    }
+
+    /**
+     * 插入资料，租户内 user_id 或 username 已存在的行保持不变，重复执行是幂等的
+     *
+     * 逐行执行以取得每行的影响行数(插入为1，已存在为0)：rewriteBatchedStatements 会把批量改写成多值INSERT，
+     * 只返回 SUCCESS_NO_INFO；ON DUPLICATE KEY UPDATE 在驱动默认的 found rows 模式下已存在的行也返回1，
+     * 所以使用 INSERT IGNORE
+     *
+     * @return 本次实际插入的资料(已填入数据库生成的主键)，其他实例已插入或用户名冲突的行不在其中
+     */
+    public List<UserProfile> insertIfAbsent(List<UserProfile> profiles) {
+        return jdbcTemplate.execute((Connection connection) -> {
+            List<UserProfile> inserted = new ArrayList<>();
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_IF_ABSENT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                for (UserProfile profile : profiles) {
+                    ps.setString(1, profile.getTenantId());
+                    ps.setString(2, profile.getUserId());
+                    ps.setString(3, profile.getUsername());
+                    ps.setString(4, profile.getDisplayName());
+                    ps.setString(5, profile.getDepartment());
+                    ps.setString(6, profile.getPosition());
+                    ps.setBoolean(7, Boolean.TRUE.equals(profile.getIsActive()));
+                    ps.setTimestamp(8, profile.getLastLogin() == null ? null : Timestamp.valueOf(profile.getLastLogin()));
+                    ps.setTimestamp(9, Timestamp.valueOf(profile.getCreatedAt()));
+                    ps.setTimestamp(10, Timestamp.valueOf(profile.getUpdatedAt()));
+                    if (ps.executeUpdate() != 1) {
+                        continue;
+                    }
+                    // 入参可能已返回给读请求，在副本上填入主键
+                    UserProfile created = profile.copy();
+                    try (ResultSet keys = ps.getGeneratedKeys()) {
+                        if (keys.next()) {
+                            created.setId(keys.getLong(1));
+                        }
+                    }
+                    inserted.add(created);
+                }
+            }
+            return inserted;
+        });
+    }
+
+    /**
+     * 从Hibernate二级缓存中移除指定用户的资料，在本类的批量更新提交后调用
+     *
+     * 二级缓存按主键存储实体，先分批查出主键再逐个移除；未启用二级缓存时直接返回
+     *
+     * @param tenantKeys 租户key({租户}:{userId})
+     */
+    public void evictFromEntityCache(Collection<String> tenantKeys, int batchSize) {
+        if (tenantKeys.isEmpty() || !isEntityCacheEnabled()) {
+            return;
+        }
+
+        List<String> pending = new ArrayList<>(tenantKeys);
+        for (int from = 0; from < pending.size(); from += batchSize) {
+            List<String> chunk = pending.subList(from, Math.min(from + batchSize, pending.size()));
+            String sql = String.format(SELECT_IDS_SQL, String.join(", ", Collections.nCopies(chunk.size(), "(?, ?)")));
+            List<Object> args = new ArrayList<>(chunk.size() * 2);
+            chunk.forEach(key -> {
+                args.add(TenantKeys.tenantOf(key));
+                args.add(TenantKeys.keyOf(key));
+            });
+            evictEntityData(jdbcTemplate.queryForList(sql, Long.class, args.toArray()));
+        }
+    }
+
+    /**
+     * 按主键从Hibernate二级缓存中移除资料；未启用二级缓存时不做任何事
+     */
+    public void evictEntityData(Collection<Long> ids) {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        ids.forEach(id -> sessionFactory.getCache().evictEntityData(UserProfile.class, id));
+    }
+
+    private boolean isEntityCacheEnabled() {
+        return entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+            .getCache().getRegion(UserProfile.CACHE_REGION) != null;
+    }
+
+    /**
+     * 以只进游标逐行读取租户内所有活跃用户，不在内存中保留结果集
+     *
+     * 使用导出连接池(连接参数 useCursorFetch=true)，MySQL驱动每次只拉取 fetchSize 行
+     */
+    public void streamActiveProfiles(String tenantId, int fetchSize, Consumer<UserProfile> consumer) {
+        (exportJdbcTemplate != null ? exportJdbcTemplate : jdbcTemplate).query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SELECT_ACTIVE_SQL,
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setString(1, tenantId);
+            statement.setFetchSize(fetchSize);
+            return statement;
+        }, (RowCallbackHandler) rs -> consumer.accept(mapProfile(rs)));
+    }
+
+    private static UserProfile mapProfile(ResultSet rs) throws SQLException {
+        UserProfile profile = new UserProfile();
+        profile.setId(rs.getLong("id"));
+        profile.setTenantId(rs.getString("tenant_id"));
+        profile.setUserId(rs.getString("user_id"));
+        profile.setUsername(rs.getString("username"));
+        profile.setEmail(rs.getString("email"));
+        profile.setDisplayName(rs.getString("display_name"));
+        profile.setAvatarUrl(rs.getString("avatar_url"));
+        profile.setPhone(rs.getString("phone"));
+        profile.setDepartment(rs.getString("department"));
+        profile.setPosition(rs.getString("position"));
+        profile.setLastLogin(toLocalDateTime(rs.getTimestamp("last_login")));
+        profile.setCreatedAt(toLocalDateTime(rs.getTimestamp("created_at")));
+        profile.setUpdatedAt(toLocalDateTime(rs.getTimestamp("updated_at")));
+        profile.setIsActive(rs.getBoolean("is_active"));
+        return profile;
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toLocalDateTime();
+    }
+}
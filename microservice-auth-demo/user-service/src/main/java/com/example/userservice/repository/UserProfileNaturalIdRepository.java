@@ -0,0 +1,16 @@
+package com.example.userservice.repository;
+
+import com.example.userservice.entity.UserProfile;
+
+import java.util.Optional;
+
+/**
+ * 按自然键(tenantId, userId)加载用户资料
+ */
+public interface UserProfileNaturalIdRepository {
+
+    /**
+     * 与 findByTenantIdAndUserId 结果相同，但启用二级缓存时优先从自然键缓存和实体缓存读取，命中时不访问数据库
+     */
+    Optional<UserProfile> loadByTenantIdAndUserId(String tenantId, String userId);
+}
@@ -0,0 +1,31 @@
+package com.example.userservice.repository;
+
+import com.example.userservice.entity.UserProfile;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+/**
+ * UserProfileNaturalIdRepository 实现，由Spring Data合并到 UserProfileRepository
+ */
+class UserProfileNaturalIdRepositoryImpl implements UserProfileNaturalIdRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * 与Spring Data生成的查询方法一样在只读事务中执行，事务外调用时Session需要在方法内保持打开
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<UserProfile> loadByTenantIdAndUserId(String tenantId, String userId) {
+        return entityManager.unwrap(Session.class)
+                .byNaturalId(UserProfile.class)
+                .using("tenantId", tenantId)
+                .using("userId", userId)
+                .loadOptional();
+    }
+}
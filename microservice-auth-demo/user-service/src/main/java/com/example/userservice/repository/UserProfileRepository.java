@@ -1,6 +1,8 @@
 package com.example.userservice.repository;
 
 import com.example.userservice.entity.UserProfile;
+import com.example.userservice.entity.UserProfileSummary;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -8,39 +10,48 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 /**
  * 用户资料Repository - MySQL数据访问层
+ *
+ * 业务查询都带租户条件，user_id、用户名在租户内唯一；不带租户的查询只用于跨租户的后台任务。
+ * 列表查询返回 {@link UserProfileSummary} 投影，只查询摘要列
  */
 @Repository
-public interface UserProfileRepository extends JpaRepository<UserProfile, Long> {
+public interface UserProfileRepository extends JpaRepository<UserProfile, Long>, UserProfileNaturalIdRepository {
     
     /**
-     * 根据Keycloak用户ID查询
+     * 根据Keycloak用户ID查询租户内的资料
      */
-    Optional<UserProfile> findByUserId(String userId);
+    Optional<UserProfile> findByTenantIdAndUserId(String tenantId, String userId);
     
     /**
-     * 根据用户名查询
+     * 根据多个Keycloak用户ID查询租户内的资料
      */
-    Optional<UserProfile> findByUsername(String username);
+    List<UserProfile> findByTenantIdAndUserIdIn(String tenantId, Collection<String> userIds);
     
     /**
-     * 根据邮箱查询
+     * 根据用户名查询(用户名在租户内唯一)
      */
-    Optional<UserProfile> findByEmail(String email);
+    Optional<UserProfile> findByTenantIdAndUsername(String tenantId, String username);
     
     /**
-     * 检查用户名是否存在
+     * 根据邮箱查询租户内的资料
      */
-    boolean existsByUsername(String username);
+    Optional<UserProfile> findByTenantIdAndEmail(String tenantId, String email);
     
     /**
-     * 检查用户ID是否存在
+     * 检查租户内用户名是否存在
      */
-    boolean existsByUserId(String userId);
+    boolean existsByTenantIdAndUsername(String tenantId, String username);
+    
+    /**
+     * 检查租户内用户ID是否存在
+     */
+    boolean existsByTenantIdAndUserId(String tenantId, String userId);
     
     /**
      * 查询活跃用户
@@ -48,9 +59,15 @@ public interface UserProfileRepository extends JpaRepository<UserProfile, Long>
     List<UserProfile> findByIsActiveTrue();
     
     /**
-     * 根据部门查询用户
+     * 按主键游标分页查询租户内活跃用户的摘要 (keyset分页，避免OFFSET扫描)
+     */
+    List<UserProfileSummary> findSummariesByTenantIdAndIsActiveTrueAndIdGreaterThanOrderByIdAsc(
+            String tenantId, Long afterId, Pageable pageable);
+    
+    /**
+     * 根据部门查询租户内活跃用户的摘要
      */
-    List<UserProfile> findByDepartmentAndIsActiveTrue(String department);
+    List<UserProfileSummary> findSummariesByTenantIdAndDepartmentAndIsActiveTrue(String tenantId, String department);
     
     /**
      * 根据角色查询用户
@@ -62,23 +79,26 @@ public interface UserProfileRepository extends JpaRepository<UserProfile, Long>
     }
     
     /**
-     * 查询最近登录的用户
+     * 查询最近登录的用户(跨租户，用于同步内存索引)
      */
     @Query("SELECT up FROM UserProfile up WHERE up.lastLogin >= :since AND up.isActive = true ORDER BY up.lastLogin DESC")
     List<UserProfile> findRecentlyActiveUsers(@Param("since") LocalDateTime since);
     
     /**
-     * 统计各部门用户数量
+     * 统计各租户各部门的活跃用户数量，每行为 [租户, 部门, 数量]
      */
-    @Query("SELECT up.department, COUNT(up) FROM UserProfile up WHERE up.isActive = true GROUP BY up.department")
+    @Query("SELECT up.tenantId, up.department, COUNT(up) FROM UserProfile up WHERE up.isActive = true " +
+           "GROUP BY up.tenantId, up.department")
     List<Object[]> countUsersByDepartment();
     
     /**
      * 更新最后登录时间
      */
     @Modifying
-    @Query("UPDATE UserProfile up SET up.lastLogin = :loginTime, up.updatedAt = :updateTime WHERE up.userId = :userId")
-    void updateLastLogin(@Param("userId") String userId, 
+    @Query("UPDATE UserProfile up SET up.lastLogin = :loginTime, up.updatedAt = :updateTime " +
+           "WHERE up.tenantId = :tenantId AND up.userId = :userId")
+    void updateLastLogin(@Param("tenantId") String tenantId,
+                        @Param("userId") String userId, 
                         @Param("loginTime") LocalDateTime loginTime,
                         @Param("updateTime") LocalDateTime updateTime);
 }
@@ -0,0 +1,250 @@
+package com.example.userservice.service;
+
+import com.example.userservice.repository.UserProfileRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 部门活跃用户数 - 内存增量维护，按租户分别计数
+ *
+ * 资料新增/修改/停用/删除提交后更新计数，读取不访问数据库；
+ * 启用资料变更捕获后改由变更流更新(覆盖其他实例和直接写库的修改)，本实例写入不再单独计数；
+ * 定期与数据库 GROUP BY 结果对账，修正并发对账等造成的偏差；对账查询不阻塞增量更新，
+ * 查询期间到达的增量另外按部门记录，替换计数时叠加到查询结果上，不会丢失；
+ * 查询开始前已提交、增量在查询期间才到达的变更会多计一次，由下一次对账修正；
+ * 计数的每次变化(包括对账修正)都作为 department-count 事件发布到 {@link ProfileEventBus}
+ */
+@Component
+public class DepartmentStatistics {
+
+    private static final Logger logger = LoggerFactory.getLogger(DepartmentStatistics.class);
+
+    /**
+     * 未分配部门的统计key，与原统计接口保持一致
+     */
+    public static final String UNASSIGNED = "未分配";
+
+    @Autowired
+    private UserProfileRepository userProfileRepository;
+
+    @Autowired
+    private ProfileEventBus profileEventBus;
+
+    /**
+     * 租户 -> 部门 -> 活跃用户数
+     */
+    private volatile ConcurrentMap<String, ConcurrentMap<String, AtomicLong>> counts = new ConcurrentHashMap<>();
+
+    /**
+     * 对账查询期间到达的增量：租户 -> 部门 -> 变化量，未在对账时为null
+     */
+    private ConcurrentMap<String, ConcurrentMap<String, AtomicLong>> reconcileDeltas;
+
+    /**
+     * 增量更新持有读锁(互不阻塞)；对账只在开始记录增量和替换计数时短暂持有写锁，查询数据库时不持有
+     */
+    private final ReadWriteLock reconcileLock = new ReentrantReadWriteLock();
+
+    /**
+     * 计数是否由资料变更捕获驱动
+     */
+    private volatile boolean captureDriven;
+
+    /**
+     * 租户内所有部门的计数快照
+     */
+    public Map<String, Long> snapshot(String tenantId) {
+        return snapshot(counts.getOrDefault(tenantId, new ConcurrentHashMap<>()));
+    }
+
+    /**
+     * 租户内单个部门的活跃用户数
+     */
+    public long count(String tenantId, String department) {
+        Map<String, AtomicLong> departments = counts.get(tenantId);
+        AtomicLong count = departments == null ? null : departments.get(key(department));
+        return count == null ? 0 : Math.max(0, count.get());
+    }
+
+    /**
+     * 记录一次资料变更，事务提交后生效
+     *
+     * @param tenantId      资料所属租户
+     * @param oldDepartment 变更前部门，新增时为null
+     * @param oldActive     变更前是否活跃，新增时为false
+     * @param newDepartment 变更后部门，删除时为null
+     * @param newActive     变更后是否活跃，删除时为false
+     */
+    public void recordChange(String tenantId, String oldDepartment, boolean oldActive,
+                             String newDepartment, boolean newActive) {
+        if (captureDriven) {
+            return;
+        }
+        if (oldActive == newActive && (!oldActive || Objects.equals(key(oldDepartment), key(newDepartment)))) {
+            return;
+        }
+        Runnable apply = () -> applyCapturedChange(tenantId, oldDepartment, oldActive, newDepartment, newActive);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply.run();
+                }
+            });
+        } else {
+            apply.run();
+        }
+    }
+
+    /**
+     * 改由资料变更捕获更新计数，变更消费启动后调用
+     */
+    public void useCapturedChanges() {
+        captureDriven = true;
+    }
+
+    /**
+     * 应用一条捕获到的资料变更，参数含义同 {@link #recordChange}
+     */
+    public void applyCapturedChange(String tenantId, String oldDepartment, boolean oldActive,
+                                    String newDepartment, boolean newActive) {
+        if (oldActive && newActive && Objects.equals(key(oldDepartment), key(newDepartment))) {
+            return;
+        }
+        if (oldActive) {
+            increment(tenantId, oldDepartment, -1);
+        }
+        if (newActive) {
+            increment(tenantId, newDepartment, 1);
+        }
+    }
+
+    /**
+     * 启动后加载初始计数
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        reconcile();
+    }
+
+    /**
+     * 定期与数据库对账
+     */
+    @Scheduled(fixedDelayString = "${user-service.department-stats.reconcile-interval:PT5M}",
+               initialDelayString = "${user-service.department-stats.reconcile-interval:PT5M}")
+    public synchronized void reconcile() {
+        reconcileLock.writeLock().lock();
+        try {
+            reconcileDeltas = new ConcurrentHashMap<>();
+        } finally {
+            reconcileLock.writeLock().unlock();
+        }
+
+        List<Object[]> results;
+        try {
+            results = userProfileRepository.countUsersByDepartment();
+        } catch (Exception e) {
+            logger.warn("部门统计对账失败: {}", e.getMessage());
+            results = null;
+        }
+
+        ConcurrentMap<String, ConcurrentMap<String, AtomicLong>> previous;
+        ConcurrentMap<String, ConcurrentMap<String, AtomicLong>> fresh = new ConcurrentHashMap<>();
+        reconcileLock.writeLock().lock();
+        try {
+            if (results == null) {
+                reconcileDeltas = null;
+                return;
+            }
+            for (Object[] result : results) {
+                fresh.computeIfAbsent((String) result[0], tenant -> new ConcurrentHashMap<>())
+                    .put(key((String) result[1]), new AtomicLong((Long) result[2]));
+            }
+            reconcileDeltas.forEach((tenantId, departments) -> departments.forEach((department, delta) ->
+                add(fresh, tenantId, department, delta.get())));
+            reconcileDeltas = null;
+            previous = counts;
+            counts = fresh;
+        } finally {
+            reconcileLock.writeLock().unlock();
+        }
+
+        Set<String> tenants = new HashSet<>(previous.keySet());
+        tenants.addAll(fresh.keySet());
+        for (String tenantId : tenants) {
+            Map<String, Long> before = snapshot(previous.getOrDefault(tenantId, new ConcurrentHashMap<>()));
+            Map<String, Long> after = snapshot(fresh.getOrDefault(tenantId, new ConcurrentHashMap<>()));
+            if (!before.equals(after)) {
+                logger.info("部门统计对账修正: 租户{}, {} -> {}", tenantId, before, after);
+                publishCorrections(tenantId, before, after);
+            }
+        }
+    }
+
+    private void increment(String tenantId, String department, long delta) {
+        long count;
+        reconcileLock.readLock().lock();
+        try {
+            count = add(counts, tenantId, key(department), delta);
+            if (reconcileDeltas != null) {
+                add(reconcileDeltas, tenantId, key(department), delta);
+            }
+        } finally {
+            reconcileLock.readLock().unlock();
+        }
+        profileEventBus.publish(ProfileEvent.departmentCount(tenantId, key(department), delta, Math.max(0, count)));
+    }
+
+    private static long add(ConcurrentMap<String, ConcurrentMap<String, AtomicLong>> target,
+                            String tenantId, String department, long delta) {
+        return target.computeIfAbsent(tenantId, tenant -> new ConcurrentHashMap<>())
+            .computeIfAbsent(department, k -> new AtomicLong()).addAndGet(delta);
+    }
+
+    private void publishCorrections(String tenantId, Map<String, Long> before, Map<String, Long> after) {
+        Set<String> departments = new HashSet<>(before.keySet());
+        departments.addAll(after.keySet());
+        for (String department : departments) {
+            long count = after.getOrDefault(department, 0L);
+            long delta = count - before.getOrDefault(department, 0L);
+            if (delta != 0) {
+                profileEventBus.publish(ProfileEvent.departmentCount(tenantId, department, delta, count));
+            }
+        }
+    }
+
+    private static Map<String, Long> snapshot(Map<String, AtomicLong> departments) {
+        Map<String, Long> stats = new HashMap<>();
+        departments.forEach((department, count) -> {
+            long value = count.get();
+            if (value > 0) {
+                stats.put(department, value);
+            }
+        });
+        return stats;
+    }
+
+    private static String key(String department) {
+        return department == null ? UNASSIGNED : department;
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.userservice.service;
+
+import com.example.userservice.cache.ProfileCacheWriter;
+import com.example.userservice.cache.TenantKeys;
+import com.example.userservice.config.LastLoginProperties;
+import com.example.userservice.repository.UserProfileJdbcRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 最后访问时间写回缓冲 (write-behind)
+ *
+ * 读请求只把访问时间记录到内存，同一用户多次访问只保留最新值；
+ * 以下任一条件满足时，用一个JDBC批次写入MySQL，并在提交后清除缓存中这些用户的资料：
+ * 1. 到达刷新间隔 flush-interval
+ * 2. 缓冲用户数达到 max-buffer-size
+ * 3. 最早一条未落库记录超过 max-loss-window
+ */
+@Component
+public class LastLoginWriteBehind {
+
+    private static final Logger logger = LoggerFactory.getLogger(LastLoginWriteBehind.class);
+
+    /**
+     * 租户key({租户}:{userId}) -> 最后访问时间
+     */
+    private final ConcurrentMap<String, LocalDateTime> pending = new ConcurrentHashMap<>();
+
+    /**
+     * 缓冲中最早一条记录的写入时间(毫秒)，0表示缓冲为空
+     */
+    private final AtomicLong oldestPendingAt = new AtomicLong();
+
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    private final ExecutorService flushExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "last-login-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    private UserProfileJdbcRepository userProfileJdbcRepository;
+
+    @Autowired
+    private ProfileCacheWriter profileCacheWriter;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private LastLoginProperties properties;
+
+    /**
+     * 记录一次访问，只写内存
+     */
+    public void record(String tenantId, String userId, LocalDateTime loginTime) {
+        pending.merge(TenantKeys.of(tenantId, userId), loginTime, (oldTime, newTime) -> newTime.isAfter(oldTime) ? newTime : oldTime);
+        long now = System.currentTimeMillis();
+        oldestPendingAt.compareAndSet(0, now);
+
+        if (pending.size() >= properties.getMaxBufferSize()
+                || now - oldestPendingAt.get() >= properties.getMaxLossWindow().toMillis()) {
+            requestFlush();
+        }
+    }
+
+    /**
+     * 待写入的用户数
+     */
+    public int pendingSize() {
+        return pending.size();
+    }
+
+    /**
+     * 定时刷新到数据库
+     */
+    @Scheduled(fixedDelayString = "#{@lastLoginProperties.flushInterval.toMillis()}")
+    public void scheduledFlush() {
+        flush();
+    }
+
+    /**
+     * 停机前把缓冲中的数据写回
+     */
+    @PreDestroy
+    public void shutdown() {
+        flushExecutor.shutdown();
+        flush();
+    }
+
+    /**
+     * 在后台线程触发一次刷新，已有待执行的刷新时不重复提交
+     */
+    private void requestFlush() {
+        if (flushRequested.compareAndSet(false, true)) {
+            flushExecutor.execute(() -> {
+                flushRequested.set(false);
+                flush();
+            });
+        }
+    }
+
+    synchronized void flush() {
+        oldestPendingAt.set(0);
+        Map<String, LocalDateTime> batch = drain();
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                userProfileJdbcRepository.batchUpdateLastLogin(batch, properties.getBatchSize()));
+        } catch (Exception e) {
+            requeue(batch);
+            logger.warn("批量更新最后登录时间失败，{}条记录放回缓冲: {}", batch.size(), e.getMessage());
+            return;
+        }
+
+        profileCacheWriter.evictLastLogin(batch.keySet());
+        try {
+            userProfileJdbcRepository.evictFromEntityCache(batch.keySet(), properties.getBatchSize());
+        } catch (Exception e) {
+            logger.warn("清除Hibernate二级缓存失败，{}条资料可能在缓存过期前返回旧的最后登录时间: {}", batch.size(), e.getMessage());
+        }
+        logger.debug("批量更新最后登录时间: {}条", batch.size());
+    }
+
+    /**
+     * 取出当前所有待写入记录；只有值未被并发更新时才移除，保证新值不会丢失
+     */
+    private Map<String, LocalDateTime> drain() {
+        Map<String, LocalDateTime> batch = new HashMap<>();
+        for (Map.Entry<String, LocalDateTime> entry : pending.entrySet()) {
+            if (pending.remove(entry.getKey(), entry.getValue())) {
+                batch.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * 写入失败时放回缓冲，缓冲已满的部分直接丢弃，避免数据库不可用时内存无限增长
+     */
+    private void requeue(Map<String, LocalDateTime> batch) {
+        int dropped = 0;
+        for (Map.Entry<String, LocalDateTime> entry : batch.entrySet()) {
+            if (pending.size() >= properties.getMaxBufferSize() && !pending.containsKey(entry.getKey())) {
+                dropped++;
+                continue;
+            }
+            pending.merge(entry.getKey(), entry.getValue(),
+                (oldTime, newTime) -> newTime.isAfter(oldTime) ? newTime : oldTime);
+        }
+        oldestPendingAt.compareAndSet(0, System.currentTimeMillis());
+        if (dropped > 0) {
+            logger.warn("最后登录时间缓冲已满，丢弃{}条记录", dropped);
+        }
+    }
+}
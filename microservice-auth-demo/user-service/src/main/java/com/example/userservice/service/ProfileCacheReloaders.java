@@ -0,0 +1,34 @@
+package com.example.userservice.service;
+
+import com.example.userservice.cache.CacheNames;
+import com.example.userservice.cache.TenantKeys;
+import com.example.userservice.cache.TwoLevelCacheManager;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * 资料缓存的后台重新加载方法
+ *
+ * 提前刷新和旧值重新加载在缓存刷新线程中执行，通过 UserProfileService 的代理调用不带缓存注解的加载方法，
+ * 每次刷新都有自己的只读事务；缓存key为 {租户}:{key}，按方法参数(租户, key)拆开
+ */
+@Component
+public class ProfileCacheReloaders {
+
+    @Autowired
+    private UserProfileService userProfileService;
+
+    @Autowired
+    private TwoLevelCacheManager cacheManager;
+
+    @PostConstruct
+    public void register() {
+        cacheManager.registerReloader(CacheNames.USER_PROFILES, key ->
+            userProfileService.reloadUserProfile(TenantKeys.tenantOf(key), TenantKeys.keyOf(key)));
+        cacheManager.registerReloader(CacheNames.USER_PROFILES_BY_USERNAME, key ->
+            userProfileService.reloadUserProfileByUsername(TenantKeys.tenantOf(key), TenantKeys.keyOf(key)));
+        cacheManager.registerReloader(CacheNames.DEPARTMENT_USERS, key ->
+            userProfileService.reloadUsersByDepartment(TenantKeys.tenantOf(key), TenantKeys.keyOf(key)));
+    }
+}
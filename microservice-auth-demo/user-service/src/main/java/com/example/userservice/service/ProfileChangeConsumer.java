@@ -0,0 +1,213 @@
+package com.example.userservice.service;
+
+import com.example.userservice.cache.CacheNames;
+import com.example.userservice.cache.ProfileCacheWriter;
+import com.example.userservice.cache.TenantKeys;
+import com.example.userservice.config.ChangeCaptureProperties;
+import com.example.userservice.entity.UserProfile;
+import com.example.userservice.repository.ProfileChangeRepository;
+import com.example.userservice.repository.ProfileChangeRepository.ProfileChange;
+import com.example.userservice.repository.UserProfileJdbcRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 资料变更消费 - 轮询 user_profile_changes，按批清理受影响的缓存
+ *
+ * 变更由触发器在写入事务中记录，直接写库或其他服务的修改同样会被捕获。
+ * 每个实例独立消费全部变更(游标保存在内存中，从启动时的最大ID开始)，各自清理：
+ * Redis中的 userProfiles / userProfilesByUsername / departmentUsers、本实例L1、
+ * Hibernate二级缓存、部门统计计数和最近活跃索引，并把变更发布为资料事件。Redis删除是幂等的，多个实例重复执行无副作用。
+ * 本服务自己的写入(origin 为本服务)已写穿透Redis并通知各实例清理L1，不再删除缓存key，其余处理照常
+ */
+@Component
+public class ProfileChangeConsumer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProfileChangeConsumer.class);
+
+    private static final int CLEANUP_BATCH = 10000;
+
+    @Autowired
+    private ChangeCaptureProperties properties;
+
+    @Autowired
+    private ProfileChangeRepository profileChangeRepository;
+
+    @Autowired
+    private UserProfileJdbcRepository userProfileJdbcRepository;
+
+    @Autowired
+    private ProfileCacheWriter profileCacheWriter;
+
+    @Autowired
+    private DepartmentStatistics departmentStatistics;
+
+    @Autowired
+    private RecentActivityIndex recentActivityIndex;
+
+    @Autowired
+    private ProfileEventBus profileEventBus;
+
+    private volatile boolean started;
+
+    /**
+     * 已处理的最大变更ID
+     */
+    private long lastId;
+
+    /**
+     * 小于 lastId 但尚未出现的变更ID -> 发现时间
+     */
+    private final TreeMap<Long, Long> gaps = new TreeMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!properties.isEnabled()) {
+            logger.info("资料变更捕获未启用");
+            return;
+        }
+        try {
+            if (properties.isInstallSchema()) {
+                profileChangeRepository.installSchema();
+            }
+            lastId = profileChangeRepository.findMaxId();
+        } catch (Exception e) {
+            logger.warn("资料变更捕获启动失败，直接写库的修改只能等待缓存过期: {}", e.getMessage());
+            return;
+        }
+        departmentStatistics.useCapturedChanges();
+        profileEventBus.useCapturedChanges();
+        started = true;
+        logger.info("资料变更捕获已启动，起始变更ID: {}", lastId);
+    }
+
+    @Scheduled(fixedDelayString = "${user-service.change-capture.poll-interval:PT1S}")
+    public synchronized void poll() {
+        if (!started) {
+            return;
+        }
+        try {
+            List<ProfileChange> changes;
+            do {
+                changes = profileChangeRepository.findChanges(lastId, new ArrayList<>(gaps.keySet()), properties.getBatchSize());
+                if (!changes.isEmpty()) {
+                    apply(changes);
+                }
+            } while (changes.size() == properties.getBatchSize());
+        } catch (Exception e) {
+            // 游标未前进，下次轮询重试同一批
+            logger.warn("处理资料变更失败: {}", e.getMessage());
+        }
+        expireGaps(System.currentTimeMillis());
+    }
+
+    /**
+     * 删除超过保留时间的变更记录
+     */
+    @Scheduled(fixedDelayString = "${user-service.change-capture.cleanup-interval:PT10M}",
+               initialDelayString = "${user-service.change-capture.cleanup-interval:PT10M}")
+    public void cleanup() {
+        if (!started) {
+            return;
+        }
+        try {
+            int deleted;
+            do {
+                deleted = profileChangeRepository.deleteOlderThan(properties.getRetention().toSeconds(), CLEANUP_BATCH);
+            } while (deleted == CLEANUP_BATCH);
+        } catch (Exception e) {
+            logger.warn("清理资料变更记录失败: {}", e.getMessage());
+        }
+    }
+
+    private void apply(List<ProfileChange> changes) {
+        // 先清理缓存，全部成功后再前进游标；失败时整批重试，重复清理无副作用。
+        // 本服务的写入已写穿透缓存，删除会让下一次回源重新缓存，只清理其他来源的变更
+        profileCacheWriter.evictCaptured(affectedKeys(changes.stream()
+            .filter(change -> !properties.getOrigin().equals(change.origin()))
+            .toList()));
+        userProfileJdbcRepository.evictEntityData(changes.stream().map(ProfileChange::profileId).distinct().toList());
+
+        long now = System.currentTimeMillis();
+        for (ProfileChange change : changes) {
+            if (change.id() <= lastId) {
+                gaps.remove(change.id());
+            } else {
+                // 只记录最近的 maxGaps 个空洞，ID大幅跳跃(如大批量回滚)时不逐个登记
+                for (long missing = Math.max(lastId + 1, change.id() - properties.getMaxGaps()); missing < change.id(); missing++) {
+                    gaps.put(missing, now);
+                }
+                lastId = change.id();
+            }
+            departmentStatistics.applyCapturedChange(tenantOf(change), change.oldDepartment(), change.wasActive(),
+                change.newDepartment(), change.isActive());
+            if (change.wasActive() && !change.isActive()) {
+                recentActivityIndex.remove(tenantOf(change), change.oldUserId());
+            }
+            profileEventBus.publish(event(change));
+        }
+        while (gaps.size() > properties.getMaxGaps()) {
+            gaps.pollFirstEntry();
+        }
+        logger.debug("处理资料变更: {}条，最新变更ID: {}", changes.size(), lastId);
+    }
+
+    private void expireGaps(long now) {
+        long deadline = now - properties.getGapTimeout().toMillis();
+        gaps.values().removeIf(firstSeen -> firstSeen < deadline);
+    }
+
+    /**
+     * 一批变更影响的缓存key(租户key)，按缓存名去重
+     */
+    static Map<String, Set<String>> affectedKeys(List<ProfileChange> changes) {
+        Map<String, Set<String>> keys = new LinkedHashMap<>();
+        for (ProfileChange change : changes) {
+            String tenantId = tenantOf(change);
+            add(keys, CacheNames.USER_PROFILES, tenantId, change.oldUserId(), change.newUserId());
+            add(keys, CacheNames.USER_PROFILES_BY_USERNAME, tenantId, change.oldUsername(), change.newUsername());
+            // 部门或活跃状态不变时部门用户列表仍需刷新(列表中包含资料内容)
+            if (change.wasActive() || change.isActive()) {
+                add(keys, CacheNames.DEPARTMENT_USERS, tenantId, change.oldDepartment(), change.newDepartment());
+            }
+        }
+        return keys;
+    }
+
+    private static ProfileEvent event(ProfileChange change) {
+        boolean deleted = change.op() == 'D';
+        return ProfileEvent.profileChanged(change.op(), tenantOf(change),
+            deleted ? change.oldUserId() : change.newUserId(),
+            deleted ? change.oldUsername() : change.newUsername(),
+            deleted ? change.oldDepartment() : change.newDepartment(),
+            change.isActive());
+    }
+
+    /**
+     * 变更表增加租户列之前记录的变更属于默认租户
+     */
+    private static String tenantOf(ProfileChange change) {
+        return change.tenantId() != null ? change.tenantId() : UserProfile.DEFAULT_TENANT;
+    }
+
+    private static void add(Map<String, Set<String>> keys, String cacheName, String tenantId, String... values) {
+        for (String value : values) {
+            if (value != null) {
+                keys.computeIfAbsent(cacheName, name -> new LinkedHashSet<>()).add(TenantKeys.of(tenantId, value));
+            }
+        }
+    }
+}
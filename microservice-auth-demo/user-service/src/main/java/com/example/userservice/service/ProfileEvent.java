@@ -0,0 +1,90 @@
+package com.example.userservice.service;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+
+/**
+ * 资料事件 - 通过 {@link ProfileEventBus} 推送给管理端
+ *
+ * 资料事件带 userId/username/department/active，部门计数事件带 department/delta/count，
+ * resync 事件的 count 为丢弃的事件数；未用到的字段不输出
+ *
+ * @param sequence 实例内递增的事件序号，发布时分配，用作SSE事件ID
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ProfileEvent(long sequence,
+                           Type type,
+                           @JsonIgnore String tenantId,
+                           String userId,
+                           String username,
+                           String department,
+                           Boolean active,
+                           Long delta,
+                           Long count,
+                           @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime timestamp) {
+
+    public enum Type {
+        PROFILE_CREATED("profile-created"),
+        PROFILE_UPDATED("profile-updated"),
+        PROFILE_DELETED("profile-deleted"),
+        LOGIN("login"),
+        DEPARTMENT_COUNT("department-count"),
+        /**
+         * 订阅者缓冲区写满丢弃过事件，客户端应重新加载列表和统计
+         */
+        RESYNC("resync");
+
+        private final String eventName;
+
+        Type(String eventName) {
+            this.eventName = eventName;
+        }
+
+        public String eventName() {
+            return eventName;
+        }
+    }
+
+    /**
+     * 资料新增/修改/删除
+     *
+     * @param op 变更类型 I/U/D，与 user_profile_changes.op 一致
+     */
+    public static ProfileEvent profileChanged(char op, String tenantId, String userId, String username,
+                                              String department, boolean active) {
+        Type type = switch (op) {
+            case 'I' -> Type.PROFILE_CREATED;
+            case 'D' -> Type.PROFILE_DELETED;
+            default -> Type.PROFILE_UPDATED;
+        };
+        return new ProfileEvent(0, type, tenantId, userId, username, department, active, null, null,
+                LocalDateTime.now());
+    }
+
+    public static ProfileEvent login(String tenantId, String userId, LocalDateTime loginTime) {
+        return new ProfileEvent(0, Type.LOGIN, tenantId, userId, null, null, null, null, null, loginTime);
+    }
+
+    /**
+     * 部门活跃用户数变化
+     *
+     * @param count 变化后的计数
+     */
+    public static ProfileEvent departmentCount(String tenantId, String department, long delta, long count) {
+        return new ProfileEvent(0, Type.DEPARTMENT_COUNT, tenantId, null, null, department, null, delta, count,
+                LocalDateTime.now());
+    }
+
+    public static ProfileEvent resync(String tenantId, long dropped) {
+        return new ProfileEvent(0, Type.RESYNC, tenantId, null, null, null, null, null, dropped,
+                LocalDateTime.now());
+    }
+
+    ProfileEvent withSequence(long sequence) {
+        return new ProfileEvent(sequence, type, tenantId, userId, username, department, active, delta, count,
+                timestamp);
+    }
+}
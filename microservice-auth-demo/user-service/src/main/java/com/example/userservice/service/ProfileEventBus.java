@@ -0,0 +1,346 @@
+package com.example.userservice.service;
+
+import com.example.userservice.config.ProfileEventProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 资料事件总线 - 进程内发布/订阅，管理端通过SSE订阅本租户的事件
+ *
+ * 发布方只把事件放入各订阅者的有界队列，不会被慢客户端阻塞；
+ * 每个订阅者由发送线程池中的一个任务串行发送，队列写满时丢弃新事件并在恢复后先推送 resync，
+ * 累计丢弃过多时断开该订阅者。
+ * 写出本身是阻塞的，在单独的写出线程上执行，发送线程最多等待 send-timeout：
+ * 超时说明连接已卡住，立即断开该订阅者并释放名额，卡住的写出线程由容器的写超时结束；
+ * 心跳也走同一路径，流量很低的卡住连接同样会被发现。
+ * 启用资料变更捕获后资料事件改由变更流发布(覆盖其他实例和直接写库的修改)；
+ * 登录事件只包含登录到本实例的用户
+ */
+@Component
+public class ProfileEventBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProfileEventBus.class);
+
+    private final ProfileEventProperties properties;
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    /**
+     * 已占用的订阅名额，订阅时CAS递增，保证并发订阅不超过上限
+     */
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final AtomicLong sequence = new AtomicLong();
+    private final ExecutorService dispatcher;
+    /**
+     * 执行阻塞写出，每个订阅者同一时间最多一个写出任务，超时放弃的任务在写失败后结束
+     */
+    private final ExecutorService writers;
+    private final Counter publishedEvents;
+    private final Counter droppedEvents;
+    private final Counter disconnectedSubscribers;
+    private final Counter sendTimeouts;
+
+    /**
+     * 资料事件是否由资料变更捕获发布
+     */
+    private volatile boolean captureDriven;
+
+    public ProfileEventBus(ProfileEventProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.dispatcher = Executors.newFixedThreadPool(properties.getDispatchThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "profile-events-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger writerCount = new AtomicInteger();
+        this.writers = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "profile-events-writer-" + writerCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.publishedEvents = Counter.builder("profile.events.published")
+                .description("发布的资料事件数")
+                .register(meterRegistry);
+        this.droppedEvents = Counter.builder("profile.events.dropped")
+                .description("订阅者缓冲区已满而丢弃的事件数")
+                .register(meterRegistry);
+        this.disconnectedSubscribers = Counter.builder("profile.events.slow.disconnects")
+                .description("因丢弃过多事件被断开的订阅者数")
+                .register(meterRegistry);
+        this.sendTimeouts = Counter.builder("profile.events.send.timeouts")
+                .description("写出超时被断开的订阅者数")
+                .register(meterRegistry);
+        Gauge.builder("profile.events.subscribers", subscriptions, Set::size)
+                .description("当前订阅者数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 订阅一个租户的事件
+     *
+     * @throws IllegalStateException 订阅者数量已达上限
+     */
+    public Subscription subscribe(String tenantId, Subscriber subscriber) {
+        int current;
+        do {
+            current = subscriberCount.get();
+            if (current >= properties.getMaxSubscribers()) {
+                throw new IllegalStateException("事件订阅者数量已达上限: " + properties.getMaxSubscribers());
+            }
+        } while (!subscriberCount.compareAndSet(current, current + 1));
+        Subscription subscription = new Subscription(tenantId, subscriber);
+        subscriptions.add(subscription);
+        logger.debug("新增事件订阅: 租户{}, 当前订阅数{}", tenantId, subscriptions.size());
+        return subscription;
+    }
+
+    /**
+     * 立即发布事件
+     */
+    public void publish(ProfileEvent event) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        ProfileEvent sequenced = event.withSequence(sequence.incrementAndGet());
+        publishedEvents.increment();
+        for (Subscription subscription : subscriptions) {
+            if (subscription.tenantId.equals(event.tenantId())) {
+                subscription.offer(sequenced);
+            }
+        }
+    }
+
+    /**
+     * 有事务时在提交后发布，否则立即发布
+     */
+    public void publishAfterCommit(ProfileEvent event) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish(event);
+                }
+            });
+        } else {
+            publish(event);
+        }
+    }
+
+    /**
+     * 记录本实例写入的资料变更，事务提交后发布；启用变更捕获后由变更流发布，这里跳过
+     */
+    public void recordChange(ProfileEvent event) {
+        if (!captureDriven) {
+            publishAfterCommit(event);
+        }
+    }
+
+    /**
+     * 改由资料变更捕获发布资料事件，变更消费启动后调用
+     */
+    public void useCapturedChanges() {
+        captureDriven = true;
+    }
+
+    /**
+     * 定期心跳：空闲的订阅者发送一次注释行，写失败说明客户端已断开
+     */
+    @Scheduled(fixedDelayString = "${user-service.events.heartbeat-interval:PT15S}")
+    public void heartbeat() {
+        subscriptions.forEach(Subscription::requestHeartbeat);
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        new ArrayList<>(subscriptions).forEach(Subscription::disconnect);
+        dispatcher.shutdownNow();
+        writers.shutdown();
+    }
+
+    /**
+     * 事件接收方，由写出线程调用，同一订阅者的 deliver/heartbeat 不会被并发调用
+     */
+    public interface Subscriber {
+
+        void deliver(List<ProfileEvent> events) throws IOException;
+
+        void heartbeat() throws IOException;
+
+        /**
+         * 总线主动断开(慢消费者、服务关闭)时调用
+         */
+        void close();
+    }
+
+    /**
+     * 一个订阅者的有界队列和发送状态
+     */
+    public final class Subscription {
+
+        private final String tenantId;
+        private final Subscriber subscriber;
+        private final BlockingQueue<ProfileEvent> queue;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicLong droppedSinceDelivery = new AtomicLong();
+        private volatile boolean heartbeatPending;
+        private volatile boolean closed;
+
+        private Subscription(String tenantId, Subscriber subscriber) {
+            this.tenantId = tenantId;
+            this.subscriber = subscriber;
+            this.queue = new ArrayBlockingQueue<>(properties.getBufferSize());
+        }
+
+        /**
+         * 取消订阅(客户端断开、超时)，可重复调用
+         */
+        public void cancel() {
+            closed = true;
+            if (subscriptions.remove(this)) {
+                subscriberCount.decrementAndGet();
+            }
+        }
+
+        private void offer(ProfileEvent event) {
+            if (closed) {
+                return;
+            }
+            if (!queue.offer(event)) {
+                droppedEvents.increment();
+                if (droppedSinceDelivery.incrementAndGet() > properties.getMaxDroppedEvents()) {
+                    logger.warn("事件订阅者消费过慢，断开连接: 租户{}", tenantId);
+                    disconnectedSubscribers.increment();
+                    disconnect();
+                    return;
+                }
+            }
+            schedule();
+        }
+
+        private void requestHeartbeat() {
+            heartbeatPending = true;
+            schedule();
+        }
+
+        private void schedule() {
+            if (!closed && scheduled.compareAndSet(false, true)) {
+                try {
+                    dispatcher.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    scheduled.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                List<ProfileEvent> batch = new ArrayList<>(properties.getBatchSize());
+                while (!closed) {
+                    long dropped = droppedSinceDelivery.getAndSet(0);
+                    if (dropped > 0) {
+                        batch.add(ProfileEvent.resync(tenantId, dropped).withSequence(sequence.incrementAndGet()));
+                    }
+                    queue.drainTo(batch, properties.getBatchSize());
+                    if (batch.isEmpty()) {
+                        if (heartbeatPending) {
+                            heartbeatPending = false;
+                            write(subscriber::heartbeat);
+                        }
+                        break;
+                    }
+                    heartbeatPending = false;
+                    List<ProfileEvent> events = List.copyOf(batch);
+                    write(() -> subscriber.deliver(events));
+                    batch.clear();
+                }
+            } catch (TimeoutException e) {
+                logger.warn("事件写出超过{}未完成，断开订阅者: 租户{}", properties.getSendTimeout(), tenantId);
+                sendTimeouts.increment();
+                disconnect();
+            } catch (Exception e) {
+                logger.debug("事件发送失败，取消订阅: {}", e.getMessage());
+                cancel();
+            } finally {
+                scheduled.set(false);
+            }
+            // 释放发送权后到达的事件
+            if (!queue.isEmpty() || droppedSinceDelivery.get() > 0 || heartbeatPending) {
+                schedule();
+            }
+        }
+
+        /**
+         * 在写出线程上执行一次写出，最多等待 send-timeout
+         */
+        private void write(Write write) throws Exception {
+            Future<?> future = writers.submit(() -> {
+                write.run();
+                return null;
+            });
+            try {
+                future.get(properties.getSendTimeout().toMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                throw e;
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception cause ? cause : e;
+            }
+        }
+
+        /**
+         * 断开订阅者；可能有写出仍卡在连接上，关闭放到写出线程执行，不阻塞发布方和发送线程
+         */
+        private void disconnect() {
+            cancel();
+            queue.clear();
+            try {
+                writers.execute(this::close);
+            } catch (RejectedExecutionException e) {
+                close();
+            }
+        }
+
+        private void close() {
+            try {
+                subscriber.close();
+            } catch (Exception e) {
+                logger.debug("关闭事件订阅者失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Write {
+
+        void run() throws IOException;
+    }
+}
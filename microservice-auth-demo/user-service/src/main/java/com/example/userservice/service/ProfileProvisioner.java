@@ -0,0 +1,203 @@
+package com.example.userservice.service;
+
+import com.example.userservice.cache.ProfileCacheWriter;
+import com.example.userservice.cache.TenantKeys;
+import com.example.userservice.entity.UserProfile;
+import com.example.userservice.repository.UserProfileJdbcRepository;
+import com.example.userservice.repository.UserProfileRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 默认资料异步创建队列
+ *
+ * 读接口对不存在的用户只返回内存中生成的默认资料，不写数据库，也不缓存；
+ * 读取资料未找到时把用户放入队列，后台线程批量取出后 INSERT IGNORE，
+ * 同一用户重复入队或多个实例同时创建都只会插入一行，只有实际插入该行的实例记录变更并写穿透缓存
+ */
+@Component
+public class ProfileProvisioner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProfileProvisioner.class);
+
+    private static final String DEFAULT_DISPLAY_NAME = "新用户";
+    private static final String DEFAULT_POSITION = "员工";
+
+    /**
+     * 租户key({租户}:{userId}) -> 待创建的默认资料，同一用户只保留第一次入队的记录
+     */
+    private final ConcurrentMap<String, UserProfile> pending = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    private final ExecutorService flushExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "profile-provision");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    private UserProfileRepository userProfileRepository;
+
+    @Autowired
+    private UserProfileJdbcRepository userProfileJdbcRepository;
+
+    @Autowired
+    private ProfileCacheWriter profileCacheWriter;
+
+    @Autowired
+    private DepartmentStatistics departmentStatistics;
+
+    @Autowired
+    private ProfileEventBus profileEventBus;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${user-service.provisioning.max-pending:10000}")
+    private int maxPending;
+
+
+    /**
+     * 生成默认资料，只在内存中，不写数据库
+     *
+     * @param username 网关传入的用户名，为空时由用户ID生成
+     */
+    public static UserProfile defaultProfile(String tenantId, String userId, String username) {
+        UserProfile profile = new UserProfile();
+        profile.setTenantId(tenantId);
+        profile.setUserId(userId);
+        profile.setUsername(username != null && !username.isBlank() ? username : defaultUsername(userId));
+        profile.setDisplayName(DEFAULT_DISPLAY_NAME);
+        profile.setDepartment(DepartmentStatistics.UNASSIGNED);
+        profile.setPosition(DEFAULT_POSITION);
+        profile.setIsActive(true);
+        return profile;
+    }
+
+    /**
+     * 使用部分用户ID作为默认用户名，ID不足8位时使用完整ID
+     */
+    static String defaultUsername(String userId) {
+        return "用户" + (userId.length() > 8 ? userId.substring(0, 8) : userId);
+    }
+
+    /**
+     * 读取资料未找到时调用：生成默认资料返回给调用方，同时放入创建队列
+     *
+     * 只在资料缺失的路径上调用，不再额外读缓存；重复入队或资料已被其他实例创建时由批量插入去重
+     *
+     * @return 未持久化的默认资料(id为null)
+     */
+    public UserProfile provisionIfMissing(String tenantId, String userId, String username, LocalDateTime loginTime) {
+        UserProfile profile = defaultProfile(tenantId, userId, username);
+        profile.setLastLogin(loginTime);
+        String key = TenantKeys.of(tenantId, userId);
+        if (pending.size() >= maxPending && !pending.containsKey(key)) {
+            logger.warn("默认资料创建队列已满，跳过: {}", key);
+            return profile;
+        }
+        if (pending.putIfAbsent(key, profile) == null) {
+            requestFlush();
+        }
+        return profile;
+    }
+
+    /**
+     * 定时重试失败的创建
+     */
+    @Scheduled(fixedDelayString = "${user-service.provisioning.retry-interval:PT30S}")
+    public void scheduledFlush() {
+        flush();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushExecutor.shutdown();
+        flush();
+    }
+
+    private void requestFlush() {
+        if (flushRequested.compareAndSet(false, true)) {
+            flushExecutor.execute(() -> {
+                flushRequested.set(false);
+                flush();
+            });
+        }
+    }
+
+    synchronized void flush() {
+        Map<String, UserProfile> batch = new HashMap<>();
+        for (Map.Entry<String, UserProfile> entry : pending.entrySet()) {
+            if (pending.remove(entry.getKey(), entry.getValue())) {
+                batch.put(entry.getKey(), entry.getValue());
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        List<UserProfile> created;
+        try {
+            created = transactionTemplate.execute(status -> insertMissing(batch));
+        } catch (Exception e) {
+            batch.forEach(pending::putIfAbsent);
+            logger.warn("创建默认资料失败，{}条放回队列: {}", batch.size(), e.getMessage());
+            return;
+        }
+
+        for (UserProfile profile : created) {
+            departmentStatistics.recordChange(profile.getTenantId(), null, false, profile.getDepartment(), true);
+            profileEventBus.recordChange(ProfileEvent.profileChanged('I', profile.getTenantId(), profile.getUserId(),
+                profile.getUsername(), profile.getDepartment(), true));
+            profileCacheWriter.writeThrough(profile, null);
+        }
+        logger.info("创建默认资料: 入队{}条, 新建{}条", batch.size(), created.size());
+    }
+
+    /**
+     * 只插入数据库中还不存在的用户，返回新建的资料(含数据库生成的主键)
+     */
+    private List<UserProfile> insertMissing(Map<String, UserProfile> batch) {
+        Map<String, List<String>> userIdsByTenant = new HashMap<>();
+        batch.values().forEach(profile ->
+            userIdsByTenant.computeIfAbsent(profile.getTenantId(), tenant -> new ArrayList<>()).add(profile.getUserId()));
+
+        Set<String> existing = new HashSet<>();
+        userIdsByTenant.forEach((tenantId, userIds) ->
+            userProfileRepository.findByTenantIdAndUserIdIn(tenantId, userIds)
+                .forEach(profile -> existing.add(TenantKeys.of(tenantId, profile.getUserId()))));
+
+        List<UserProfile> toInsert = new ArrayList<>();
+        batch.forEach((key, profile) -> {
+            if (!existing.contains(key)) {
+                toInsert.add(profile);
+            }
+        });
+        if (toInsert.isEmpty()) {
+            return List.of();
+        }
+
+        // 按每行的影响行数判断，查询之后被其他实例插入或用户名冲突的行不算本实例新建
+        return userProfileJdbcRepository.insertIfAbsent(toInsert);
+    }
+}
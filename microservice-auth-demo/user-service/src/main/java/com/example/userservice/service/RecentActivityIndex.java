@@ -0,0 +1,252 @@
+package com.example.userservice.service;
+
+import com.example.userservice.entity.UserProfile;
+import com.example.userservice.repository.UserProfileRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 最近活跃用户索引 - 按最后登录时间排序的内存跳表
+ *
+ * 每个租户一个索引，由活跃用户的登录事件实时更新，用户停用或删除时移出，索引中只有活跃用户；
+ * 任意"最近N小时"查询都是租户索引上的一次范围扫描，按 (最后登录时间, 用户ID) 游标分页；
+ * 计数按小时分桶维护，统计时累加整小时的桶，只扫描起点所在的一个小时；
+ * 启动时从数据库加载保留期内的数据，之后定期增量同步其他实例写入的登录时间
+ */
+@Component
+public class RecentActivityIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecentActivityIndex.class);
+
+    /**
+     * 最后登录时间倒序，时间相同按用户ID排序
+     */
+    private static final Comparator<Activity> ORDER = Comparator
+            .comparing(Activity::lastLogin, Comparator.reverseOrder())
+            .thenComparing(Activity::userId);
+
+    /**
+     * 排在同一时间所有用户之后的哨兵ID，用于包含边界的范围查询
+     */
+    private static final String MAX_USER_ID = "\uffff";
+
+    /**
+     * 增量同步向前多取一段时间，覆盖其他实例写回缓冲的落库延迟
+     */
+    private static final Duration SYNC_OVERLAP = Duration.ofMinutes(1);
+
+    /**
+     * 租户 -> 该租户的索引
+     */
+    private final ConcurrentMap<String, Partition> partitions = new ConcurrentHashMap<>();
+
+    @Autowired
+    private UserProfileRepository userProfileRepository;
+
+    @Value("${user-service.recent-activity.retention:P7D}")
+    private Duration retention;
+
+    private volatile LocalDateTime lastSync;
+
+    /**
+     * 记录一次登录/访问
+     */
+    public void record(String tenantId, String userId, LocalDateTime loginTime) {
+        partitions.computeIfAbsent(tenantId, tenant -> new Partition()).record(userId, loginTime);
+    }
+
+    /**
+     * 用户停用或删除后移出索引
+     */
+    public void remove(String tenantId, String userId) {
+        Partition partition = partitions.get(tenantId);
+        if (partition != null) {
+            partition.remove(userId);
+        }
+    }
+
+    /**
+     * 查询租户内 since 之后活跃的用户，按最后登录时间倒序分页
+     *
+     * @param after 上一页最后一条，为null时从最新的开始
+     */
+    public List<Activity> range(String tenantId, LocalDateTime since, Activity after, int limit) {
+        Partition partition = partitions.get(tenantId);
+        return partition == null ? List.of() : partition.range(since, after, limit);
+    }
+
+    /**
+     * 租户内 since 之后活跃的用户数
+     */
+    public int count(String tenantId, LocalDateTime since) {
+        Partition partition = partitions.get(tenantId);
+        return partition == null ? 0 : partition.count(since);
+    }
+
+    /**
+     * 索引保留的时间范围，更早的查询结果不完整
+     */
+    public Duration getRetention() {
+        return retention;
+    }
+
+    /**
+     * 启动后从数据库加载保留期内的活跃用户
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        LocalDateTime now = LocalDateTime.now();
+        sync(now.minus(retention));
+        lastSync = now;
+    }
+
+    /**
+     * 定期增量同步其他实例落库的登录时间，并清理过期数据
+     */
+    @Scheduled(fixedDelayString = "${user-service.recent-activity.sync-interval:PT1M}",
+               initialDelayString = "${user-service.recent-activity.sync-interval:PT1M}")
+    public void refresh() {
+        LocalDateTime now = LocalDateTime.now();
+        if (lastSync != null) {
+            sync(lastSync.minus(SYNC_OVERLAP));
+        }
+        lastSync = now;
+        prune(now.minus(retention));
+    }
+
+    private void sync(LocalDateTime since) {
+        try {
+            List<UserProfile> profiles = userProfileRepository.findRecentlyActiveUsers(since);
+            profiles.forEach(profile -> record(profile.getTenantId(), profile.getUserId(), profile.getLastLogin()));
+            logger.debug("同步最近活跃用户: since={}, {}条", since, profiles.size());
+        } catch (Exception e) {
+            logger.warn("同步最近活跃用户失败: {}", e.getMessage());
+        }
+    }
+
+    private void prune(LocalDateTime cutoff) {
+        partitions.values().forEach(partition -> partition.prune(cutoff));
+    }
+
+    /**
+     * 单个租户的索引
+     */
+    private static final class Partition {
+
+        private final NavigableSet<Activity> byTime = new ConcurrentSkipListSet<>(ORDER);
+        private final ConcurrentMap<String, LocalDateTime> latest = new ConcurrentHashMap<>();
+
+        /**
+         * 整点 -> 该小时内的条目数，与 byTime 同步增减
+         */
+        private final ConcurrentSkipListMap<LocalDateTime, AtomicLong> hourly = new ConcurrentSkipListMap<>();
+
+        void record(String userId, LocalDateTime loginTime) {
+            latest.compute(userId, (id, previous) -> {
+                if (previous != null && !loginTime.isAfter(previous)) {
+                    return previous;
+                }
+                if (previous != null) {
+                    removeEntry(new Activity(id, previous));
+                }
+                if (byTime.add(new Activity(id, loginTime))) {
+                    adjust(loginTime, 1);
+                }
+                return loginTime;
+            });
+        }
+
+        void remove(String userId) {
+            latest.computeIfPresent(userId, (id, previous) -> {
+                removeEntry(new Activity(id, previous));
+                return null;
+            });
+        }
+
+        /**
+         * 从游标之后定位(O(log n))，不从头遍历
+         */
+        List<Activity> range(LocalDateTime since, Activity after, int limit) {
+            Activity last = new Activity(MAX_USER_ID, since);
+            if (after != null && ORDER.compare(after, last) >= 0) {
+                return List.of();
+            }
+            NavigableSet<Activity> window = after == null
+                    ? byTime.headSet(last, true)
+                    : byTime.subSet(after, false, last, true);
+            List<Activity> page = new ArrayList<>(limit);
+            for (Activity activity : window) {
+                if (page.size() >= limit) {
+                    break;
+                }
+                page.add(activity);
+            }
+            return page;
+        }
+
+        int count(LocalDateTime since) {
+            LocalDateTime boundaryEnd = hour(since).plusHours(1);
+            long total = 0;
+            for (AtomicLong bucket : hourly.tailMap(boundaryEnd, true).values()) {
+                total += bucket.get();
+            }
+            // 起点所在小时内 [since, boundaryEnd) 的条目
+            total += byTime.subSet(new Activity(MAX_USER_ID, boundaryEnd), false,
+                                   new Activity(MAX_USER_ID, since), true).size();
+            return (int) Math.min(Integer.MAX_VALUE, Math.max(0, total));
+        }
+
+        void prune(LocalDateTime cutoff) {
+            Iterator<Activity> oldestFirst = byTime.descendingIterator();
+            while (oldestFirst.hasNext()) {
+                Activity activity = oldestFirst.next();
+                if (!activity.lastLogin().isBefore(cutoff)) {
+                    break;
+                }
+                latest.remove(activity.userId(), activity.lastLogin());
+                removeEntry(activity);
+            }
+            hourly.headMap(hour(cutoff)).entrySet().removeIf(bucket -> bucket.getValue().get() <= 0);
+        }
+
+        private void removeEntry(Activity activity) {
+            if (byTime.remove(activity)) {
+                adjust(activity.lastLogin(), -1);
+            }
+        }
+
+        private void adjust(LocalDateTime time, long delta) {
+            hourly.computeIfAbsent(hour(time), hour -> new AtomicLong()).addAndGet(delta);
+        }
+
+        private static LocalDateTime hour(LocalDateTime time) {
+            return time.truncatedTo(ChronoUnit.HOURS);
+        }
+    }
+
+    /**
+     * 索引条目
+     */
+    public record Activity(String userId, LocalDateTime lastLogin) {
+    }
+}
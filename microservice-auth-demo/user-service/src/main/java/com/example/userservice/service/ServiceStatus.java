@@ -0,0 +1,55 @@
+package com.example.userservice.service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 服务运行状态 - 依赖健康状态和关键指标快照，耗时单位均为毫秒
+ *
+ * @param health          mysql/redis/nacos 的健康状态(UP/DOWN/UNKNOWN...)
+ * @param caches          各缓存的命中率、回源和驱逐统计
+ * @param repositories    仓库方法耗时(Spring Data仓库和JDBC仓库)
+ * @param connectionPools 数据库连接池状态和获取连接耗时
+ * @param redisCommands   Redis命令耗时
+ */
+public record ServiceStatus(boolean success,
+                            String service,
+                            String version,
+                            Map<String, String> health,
+                            List<CacheStats> caches,
+                            List<Latency> repositories,
+                            List<PoolStats> connectionPools,
+                            List<Latency> redisCommands,
+                            long timestamp) {
+
+    /**
+     * @param hitRate   整体命中率(任一级命中即为命中)，没有读取时为null
+     * @param evictions 本地缓存因容量或过期驱逐的条目数
+     * @param loads     回源成功次数及耗时
+     */
+    public record CacheStats(String name,
+                             long hits,
+                             long misses,
+                             Double hitRate,
+                             long localHits,
+                             long localMisses,
+                             long remoteHits,
+                             long remoteMisses,
+                             long evictions,
+                             long loadFailures,
+                             Latency loads,
+                             Long size) {
+    }
+
+    /**
+     * @param percentiles 百分位 -> 耗时，如 p95；未开启百分位时为空
+     */
+    public record Latency(String name, long count, double mean, double max, Map<String, Double> percentiles) {
+    }
+
+    /**
+     * @param acquire 获取连接耗时，即等待连接池的时间
+     */
+    public record PoolStats(String pool, int active, int idle, int pending, int max, long timeouts, Latency acquire) {
+    }
+}
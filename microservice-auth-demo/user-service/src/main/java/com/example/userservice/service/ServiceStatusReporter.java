@@ -0,0 +1,189 @@
+package com.example.userservice.service;
+
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Measurement;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Statistic;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.search.Search;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.HealthComponent;
+import org.springframework.boot.actuate.health.HealthEndpoint;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 汇总服务运行状态 - 从Actuator健康检查和Micrometer指标读取，与 /actuator/metrics 数据一致
+ */
+@Component
+public class ServiceStatusReporter {
+
+    private static final String SERVICE = "user-service";
+    private static final String VERSION = "enhanced-v1.0";
+
+    /**
+     * 展示名称 -> Actuator健康检查组件名
+     */
+    private static final Map<String, String> HEALTH_COMPONENTS = Map.of(
+        "mysql", "db",
+        "redis", "redis",
+        "nacos", "nacosDiscovery");
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ObjectProvider<HealthEndpoint> healthEndpoint;
+
+    public ServiceStatus report() {
+        return new ServiceStatus(true, SERVICE, VERSION, health(), caches(), repositories(),
+            connectionPools(), redisCommands(), System.currentTimeMillis());
+    }
+
+    private Map<String, String> health() {
+        Map<String, String> health = new LinkedHashMap<>();
+        HealthEndpoint endpoint = healthEndpoint.getIfAvailable();
+        new TreeSet<>(HEALTH_COMPONENTS.keySet()).forEach(name -> {
+            HealthComponent component = endpoint == null ? null : endpoint.healthForPath(HEALTH_COMPONENTS.get(name));
+            health.put(name, component == null ? "UNKNOWN" : component.getStatus().getCode());
+        });
+        return health;
+    }
+
+    private List<ServiceStatus.CacheStats> caches() {
+        List<ServiceStatus.CacheStats> caches = new ArrayList<>();
+        for (String cache : tagValues(meterRegistry.find("cache.gets"), "cache")) {
+            long hits = count(meterRegistry.find("cache.gets").tag("cache", cache).tag("result", "hit"));
+            long misses = count(meterRegistry.find("cache.gets").tag("cache", cache).tag("result", "miss"));
+            FunctionTimer loads = meterRegistry.find("cache.loads").tag("cache", cache).tag("result", "success").functionTimer();
+            Gauge size = meterRegistry.find("cache.size").tag("cache", cache).gauge();
+            caches.add(new ServiceStatus.CacheStats(
+                cache,
+                hits,
+                misses,
+                hits + misses == 0 ? null : round((double) hits / (hits + misses)),
+                levelCount(cache, "local", "hit"),
+                levelCount(cache, "local", "miss"),
+                levelCount(cache, "remote", "hit"),
+                levelCount(cache, "remote", "miss"),
+                count(meterRegistry.find("cache.evictions").tag("cache", cache)),
+                count(meterRegistry.find("cache.loads").tag("cache", cache).tag("result", "failure")),
+                loads == null ? null : new ServiceStatus.Latency("load", (long) loads.count(),
+                    round(loads.mean(TimeUnit.MILLISECONDS)), 0, Map.of()),
+                size == null || Double.isNaN(size.value()) ? null : (long) size.value()));
+        }
+        return caches;
+    }
+
+    private List<ServiceStatus.Latency> repositories() {
+        List<ServiceStatus.Latency> repositories = new ArrayList<>();
+        for (Timer timer : meterRegistry.find("spring.data.repository.invocations").timers()) {
+            Meter.Id id = timer.getId();
+            String state = id.getTag("state");
+            repositories.add(latency(id.getTag("repository") + "." + id.getTag("method")
+                + ("SUCCESS".equals(state) ? "" : " [" + state + "]"), timer));
+        }
+        for (Timer timer : meterRegistry.find("jdbc.repository.invocations").timers()) {
+            Meter.Id id = timer.getId();
+            String exception = id.getTag("exception");
+            repositories.add(latency(simpleName(id.getTag("class")) + "." + id.getTag("method")
+                + (exception == null || "none".equals(exception) ? "" : " [" + exception + "]"), timer));
+        }
+        repositories.sort(Comparator.comparing(ServiceStatus.Latency::name));
+        return repositories;
+    }
+
+    private List<ServiceStatus.PoolStats> connectionPools() {
+        List<ServiceStatus.PoolStats> pools = new ArrayList<>();
+        for (String pool : tagValues(meterRegistry.find("hikaricp.connections.acquire"), "pool")) {
+            Timer acquire = meterRegistry.find("hikaricp.connections.acquire").tag("pool", pool).timer();
+            pools.add(new ServiceStatus.PoolStats(
+                pool,
+                (int) gauge("hikaricp.connections.active", pool),
+                (int) gauge("hikaricp.connections.idle", pool),
+                (int) gauge("hikaricp.connections.pending", pool),
+                (int) gauge("hikaricp.connections.max", pool),
+                count(meterRegistry.find("hikaricp.connections.timeout").tag("pool", pool)),
+                acquire == null ? null : latency("acquire", acquire)));
+        }
+        return pools;
+    }
+
+    private List<ServiceStatus.Latency> redisCommands() {
+        List<ServiceStatus.Latency> commands = new ArrayList<>();
+        for (Timer timer : meterRegistry.find("lettuce.command.completion").timers()) {
+            commands.add(latency(timer.getId().getTag("command"), timer));
+        }
+        commands.sort(Comparator.comparing(ServiceStatus.Latency::name));
+        return commands;
+    }
+
+    private long levelCount(String cache, String level, String result) {
+        return count(meterRegistry.find("cache.level.gets").tag("cache", cache).tag("level", level).tag("result", result));
+    }
+
+    private double gauge(String name, String pool) {
+        Gauge gauge = meterRegistry.find(name).tag("pool", pool).gauge();
+        return gauge == null ? 0 : gauge.value();
+    }
+
+    /**
+     * 匹配的计数器(含FunctionCounter)累计值之和
+     */
+    private static long count(Search search) {
+        double total = 0;
+        for (Meter meter : search.meters()) {
+            for (Measurement measurement : meter.measure()) {
+                if (measurement.getStatistic() == Statistic.COUNT) {
+                    total += measurement.getValue();
+                }
+            }
+        }
+        return (long) total;
+    }
+
+    private static TreeSet<String> tagValues(Search search, String tag) {
+        TreeSet<String> values = new TreeSet<>();
+        search.meters().stream().map(meter -> meter.getId().getTag(tag)).filter(Objects::nonNull).forEach(values::add);
+        return values;
+    }
+
+    private static ServiceStatus.Latency latency(String name, Timer timer) {
+        HistogramSnapshot snapshot = timer.takeSnapshot();
+        Map<String, Double> percentiles = new LinkedHashMap<>();
+        for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+            percentiles.put(percentileName(percentile.percentile()), round(percentile.value(TimeUnit.MILLISECONDS)));
+        }
+        return new ServiceStatus.Latency(name, snapshot.count(), round(snapshot.mean(TimeUnit.MILLISECONDS)),
+            round(snapshot.max(TimeUnit.MILLISECONDS)), percentiles);
+    }
+
+    /**
+     * 0.95 -> p95，0.999 -> p99.9
+     */
+    static String percentileName(double percentile) {
+        String value = Double.toString(percentile * 100);
+        return "p" + (value.endsWith(".0") ? value.substring(0, value.length() - 2) : value);
+    }
+
+    private static String simpleName(String className) {
+        return className == null ? "?" : className.substring(className.lastIndexOf('.') + 1);
+    }
+
+    private static double round(double value) {
+        return Double.isNaN(value) ? 0 : Math.round(value * 1000) / 1000.0;
+    }
+}
@@ -1,24 +1,40 @@
 package com.example.userservice.service;
 
+import com.example.userservice.cache.CacheNames;
+import com.example.userservice.cache.ProfileCacheWriter;
+import com.example.userservice.cache.TenantKeys;
+import com.example.userservice.cache.TwoLevelCacheManager;
+import com.example.userservice.datasource.ReadFromReplica;
 import com.example.userservice.entity.UserProfile;
+import com.example.userservice.entity.UserProfileSummary;
+import com.example.userservice.repository.UserProfileJdbcRepository;
 import com.example.userservice.repository.UserProfileRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.CachePut;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.util.*;
 
 /**
  * 用户资料服务 - 集成MySQL持久化和Redis缓存
+ *
+ * 默认只读事务(走主库)，写方法单独声明读写事务，管理端列表用 @ReadFromReplica 读从库；
+ * 所有方法按租户(网关传入的 X-Tenant-ID)隔离，缓存key为 {租户}:{key}
  */
 @Service
-@Transactional
+@Transactional(readOnly = true)
 public class UserProfileService {
     
     private static final Logger logger = LoggerFactory.getLogger(UserProfileService.class);
@@ -26,73 +42,160 @@ public class UserProfileService {
     @Autowired
     private UserProfileRepository userProfileRepository;
     
+    @Autowired
+    private UserProfileJdbcRepository userProfileJdbcRepository;
+    
+    @Autowired
+    private ProfileCacheWriter profileCacheWriter;
+    
+    @Autowired
+    private LastLoginWriteBehind lastLoginWriteBehind;
+    
+    @Autowired
+    private DepartmentStatistics departmentStatistics;
+    
+    @Autowired
+    private RecentActivityIndex recentActivityIndex;
+    
+    @Autowired
+    private ProfileEventBus profileEventBus;
+    
+    @Autowired
+    private ProfileProvisioner profileProvisioner;
+    
+    @Autowired
+    private TwoLevelCacheManager cacheManager;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Value("${user-service.export.fetch-size:1000}")
+    private int exportFetchSize;
+    
+    @Value("${user-service.bulk.in-chunk-size:500}")
+    private int bulkChunkSize;
+    
     /**
      * 根据用户ID获取用户资料 (带Redis缓存)
+     *
+     * 资料不存在时返回null(不缓存)，调用方通过 {@link #provisionDefaultProfile} 取得默认资料
      */
-    @Cacheable(value = "userProfiles", key = "#userId", unless = "#result == null")
-    public UserProfile getUserProfile(String userId) {
-        logger.debug("从数据库查询用户资料: {}", userId);
-        Optional<UserProfile> profile = userProfileRepository.findByUserId(userId);
-        
-        if (profile.isEmpty()) {
-            // 如果用户资料不存在，创建默认资料
-            logger.info("用户资料不存在，创建默认资料: {}", userId);
-            return createDefaultProfile(userId);
-        }
-        
-        return profile.get();
+    @Cacheable(value = CacheNames.USER_PROFILES, keyGenerator = TenantKeys.GENERATOR, sync = true)
+    public UserProfile getUserProfile(String tenantId, String userId) {
+        logger.debug("从数据库查询用户资料: {}/{}", tenantId, userId);
+        return loadProfile(tenantId, userId).orElse(null);
+    }
+    
+    /**
+     * 资料不存在的用户：返回未持久化的默认资料(id为null)，同时放入异步创建队列
+     *
+     * @param username 网关传入的用户名，用作默认资料的用户名
+     */
+    public UserProfile provisionDefaultProfile(String tenantId, String userId, String username) {
+        logger.info("用户资料不存在，返回默认资料: {}/{}", tenantId, userId);
+        return profileProvisioner.provisionIfMissing(tenantId, userId, username, LocalDateTime.now());
+    }
+    
+    /**
+     * 重新加载用户资料，不经过缓存，资料不存在时返回null；供缓存后台刷新通过代理调用
+     */
+    public UserProfile reloadUserProfile(String tenantId, String userId) {
+        return loadProfile(tenantId, userId).orElse(null);
     }
     
     /**
-     * 创建或更新用户资料 (更新缓存)
+     * 按自然键(租户, 用户ID)加载(可命中Hibernate二级缓存)
      */
-    @CachePut(value = "user-profiles", key = "#userProfile.userId")
-    public UserProfile saveOrUpdateProfile(UserProfile userProfile) {
-        logger.debug("保存用户资料: {}", userProfile.getUsername());
+    private Optional<UserProfile> loadProfile(String tenantId, String userId) {
+        return userProfileRepository.loadByTenantIdAndUserId(tenantId, userId);
+    }
+    
+    /**
+     * 创建或更新用户资料 (事务提交后写穿透缓存)
+     */
+    @Transactional
+    public UserProfile saveOrUpdateProfile(String tenantId, UserProfile userProfile) {
+        logger.debug("保存用户资料: {}/{}", tenantId, userProfile.getUsername());
         
-        Optional<UserProfile> existing = userProfileRepository.findByUserId(userProfile.getUserId());
+        Optional<UserProfile> existing = loadProfile(tenantId, userProfile.getUserId());
+        UserProfile saved;
+        String previousDepartment = null;
+        boolean previousActive = false;
         if (existing.isPresent()) {
             // 更新现有资料
             UserProfile existingProfile = existing.get();
+            previousDepartment = existingProfile.getDepartment();
+            previousActive = Boolean.TRUE.equals(existingProfile.getIsActive());
             updateProfileFields(existingProfile, userProfile);
-            return userProfileRepository.save(existingProfile);
+            saved = userProfileRepository.save(existingProfile);
         } else {
             // 创建新资料
-            return userProfileRepository.save(userProfile);
+            userProfile.setTenantId(tenantId);
+            saved = userProfileRepository.save(userProfile);
+        }
+        
+        departmentStatistics.recordChange(tenantId, previousDepartment, previousActive,
+            saved.getDepartment(), Boolean.TRUE.equals(saved.getIsActive()));
+        if (!Boolean.TRUE.equals(saved.getIsActive())) {
+            recentActivityIndex.remove(tenantId, saved.getUserId());
+        } else if (!previousActive && saved.getLastLogin() != null) {
+            recentActivityIndex.record(tenantId, saved.getUserId(), saved.getLastLogin());
         }
+        profileEventBus.recordChange(ProfileEvent.profileChanged(existing.isPresent() ? 'U' : 'I', tenantId,
+            saved.getUserId(), saved.getUsername(), saved.getDepartment(), Boolean.TRUE.equals(saved.getIsActive())));
+        profileCacheWriter.writeThrough(saved, previousDepartment);
+        return saved;
     }
     
     /**
-     * 删除用户资料 (清除缓存)
+     * 删除用户资料 (事务提交后清除缓存)
      */
-    @CacheEvict(value = "userProfiles", key = "#userId")
-    public boolean deleteUserProfile(String userId) {
-        logger.debug("删除用户资料: {}", userId);
-        Optional<UserProfile> profile = userProfileRepository.findByUserId(userId);
+    @Transactional
+    public boolean deleteUserProfile(String tenantId, String userId) {
+        logger.debug("删除用户资料: {}/{}", tenantId, userId);
+        Optional<UserProfile> profile = loadProfile(tenantId, userId);
         if (profile.isPresent()) {
             userProfileRepository.delete(profile.get());
+            departmentStatistics.recordChange(tenantId, profile.get().getDepartment(),
+                Boolean.TRUE.equals(profile.get().getIsActive()), null, false);
+            recentActivityIndex.remove(tenantId, userId);
+            profileEventBus.recordChange(ProfileEvent.profileChanged('D', tenantId, userId,
+                profile.get().getUsername(), profile.get().getDepartment(), false));
+            profileCacheWriter.evictProfile(profile.get());
             return true;
         }
         return false;
     }
     
     /**
-     * 更新最后登录时间
+     * 更新最后登录时间 (异步批量写回，落库后清除缓存中的资料)
+     *
+     * @param active 资料是否活跃，停用用户不进入最近活跃索引
      */
-    @CacheEvict(value = "userProfiles", key = "#userId")
-    public void updateLastLogin(String userId) {
-        logger.debug("更新最后登录时间: {}", userId);
+    public void updateLastLogin(String tenantId, String userId, boolean active) {
+        logger.debug("记录最后登录时间: {}/{}", tenantId, userId);
         LocalDateTime now = LocalDateTime.now();
-        userProfileRepository.updateLastLogin(userId, now, now);
+        lastLoginWriteBehind.record(tenantId, userId, now);
+        if (active) {
+            recentActivityIndex.record(tenantId, userId, now);
+        }
+        profileEventBus.publish(ProfileEvent.login(tenantId, userId, now));
+    }
+    
+    /**
+     * 获取部门用户列表 (带缓存，只缓存摘要)
+     */
+    @Cacheable(value = CacheNames.DEPARTMENT_USERS, keyGenerator = TenantKeys.GENERATOR, sync = true)
+    public List<UserProfileSummary> getUsersByDepartment(String tenantId, String department) {
+        logger.debug("查询部门用户: {}/{}", tenantId, department);
+        return userProfileRepository.findSummariesByTenantIdAndDepartmentAndIsActiveTrue(tenantId, department);
     }
     
     /**
-     * 获取部门用户列表 (带缓存)
+     * 重新加载部门用户摘要，不经过缓存；供缓存后台刷新通过代理调用
      */
-    @Cacheable(value = "departmentUsers", key = "#department")
-    public List<UserProfile> getUsersByDepartment(String department) {
-        logger.debug("查询部门用户: {}", department);
-        return userProfileRepository.findByDepartmentAndIsActiveTrue(department);
+    public List<UserProfileSummary> reloadUsersByDepartment(String tenantId, String department) {
+        return userProfileRepository.findSummariesByTenantIdAndDepartmentAndIsActiveTrue(tenantId, department);
     }
     
     /**
@@ -106,62 +209,127 @@ public class UserProfileService {
     }
     
     /**
-     * 获取最近活跃用户
+     * 获取最近活跃用户 (内存索引范围扫描，按最后登录时间倒序、(最后登录时间, 用户ID) 游标分页)
+     *
+     * 资料从与详情共用的资料缓存批量读取，返回摘要；索引中只有活跃用户，
+     * 资料尚未创建或刚停用的用户会被跳过，因此一页可能少于 size 条，是否还有下一页以 next 为准
+     *
+     * @param after 上一页返回的 next，为null时从最新的开始
      */
-    @Cacheable(value = "recentUsers", key = "#hours")
-    public List<UserProfile> getRecentlyActiveUsers(int hours) {
-        logger.debug("查询最近{}小时活跃用户", hours);
+    public RecentlyActiveUsers getRecentlyActiveUsers(String tenantId, int hours,
+                                                      RecentActivityIndex.Activity after, int size) {
+        logger.debug("查询最近{}小时活跃用户: tenant={}, after={}, size={}", hours, tenantId, after, size);
+        if (size <= 0) {
+            throw new IllegalArgumentException("分页参数无效: size=" + size);
+        }
         LocalDateTime since = LocalDateTime.now().minusHours(hours);
-        return userProfileRepository.findRecentlyActiveUsers(since);
+        List<RecentActivityIndex.Activity> activities = recentActivityIndex.range(tenantId, since, after, size);
+        
+        List<String> userIds = activities.stream().map(RecentActivityIndex.Activity::userId).toList();
+        List<UserProfileSummary> users = getUserProfiles(tenantId, userIds).stream()
+            .filter(profile -> Boolean.TRUE.equals(profile.getIsActive()))
+            .map(UserProfileSummary::of)
+            .toList();
+        RecentActivityIndex.Activity next = activities.size() == size ? activities.get(activities.size() - 1) : null;
+        return new RecentlyActiveUsers(users, next);
     }
     
     /**
-     * 获取部门统计 (带缓存)
+     * 批量获取用户资料，结果按输入顺序排列，重复ID只返回一次，不存在的用户跳过
+     *
+     * 一次MGET读缓存，未命中的按批次IN查询，查询结果在一个pipeline中回填缓存
      */
-    @Cacheable(value = "departmentStats")
-    public Map<String, Long> getDepartmentStatistics() {
-        logger.debug("查询部门统计信息");
-        List<Object[]> results = userProfileRepository.countUsersByDepartment();
-        Map<String, Long> stats = new HashMap<>();
-        for (Object[] result : results) {
-            String department = (String) result[0];
-            Long count = (Long) result[1];
-            stats.put(department == null ? "未分配" : department, count);
+    public List<UserProfile> getUserProfiles(String tenantId, List<String> userIds) {
+        // 租户key -> userId，保持输入顺序
+        Map<String, String> ids = new LinkedHashMap<>();
+        userIds.forEach(userId -> ids.put(TenantKeys.of(tenantId, userId), userId));
+        Map<String, Object> cached = cacheManager.getAll(CacheNames.USER_PROFILES, ids.keySet());
+        
+        List<String> misses = ids.entrySet().stream()
+            .filter(entry -> !cached.containsKey(entry.getKey()))
+            .map(Map.Entry::getValue)
+            .toList();
+        Map<String, UserProfile> loaded = new HashMap<>();
+        for (int from = 0; from < misses.size(); from += bulkChunkSize) {
+            List<String> chunk = misses.subList(from, Math.min(from + bulkChunkSize, misses.size()));
+            userProfileRepository.findByTenantIdAndUserIdIn(tenantId, chunk)
+                .forEach(profile -> loaded.put(TenantKeys.of(tenantId, profile.getUserId()), profile));
         }
-        return stats;
+        profileCacheWriter.backfill(CacheNames.USER_PROFILES, loaded);
+        logger.debug("批量获取用户资料: {}个, 缓存命中{}, 查库{}", ids.size(), cached.size(), misses.size());
+        
+        List<UserProfile> result = new ArrayList<>(ids.size());
+        for (String id : ids.keySet()) {
+            Object profile = cached.containsKey(id) ? cached.get(id) : loaded.get(id);
+            if (profile != null) {
+                result.add((UserProfile) profile);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * 最近活跃用户总数
+     */
+    public int countRecentlyActiveUsers(String tenantId, int hours) {
+        return recentActivityIndex.count(tenantId, LocalDateTime.now().minusHours(hours));
+    }
+    
+    /**
+     * 获取部门统计 (内存计数，不访问数据库)
+     */
+    public Map<String, Long> getDepartmentStatistics(String tenantId) {
+        return departmentStatistics.snapshot(tenantId);
+    }
+    
+    /**
+     * 按主键游标分页获取活跃用户
+     *
+     * @param afterId 上一页最后一条记录的id，第一页传null
+     */
+    @ReadFromReplica
+    public List<UserProfileSummary> getActiveUsersPage(String tenantId, Long afterId, int size) {
+        logger.debug("分页查询活跃用户: tenant={}, afterId={}, size={}", tenantId, afterId, size);
+        return userProfileRepository.findSummariesByTenantIdAndIsActiveTrueAndIdGreaterThanOrderByIdAsc(
+            tenantId, afterId == null ? 0L : afterId, PageRequest.of(0, size));
     }
     
     /**
-     * 获取所有活跃用户
+     * 以NDJSON格式导出所有活跃用户，逐行从数据库游标读取并写出
      */
-    public List<UserProfile> getAllActiveUsers() {
-        logger.debug("查询所有活跃用户");
-        return userProfileRepository.findByIsActiveTrue();
+    public void exportActiveUsers(String tenantId, OutputStream outputStream) throws IOException {
+        logger.debug("导出活跃用户, tenant={}, fetchSize={}", tenantId, exportFetchSize);
+        ObjectWriter writer = objectMapper.writerFor(UserProfile.class);
+        BufferedOutputStream out = new BufferedOutputStream(outputStream);
+        try {
+            userProfileJdbcRepository.streamActiveProfiles(tenantId, exportFetchSize, profile -> {
+                try {
+                    out.write(writer.writeValueAsBytes(profile));
+                    out.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.flush();
     }
     
     /**
      * 根据用户名查询用户资料
      */
-    @Cacheable(value = "userProfilesByUsername", key = "#username")
-    public UserProfile getUserProfileByUsername(String username) {
-        logger.debug("根据用户名查询用户资料: {}", username);
-        return userProfileRepository.findByUsername(username).orElse(null);
+    @Cacheable(value = CacheNames.USER_PROFILES_BY_USERNAME, keyGenerator = TenantKeys.GENERATOR, sync = true)
+    public UserProfile getUserProfileByUsername(String tenantId, String username) {
+        logger.debug("根据用户名查询用户资料: {}/{}", tenantId, username);
+        return userProfileRepository.findByTenantIdAndUsername(tenantId, username).orElse(null);
     }
     
     /**
-     * 创建默认用户资料
+     * 按用户名重新加载用户资料，不经过缓存；供缓存后台刷新通过代理调用
      */
-    private UserProfile createDefaultProfile(String userId) {
-        UserProfile profile = new UserProfile();
-        profile.setUserId(userId);
-        profile.setUsername("用户" + userId.substring(0, 8)); // 使用部分UUID作为默认用户名
-        profile.setDisplayName("新用户");
-        profile.setDepartment("未分配");
-        profile.setPosition("员工");
-        // profile.setRoles(Set.of("user")); // 角色由Keycloak管理，不存储在数据库
-        profile.setIsActive(true);
-        
-        return userProfileRepository.save(profile);
+    public UserProfile reloadUserProfileByUsername(String tenantId, String username) {
+        return userProfileRepository.findByTenantIdAndUsername(tenantId, username).orElse(null);
     }
     
     /**
@@ -178,4 +346,10 @@ public class UserProfileService {
         if (updated.getIsActive() != null) existing.setIsActive(updated.getIsActive());
         existing.setUpdatedAt(LocalDateTime.now());
     }
+
+    /**
+     * 最近活跃用户的一页，next 为下一页的游标，null表示已到最后一页
+     */
+    public record RecentlyActiveUsers(List<UserProfileSummary> users, RecentActivityIndex.Activity next) {
+    }
 }
@@ -0,0 +1,49 @@
+-- 资料变更捕获：触发器在同一事务中把 user_profiles 的变更写入 user_profile_changes，
+-- 各实例轮询该表清理缓存(ProfileChangeConsumer)
+-- 开发环境启动时自动创建(user-service.change-capture.install-schema)；生产环境关闭自动创建时手动执行
+-- 已有变更表的升级：ALTER TABLE user_profile_changes ADD COLUMN origin VARCHAR(64) NULL AFTER new_active;
+-- 然后 DROP TRIGGER 三个 trg_user_profiles_capture_* 触发器后重新执行下面的 CREATE TRIGGER
+
+CREATE TABLE IF NOT EXISTS user_profile_changes (
+    id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    op CHAR(1) NOT NULL, -- I/U/D
+    profile_id BIGINT NOT NULL,
+    tenant_id VARCHAR(64) NULL,
+    old_user_id VARCHAR(255) NULL,
+    new_user_id VARCHAR(255) NULL,
+    old_username VARCHAR(255) NULL,
+    new_username VARCHAR(255) NULL,
+    old_department VARCHAR(255) NULL,
+    new_department VARCHAR(255) NULL,
+    old_active BOOLEAN NULL,
+    new_active BOOLEAN NULL,
+    origin VARCHAR(64) NULL, -- 写入连接的 @profile_change_origin，本服务为 user-service，其他来源为NULL
+    created_at DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    KEY idx_user_profile_changes_created_at (created_at)
+);
+
+DELIMITER $$
+
+CREATE TRIGGER trg_user_profiles_capture_insert AFTER INSERT ON user_profiles FOR EACH ROW
+INSERT INTO user_profile_changes (op, profile_id, tenant_id, new_user_id, new_username, new_department, new_active, origin)
+VALUES ('I', NEW.id, NEW.tenant_id, NEW.user_id, NEW.username, NEW.department, NEW.is_active, @profile_change_origin)$$
+
+-- 只有 last_login/updated_at 变化(最后登录时间批量写回)时不记录
+CREATE TRIGGER trg_user_profiles_capture_update AFTER UPDATE ON user_profiles FOR EACH ROW
+BEGIN
+    IF NOT (OLD.user_id <=> NEW.user_id AND OLD.username <=> NEW.username AND OLD.email <=> NEW.email
+        AND OLD.display_name <=> NEW.display_name AND OLD.avatar_url <=> NEW.avatar_url
+        AND OLD.phone <=> NEW.phone AND OLD.department <=> NEW.department AND OLD.position <=> NEW.position
+        AND OLD.is_active <=> NEW.is_active AND OLD.created_at <=> NEW.created_at) THEN
+        INSERT INTO user_profile_changes (op, profile_id, tenant_id, old_user_id, new_user_id, old_username, new_username,
+            old_department, new_department, old_active, new_active, origin)
+        VALUES ('U', NEW.id, NEW.tenant_id, OLD.user_id, NEW.user_id, OLD.username, NEW.username,
+            OLD.department, NEW.department, OLD.is_active, NEW.is_active, @profile_change_origin);
+    END IF;
+END$$
+
+CREATE TRIGGER trg_user_profiles_capture_delete AFTER DELETE ON user_profiles FOR EACH ROW
+INSERT INTO user_profile_changes (op, profile_id, tenant_id, old_user_id, old_username, old_department, old_active, origin)
+VALUES ('D', OLD.id, OLD.tenant_id, OLD.user_id, OLD.username, OLD.department, OLD.is_active, @profile_change_origin)$$
+
+DELIMITER ;
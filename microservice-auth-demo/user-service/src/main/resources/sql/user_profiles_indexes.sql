@@ -0,0 +1,10 @@
+-- 用户资料表二级索引
+-- 开发环境由 ddl-auto: update 自动创建；生产环境关闭自动建表时手动执行
+
+CREATE INDEX idx_user_profiles_tenant_department_active ON user_profiles (tenant_id, department, is_active);
+
+CREATE INDEX idx_user_profiles_active_last_login ON user_profiles (is_active, last_login);
+
+CREATE INDEX idx_user_profiles_tenant_active_id ON user_profiles (tenant_id, is_active, id);
+
+CREATE INDEX idx_user_profiles_tenant_email ON user_profiles (tenant_id, email);
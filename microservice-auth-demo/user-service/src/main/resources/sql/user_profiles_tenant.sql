@@ -0,0 +1,28 @@
+-- 用户资料按租户分区：已有数据归入默认租户 default，user_id 和用户名改为租户内唯一，索引以 tenant_id 开头
+-- ddl-auto: update 只会新增列和索引，不会删除旧的唯一约束和索引，需要手动执行本脚本
+
+ALTER TABLE user_profiles ADD COLUMN tenant_id VARCHAR(64) NOT NULL DEFAULT 'default' AFTER id;
+
+-- 旧的 user_id、username 唯一约束名由Hibernate生成，先查出名称再删除：
+-- SELECT INDEX_NAME, COLUMN_NAME FROM information_schema.STATISTICS
+--  WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'user_profiles'
+--    AND COLUMN_NAME IN ('user_id', 'username') AND NON_UNIQUE = 0 AND SEQ_IN_INDEX = 1;
+-- ALTER TABLE user_profiles DROP INDEX <索引名>;
+ALTER TABLE user_profiles ADD CONSTRAINT uk_user_profiles_tenant_user_id UNIQUE (tenant_id, user_id);
+ALTER TABLE user_profiles ADD CONSTRAINT uk_user_profiles_tenant_username UNIQUE (tenant_id, username);
+
+DROP INDEX idx_user_profiles_department_active ON user_profiles;
+CREATE INDEX idx_user_profiles_tenant_department_active ON user_profiles (tenant_id, department, is_active);
+
+DROP INDEX idx_user_profiles_active_id ON user_profiles;
+CREATE INDEX idx_user_profiles_tenant_active_id ON user_profiles (tenant_id, is_active, id);
+
+DROP INDEX idx_user_profiles_email ON user_profiles;
+CREATE INDEX idx_user_profiles_tenant_email ON user_profiles (tenant_id, email);
+
+-- 变更捕获表增加租户列并重建触发器(install-schema 开启时启动时自动完成)
+ALTER TABLE user_profile_changes ADD COLUMN tenant_id VARCHAR(64) NULL AFTER profile_id;
+DROP TRIGGER IF EXISTS trg_user_profiles_capture_insert;
+DROP TRIGGER IF EXISTS trg_user_profiles_capture_update;
+DROP TRIGGER IF EXISTS trg_user_profiles_capture_delete;
+-- 之后执行 user_profile_changes.sql 中的 CREATE TRIGGER 语句
@@ -0,0 +1,51 @@
+package com.example.userservice.cache;
+
+import com.example.userservice.config.UserServiceCacheProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 二级缓存过期策略测试
+ */
+class CacheTtlPolicyTest {
+
+    @Test
+    void resolvesPerCacheTtlWithLegacyProperties() {
+        UserServiceCacheProperties properties = new UserServiceCacheProperties();
+        properties.setUserProfileTtl(600);
+        properties.setDepartmentListTtl(1800);
+        UserServiceCacheProperties.RedisSpec override = new UserServiceCacheProperties.RedisSpec();
+        override.setRefreshAhead(Duration.ofMinutes(5));
+        properties.getRedis().getCaches().put(CacheNames.DEPARTMENT_USERS, override);
+
+        CacheTtlPolicy policy = new CacheTtlPolicy(properties);
+
+        assertEquals(Duration.ofSeconds(600), policy.ttl(CacheNames.USER_PROFILES));
+        assertEquals(Duration.ofSeconds(1800), policy.ttl(CacheNames.DEPARTMENT_USERS));
+        assertEquals(Duration.ofMinutes(5), policy.refreshAhead(CacheNames.DEPARTMENT_USERS));
+        assertEquals(Duration.ZERO, policy.refreshAhead(CacheNames.USER_PROFILES));
+        assertEquals(policy.defaultTtl(), policy.ttl("other"));
+    }
+
+    @Test
+    void jitterStaysWithinConfiguredSpread() {
+        UserServiceCacheProperties properties = new UserServiceCacheProperties();
+        properties.getRedis().getDefaults().setJitter(0.2);
+        CacheTtlPolicy policy = new CacheTtlPolicy(properties);
+
+        Duration ttl = Duration.ofMinutes(30);
+        Set<Duration> seen = new HashSet<>();
+        for (int i = 0; i < 200; i++) {
+            Duration jittered = policy.jitter(CacheNames.DEPARTMENT_USERS, ttl);
+            assertTrue(jittered.compareTo(Duration.ofMinutes(24)) >= 0, jittered::toString);
+            assertTrue(jittered.compareTo(Duration.ofMinutes(36)) <= 0, jittered::toString);
+            seen.add(jittered);
+        }
+        assertTrue(seen.size() > 1);
+    }
+}
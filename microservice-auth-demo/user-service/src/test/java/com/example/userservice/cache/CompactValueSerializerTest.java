@@ -0,0 +1,107 @@
+package com.example.userservice.cache;
+
+import com.example.userservice.config.CacheConfig;
+import com.example.userservice.entity.UserProfile;
+import com.example.userservice.entity.UserProfileSummary;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 紧凑缓存值序列化器测试
+ */
+class CompactValueSerializerTest {
+
+    private final CompactValueSerializer serializer =
+        new CompactValueSerializer(CacheConfig.jsonValueSerializer(), 1024);
+
+    @Test
+    void roundTripsSingleProfile() {
+        UserProfile profile = ProfileFixtures.profile(7);
+        profile.setEmail(null);
+
+        byte[] bytes = serializer.serialize(profile);
+        assertEquals(CompactValueSerializer.FORMAT_BINARY, bytes[0]);
+
+        UserProfile decoded = (UserProfile) serializer.deserialize(bytes);
+        assertProfileEquals(profile, decoded);
+        assertNull(decoded.getEmail());
+    }
+
+    @Test
+    void compressesLargeListsAndKeepsOrder() {
+        List<UserProfile> users = ProfileFixtures.department(200);
+
+        byte[] bytes = serializer.serialize(users);
+        assertEquals(CompactValueSerializer.FORMAT_BINARY_LZ4, bytes[0]);
+        assertTrue(bytes.length < CacheConfig.jsonValueSerializer().serialize(users).length / 2);
+
+        @SuppressWarnings("unchecked")
+        List<UserProfile> decoded = (List<UserProfile>) serializer.deserialize(bytes);
+        assertEquals(users.size(), decoded.size());
+        for (int i = 0; i < users.size(); i++) {
+            assertProfileEquals(users.get(i), decoded.get(i));
+        }
+    }
+
+    @Test
+    void summaryListsAreLessThanHalfOfProfileLists() {
+        List<UserProfile> users = ProfileFixtures.department(200);
+        List<UserProfileSummary> summaries = users.stream().map(UserProfileSummary::of).toList();
+        CompactValueSerializer uncompressed = new CompactValueSerializer(CacheConfig.jsonValueSerializer(), 0);
+
+        byte[] bytes = uncompressed.serialize(summaries);
+        assertTrue(bytes.length < uncompressed.serialize(users).length / 2);
+        assertEquals(summaries, uncompressed.deserialize(bytes));
+        assertEquals(summaries, serializer.deserialize(serializer.serialize(summaries)));
+    }
+
+    @Test
+    void fallsBackToJsonForOtherValuesAndExistingEntries() {
+        Map<String, Long> stats = new HashMap<>();
+        stats.put("Engineering", 3L);
+        byte[] bytes = serializer.serialize(stats);
+        assertEquals('{', bytes[0]);
+        assertEquals(stats, serializer.deserialize(bytes));
+
+        // 切换编码前写入的JSON条目仍可读取
+        UserProfile profile = ProfileFixtures.profile(1);
+        byte[] json = CacheConfig.jsonValueSerializer().serialize(profile);
+        assertProfileEquals(profile, (UserProfile) serializer.deserialize(json));
+    }
+
+    @Test
+    void rejectsCorruptedCompressedEntries() {
+        byte[] bytes = serializer.serialize(ProfileFixtures.department(200));
+        assertEquals(CompactValueSerializer.FORMAT_BINARY_LZ4, bytes[0]);
+
+        // 声明的解压长度远超压缩数据可能的大小
+        byte[] oversized = bytes.clone();
+        oversized[1] = 0x7F;
+        assertThrows(SerializationException.class, () -> serializer.deserialize(oversized));
+
+        byte[] truncated = java.util.Arrays.copyOf(bytes, bytes.length / 2);
+        assertThrows(SerializationException.class, () -> serializer.deserialize(truncated));
+    }
+
+    private static void assertProfileEquals(UserProfile expected, UserProfile actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getTenantId(), actual.getTenantId());
+        assertEquals(expected.getUserId(), actual.getUserId());
+        assertEquals(expected.getUsername(), actual.getUsername());
+        assertEquals(expected.getEmail(), actual.getEmail());
+        assertEquals(expected.getDisplayName(), actual.getDisplayName());
+        assertEquals(expected.getAvatarUrl(), actual.getAvatarUrl());
+        assertEquals(expected.getPhone(), actual.getPhone());
+        assertEquals(expected.getDepartment(), actual.getDepartment());
+        assertEquals(expected.getPosition(), actual.getPosition());
+        assertEquals(expected.getLastLogin(), actual.getLastLogin());
+        assertEquals(expected.getCreatedAt().withNano(0), actual.getCreatedAt().withNano(0));
+        assertEquals(expected.getIsActive(), actual.getIsActive());
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.userservice.cache;
+
+import com.example.userservice.config.UserServiceCacheProperties;
+import com.example.userservice.entity.UserProfile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisKeyCommands;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 资料缓存写入与并发写穿透的交错测试，Redis和L1用内存Map模拟
+ */
+class ProfileCacheWriterTest {
+
+    private final Map<String, byte[]> redis = new HashMap<>();
+    private final Map<String, Object> local = new HashMap<>();
+
+    private TwoLevelCacheManager cacheManager;
+    private ProfileCacheWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        RedisStringCommands stringCommands = mock(RedisStringCommands.class);
+        when(stringCommands.set(any(), any(), any(), any())).thenAnswer(invocation -> {
+            redis.put(new String(invocation.<byte[]>getArgument(0), StandardCharsets.UTF_8), invocation.getArgument(1));
+            return true;
+        });
+        RedisKeyCommands keyCommands = mock(RedisKeyCommands.class);
+        when(keyCommands.del(any(byte[][].class))).thenAnswer(invocation -> {
+            for (Object key : invocation.getArguments()) {
+                redis.remove(new String((byte[]) key, StandardCharsets.UTF_8));
+            }
+            return 1L;
+        });
+        RedisConnection connection = mock(RedisConnection.class);
+        when(connection.stringCommands()).thenReturn(stringCommands);
+        when(connection.keyCommands()).thenReturn(keyCommands);
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenAnswer(invocation -> {
+            invocation.<RedisCallback<?>>getArgument(0).doInRedis(connection);
+            return List.of();
+        });
+
+        RedisCache redisCache = mock(RedisCache.class);
+        when(redisCache.getCacheConfiguration()).thenReturn(RedisCacheConfiguration.defaultCacheConfig()
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(
+                        new CompactValueSerializer(RedisSerializer.java(), 0))));
+        cacheManager = mock(TwoLevelCacheManager.class);
+        when(cacheManager.getRedisCache(anyString())).thenReturn(redisCache);
+        doAnswer(invocation -> local.put(invocation.getArgument(0) + "::" + invocation.getArgument(1),
+                invocation.getArgument(2))).when(cacheManager).refreshLocal(anyString(), any(), any());
+        doAnswer(invocation -> local.remove(invocation.getArgument(0) + "::" + invocation.getArgument(1)))
+                .when(cacheManager).evictLocal(anyString(), any());
+
+        writer = new ProfileCacheWriter();
+        ReflectionTestUtils.setField(writer, "cacheManager", cacheManager);
+        ReflectionTestUtils.setField(writer, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(writer, "cacheTtlPolicy", new CacheTtlPolicy(new UserServiceCacheProperties()));
+    }
+
+    @Test
+    void lastLoginFlushDoesNotOverwriteConcurrentWriteThrough() {
+        UserProfile cached = ProfileFixtures.profile(1);
+        String key = TenantKeys.of(cached.getTenantId(), cached.getUserId());
+        UserProfile updated = cached.copy();
+        updated.setDisplayName("并发修改");
+        updated.setUpdatedAt(LocalDateTime.now());
+
+        // 读取缓存之后、写入之前，另一个请求提交了资料修改
+        when(cacheManager.getAll(eq(CacheNames.USER_PROFILES), anyCollection())).thenAnswer(invocation -> {
+            writer.writeThrough(updated, null);
+            return Map.of(key, cached);
+        });
+
+        writer.evictLastLogin(List.of(key));
+
+        String profileKey = CacheNames.USER_PROFILES + "::" + key;
+        String usernameKey = CacheNames.USER_PROFILES_BY_USERNAME + "::" + TenantKeys.of(cached.getTenantId(), cached.getUsername());
+        assertFalse(redis.containsKey(profileKey), "旧副本不应写回Redis");
+        assertFalse(redis.containsKey(usernameKey));
+        assertNull(local.get(profileKey), "旧副本不应写回L1");
+        assertNull(local.get(usernameKey));
+    }
+
+    @Test
+    void uncachedUsersAreSkipped() {
+        when(cacheManager.getAll(eq(CacheNames.USER_PROFILES), anyCollection())).thenReturn(Map.of());
+
+        writer.evictLastLogin(List.of(TenantKeys.of("acme", "missing")));
+
+        verify(cacheManager, never()).evictLocal(anyString(), any());
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.userservice.cache;
+
+import com.example.userservice.config.CacheConfig;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 缓存值编码基准测试 - JSON(当前默认) vs 紧凑二进制 vs 紧凑二进制+LZ4
+ *
+ * 运行方式：
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.userservice.cache.ProfileCodecBenchmark
+ *
+ * 各编码的字节数在初始化时打印
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProfileCodecBenchmark {
+
+    /**
+     * single: 单个资料(userProfiles)；list: 部门用户列表(departmentUsers)
+     */
+    @Param({"single", "list"})
+    private String shape;
+
+    @Param({"json", "compact", "compact-lz4"})
+    private String codec;
+
+    private RedisSerializer<Object> serializer;
+    private Object value;
+    private byte[] encoded;
+
+    @Setup
+    public void setup() {
+        serializer = switch (codec) {
+            case "json" -> CacheConfig.jsonValueSerializer();
+            case "compact" -> new CompactValueSerializer(CacheConfig.jsonValueSerializer(), 0);
+            default -> new CompactValueSerializer(CacheConfig.jsonValueSerializer(), 1024);
+        };
+        value = "single".equals(shape) ? ProfileFixtures.profile(1) : ProfileFixtures.department(200);
+        encoded = serializer.serialize(value);
+        System.out.printf("%n[%s/%s] 编码后大小: %d 字节%n", shape, codec, encoded.length);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return serializer.serialize(value);
+    }
+
+    @Benchmark
+    public Object decode() {
+        return serializer.deserialize(encoded);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ProfileCodecBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
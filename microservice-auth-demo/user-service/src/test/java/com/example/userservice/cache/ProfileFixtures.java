@@ -0,0 +1,39 @@
+package com.example.userservice.cache;
+
+import com.example.userservice.entity.UserProfile;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 缓存编码测试和基准测试共用的资料数据
+ */
+final class ProfileFixtures {
+
+    private ProfileFixtures() {
+    }
+
+    static List<UserProfile> department(int size) {
+        List<UserProfile> users = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            users.add(profile(i));
+        }
+        return users;
+    }
+
+    static UserProfile profile(int i) {
+        UserProfile profile = new UserProfile("0b6f1c2e-4d3a-4f5b-9c8d-" + String.format("%012d", i),
+            "user" + i, "user" + i + "@example.com");
+        profile.setId((long) i + 1);
+        profile.setTenantId("acme");
+        profile.setDisplayName("测试用户" + i);
+        profile.setAvatarUrl("https://cdn.example.com/avatars/user" + i + ".png");
+        profile.setPhone("1380000" + String.format("%04d", i));
+        profile.setDepartment("Engineering");
+        profile.setPosition("软件工程师");
+        profile.setLastLogin(LocalDateTime.of(2024, 1, 1, 9, 30).plusMinutes(i));
+        profile.setIsActive(true);
+        return profile;
+    }
+}
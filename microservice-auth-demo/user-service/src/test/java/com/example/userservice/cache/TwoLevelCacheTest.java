@@ -0,0 +1,203 @@
+package com.example.userservice.cache;
+
+import com.example.userservice.config.TenantProperties;
+import com.example.userservice.config.UserServiceCacheProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+/**
+ * 二级缓存击穿保护和租户分区测试，L2用内存缓存代替Redis
+ */
+class TwoLevelCacheTest {
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        UserServiceCacheProperties properties = new UserServiceCacheProperties();
+        TwoLevelCacheManager cacheManager = new TwoLevelCacheManager(new ConcurrentMapCacheManager(),
+                properties, new TenantProperties(), new CacheTtlPolicy(properties), new StringRedisTemplate());
+        TwoLevelCache cache = (TwoLevelCache) cacheManager.getCache(CacheNames.DEPARTMENT_USERS);
+
+        int threads = 16;
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return cache.get("Engineering", () -> {
+                        loads.incrementAndGet();
+                        Thread.sleep(200);
+                        return "users";
+                    });
+                }));
+            }
+            start.countDown();
+            for (Future<String> result : results) {
+                assertEquals("users", result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+            cacheManager.shutdown();
+        }
+
+        assertEquals(1, loads.get());
+        assertTrue(cache.getLocalWaitCount() > 0);
+        assertEquals("users", cache.get("Engineering", String.class));
+    }
+
+    @Test
+    void nullResultsAreNotCached() {
+        UserServiceCacheProperties properties = new UserServiceCacheProperties();
+        TwoLevelCacheManager cacheManager = new TwoLevelCacheManager(new ConcurrentMapCacheManager(),
+                properties, new TenantProperties(), new CacheTtlPolicy(properties), new StringRedisTemplate());
+        TwoLevelCache cache = (TwoLevelCache) cacheManager.getCache(CacheNames.USER_PROFILES);
+
+        AtomicInteger loads = new AtomicInteger();
+        assertNull(cache.get("missing", () -> { loads.incrementAndGet(); return null; }));
+        assertNull(cache.get("missing", () -> { loads.incrementAndGet(); return null; }));
+        assertEquals(2, loads.get());
+        cacheManager.shutdown();
+    }
+
+    @Test
+    void tenantCannotEvictOtherTenantsEntries() {
+        UserServiceCacheProperties properties = new UserServiceCacheProperties();
+        properties.getLocal().setDefaults(new UserServiceCacheProperties.Spec(100L, Duration.ofMinutes(1)));
+        TenantProperties tenantProperties = new TenantProperties();
+        tenantProperties.setCacheQuota(0.1);
+        tenantProperties.getQuotas().put("big", 0.5);
+        TwoLevelCacheManager cacheManager = new TwoLevelCacheManager(new ConcurrentMapCacheManager(),
+                properties, tenantProperties, new CacheTtlPolicy(properties), new StringRedisTemplate());
+        TenantLocalCache localCache = ((TwoLevelCache) cacheManager.getCache(CacheNames.USER_PROFILES)).getLocalCache();
+
+        localCache.put(TenantKeys.of("small", "u-1"), "small-profile");
+        for (int i = 0; i < 1000; i++) {
+            localCache.put(TenantKeys.of("big", "u-" + i), "big-profile");
+        }
+        localCache.partitions().values().forEach(Cache::cleanUp);
+
+        assertEquals("small-profile", localCache.getIfPresent(TenantKeys.of("small", "u-1")));
+        assertTrue(localCache.partitions().get("big").estimatedSize() <= 50);
+        assertNull(localCache.getIfPresent(TenantKeys.of("small", "u-2")));
+        cacheManager.shutdown();
+    }
+
+    @Test
+    void staleEntriesAreReloadedByTheRegisteredReloader() throws Exception {
+        RedisCacheWriter writer = mock(RedisCacheWriter.class);
+        TwoLevelCacheManager cacheManager = staleCacheManager(writer);
+        CountDownLatch reloaded = new CountDownLatch(1);
+        List<String> reloadedKeys = new ArrayList<>();
+        cacheManager.registerReloader(CacheNames.USER_PROFILES, key -> {
+            reloadedKeys.add(key);
+            reloaded.countDown();
+            return "new";
+        });
+        TwoLevelCache cache = (TwoLevelCache) cacheManager.getCache(CacheNames.USER_PROFILES);
+
+        AtomicInteger loads = new AtomicInteger();
+        String value = cache.get(TenantKeys.of("acme", "u-1"), () -> {
+            loads.incrementAndGet();
+            return "loaded";
+        });
+
+        assertEquals("old", value);
+        assertTrue(reloaded.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("acme:u-1"), reloadedKeys);
+        assertEquals(0, loads.get(), "请求线程的回源Callable不应在刷新线程中重复执行");
+        verify(writer, timeout(5000)).put(eq(CacheNames.USER_PROFILES), any(), any(), any());
+        assertEquals(1, cache.getStaleHitCount());
+        cacheManager.shutdown();
+    }
+
+    @Test
+    void staleEntriesWithoutReloaderAreLoadedByTheCaller() {
+        TwoLevelCacheManager cacheManager = staleCacheManager(mock(RedisCacheWriter.class));
+        TwoLevelCache cache = (TwoLevelCache) cacheManager.getCache(CacheNames.USER_PROFILES);
+
+        String value = cache.get(TenantKeys.of("acme", "u-1"), () -> "loaded");
+
+        assertEquals("loaded", value);
+        assertEquals(0, cache.getStaleHitCount());
+        assertEquals(1, cache.getRefreshCount());
+        cacheManager.shutdown();
+    }
+
+    @Test
+    void nonSyncReadsRevalidateLikeSyncReads() throws Exception {
+        RedisCacheWriter writer = mock(RedisCacheWriter.class);
+        StringRedisTemplate redisTemplate = staleEntryTemplate();
+        TwoLevelCacheManager cacheManager = staleCacheManager(writer, redisTemplate);
+        CountDownLatch reloaded = new CountDownLatch(1);
+        cacheManager.registerReloader(CacheNames.USER_PROFILES, key -> {
+            reloaded.countDown();
+            return "new";
+        });
+        TwoLevelCache cache = (TwoLevelCache) cacheManager.getCache(CacheNames.USER_PROFILES);
+
+        assertEquals("old", cache.get(TenantKeys.of("acme", "u-1"), String.class));
+        assertTrue(reloaded.await(5, TimeUnit.SECONDS));
+        assertEquals(1, cache.getStaleHitCount());
+        // 值和剩余过期时间在同一个pipeline中读取，不再单独查询TTL
+        verify(redisTemplate, times(1)).executePipelined(any(RedisCallback.class), isNull());
+        verify(redisTemplate, never()).getExpire(anyString(), any(TimeUnit.class));
+        verify(writer, never()).get(anyString(), any());
+        cacheManager.shutdown();
+    }
+
+    @Test
+    void nonSyncReadsTreatStaleEntriesWithoutReloaderAsMisses() {
+        TwoLevelCacheManager cacheManager = staleCacheManager(mock(RedisCacheWriter.class), staleEntryTemplate());
+        TwoLevelCache cache = (TwoLevelCache) cacheManager.getCache(CacheNames.USER_PROFILES);
+
+        assertNull(cache.get(TenantKeys.of("acme", "u-1")));
+        cacheManager.shutdown();
+    }
+
+    /**
+     * L2中已有一个剩余过期时间进入旧值保留段的条目，GET和PTTL在同一个pipeline中返回
+     */
+    private static StringRedisTemplate staleEntryTemplate() {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        when(redisTemplate.executePipelined(any(RedisCallback.class), isNull()))
+                .thenReturn(List.of(RedisSerializer.java().serialize("old"), 1000L));
+        return redisTemplate;
+    }
+
+    private static TwoLevelCacheManager staleCacheManager(RedisCacheWriter writer) {
+        return staleCacheManager(writer, staleEntryTemplate());
+    }
+
+    private static TwoLevelCacheManager staleCacheManager(RedisCacheWriter writer, StringRedisTemplate redisTemplate) {
+        UserServiceCacheProperties properties = new UserServiceCacheProperties();
+        properties.getRedis().getCaches().put(CacheNames.USER_PROFILES,
+                new UserServiceCacheProperties.RedisSpec(null, null, null, Duration.ofMinutes(2)));
+        return new TwoLevelCacheManager(RedisCacheManager.builder(writer).build(),
+                properties, new TenantProperties(), new CacheTtlPolicy(properties), redisTemplate);
+    }
+}
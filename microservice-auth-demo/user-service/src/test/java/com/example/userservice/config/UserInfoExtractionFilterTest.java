@@ -0,0 +1,78 @@
+package com.example.userservice.config;
+
+import com.example.userservice.entity.UserProfile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 用户信息提取过滤器测试
+ */
+class UserInfoExtractionFilterTest {
+
+    private final UserInfoExtractionFilter filter = new UserInfoExtractionFilter();
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void reusesAuthenticationForSameHeaders() throws Exception {
+        Authentication first = authenticate("u-1", "alice", "{\"roles\":[\"user\",\"admin\"]}");
+        Authentication second = authenticate("u-1", "alice", "{\"roles\":[\"user\",\"admin\"]}");
+
+        assertSame(first, second);
+        assertEquals("u-1", ((MicroserviceUserDetails) first.getPrincipal()).getUserId());
+        assertTrue(first.getAuthorities().stream().anyMatch(a -> "ROLE_ADMIN".equals(a.getAuthority())));
+    }
+
+    @Test
+    void differentUsersGetSeparateAuthenticationsWithSharedAuthorities() throws Exception {
+        Authentication alice = authenticate("u-1", "alice", "{\"roles\":[\"user\"]}");
+        Authentication bob = authenticate("u-2", "bob", "{\"roles\":[\"user\"]}");
+
+        assertNotSame(alice, bob);
+        assertEquals("bob", ((MicroserviceUserDetails) bob.getPrincipal()).getUsername());
+        assertSame(alice.getAuthorities().iterator().next(), bob.getAuthorities().iterator().next());
+    }
+
+    @Test
+    void tenantHeaderIsPartOfIdentity() throws Exception {
+        Authentication defaultTenant = authenticate(null, "u-1", "alice", "{\"roles\":[\"user\"]}");
+        Authentication acme = authenticate("acme", "u-1", "alice", "{\"roles\":[\"user\"]}");
+
+        assertNotSame(defaultTenant, acme);
+        assertEquals(UserProfile.DEFAULT_TENANT, ((MicroserviceUserDetails) defaultTenant.getPrincipal()).getTenantId());
+        assertEquals("acme", ((MicroserviceUserDetails) acme.getPrincipal()).getTenantId());
+    }
+
+    @Test
+    void invalidTenantIsNotAuthenticated() throws Exception {
+        assertNull(authenticate("acme:u-2", "u-1", "alice", "{\"roles\":[\"user\"]}"));
+    }
+
+    private Authentication authenticate(String userId, String username, String userInfo) throws Exception {
+        return authenticate(null, userId, username, userInfo);
+    }
+
+    private Authentication authenticate(String tenantId, String userId, String username, String userInfo) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        if (tenantId != null) {
+            request.addHeader(UserInfoExtractionFilter.TENANT_HEADER, tenantId);
+        }
+        request.addHeader("X-User-ID", userId);
+        request.addHeader("X-Username", username);
+        request.addHeader("X-User-Info", userInfo);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return authentication;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.userservice.controller.response;
+
+import com.example.userservice.entity.UserProfile;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 响应序列化测试 - 预序列化片段输出的JSON与原有响应结构一致
+ */
+class JsonResponseWriterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final JsonResponseWriter writer = writer(objectMapper);
+
+    @Test
+    void profileFragmentsAreWrittenAsNestedObjects() throws Exception {
+        UserProfile profile = profile("张三");
+        JsonResponseWriter.Fragments fragments = writer.fragments(profile);
+        ProfileView view = new ProfileView(fragments.basic(), fragments.organization(),
+                new ProfileView.Timeline(null, null, null, true),
+                new ProfileView.Security(List.of(new SimpleGrantedAuthority("ROLE_USER")), Map.of("client", "web")));
+
+        ResponseEntity<byte[]> response = writer.ok(ApiResponse.of(view, Meta.of("MySQL + Redis Cache").withVersion("v1")));
+        JsonNode json = objectMapper.readTree(response.getBody());
+
+        assertTrue(json.get("success").asBoolean());
+        assertEquals("u-1", json.at("/data/basic/userId").asText());
+        assertEquals("张三", json.at("/data/basic/displayName").asText());
+        assertEquals("研发部", json.at("/data/organization/department").asText());
+        assertEquals("ROLE_USER", json.at("/data/security/authorities/0/authority").asText());
+        assertTrue(json.at("/data/profile/lastLogin").isNull());
+        assertEquals("v1", json.at("/meta/version").asText());
+        assertFalse(json.at("/meta").has("cacheKey"));
+        assertFalse(json.has("timestamp"));
+    }
+
+    @Test
+    void fragmentsAreCachedPerProfileInstance() {
+        UserProfile profile = profile("张三");
+
+        assertSame(writer.fragments(profile), writer.fragments(profile));
+        // 修改资料后缓存中是新对象，不会复用旧片段
+        assertNotSame(writer.fragments(profile), writer.fragments(profile("李四")));
+    }
+
+    @Test
+    void errorResponseOmitsMissingMessage() throws Exception {
+        ResponseEntity<byte[]> response = writer.status(HttpStatus.BAD_REQUEST, ErrorResponse.of("用户ID数量不能超过1000"));
+        JsonNode json = objectMapper.readTree(response.getBody());
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertFalse(json.get("success").asBoolean());
+        assertFalse(json.has("message"));
+        assertTrue(json.has("timestamp"));
+    }
+
+    private static UserProfile profile(String displayName) {
+        UserProfile profile = new UserProfile("u-1", "zhangsan", "zhangsan@example.com");
+        profile.setDisplayName(displayName);
+        profile.setDepartment("研发部");
+        profile.setPosition("工程师");
+        return profile;
+    }
+
+    private static JsonResponseWriter writer(ObjectMapper objectMapper) {
+        JsonResponseWriter writer = new JsonResponseWriter();
+        ReflectionTestUtils.setField(writer, "objectMapper", objectMapper);
+        return writer;
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.userservice.datasource;
+
+import com.example.userservice.config.ReplicaDataSourceProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 读写分离路由测试，两个H2内存库分别代替主库和从库
+ */
+class ReadWriteRoutingDataSourceTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final HikariDataSource primary = database("primary");
+    private final HikariDataSource replica = database("replica");
+
+    @AfterEach
+    void closePools() {
+        primary.close();
+        replica.close();
+    }
+
+    @Test
+    void markedReadOnlyTransactionsUseReplica() {
+        ReplicationLagMonitor monitor = new ReplicationLagMonitor(replica, lagQuery("SELECT 1 AS Seconds_Behind_Source"), meterRegistry);
+        DataSource dataSource = routing(monitor);
+
+        assertTrue(monitor.isAvailable());
+        assertEquals("replica", fromReplica(() -> currentDatabase(dataSource, true)));
+        assertEquals("primary", fromReplica(() -> currentDatabase(dataSource, false)));
+        assertEquals("primary", new JdbcTemplate(dataSource).queryForObject("SELECT name FROM marker", String.class));
+        assertEquals(1.0, meterRegistry.get("datasource.routes").tag("target", "replica").counter().count());
+    }
+
+    @Test
+    void unmarkedReadOnlyTransactionsStayOnPrimary() {
+        ReplicationLagMonitor monitor = new ReplicationLagMonitor(replica, lagQuery("SELECT 1 AS Seconds_Behind_Source"), meterRegistry);
+        DataSource dataSource = routing(monitor);
+
+        assertEquals("primary", currentDatabase(dataSource, true));
+        assertFalse(ReadFromReplicaInterceptor.isRequested());
+    }
+
+    @Test
+    void laggingReplicaFallsBackToPrimary() {
+        ReplicationLagMonitor monitor = new ReplicationLagMonitor(replica, lagQuery("SELECT 30 AS Seconds_Behind_Source"), meterRegistry);
+        DataSource dataSource = routing(monitor);
+
+        assertFalse(monitor.isAvailable());
+        assertEquals(30, monitor.getLagSeconds());
+        assertEquals("primary", fromReplica(() -> currentDatabase(dataSource, true)));
+        assertEquals(1.0, meterRegistry.get("datasource.routes").tag("reason", "replica-unavailable").counter().count());
+    }
+
+    @Test
+    void stoppedReplicationFallsBackToPrimary() {
+        ReplicationLagMonitor monitor = new ReplicationLagMonitor(replica,
+                lagQuery("SELECT CAST(NULL AS BIGINT) AS Seconds_Behind_Source"), meterRegistry);
+
+        assertFalse(monitor.isAvailable());
+        assertEquals("primary", fromReplica(() -> currentDatabase(routing(monitor), true)));
+    }
+
+    private DataSource routing(ReplicationLagMonitor monitor) {
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(monitor, meterRegistry);
+        routing.setTargetDataSources(Map.of(
+                ReadWriteRoutingDataSource.PRIMARY, primary,
+                ReadWriteRoutingDataSource.REPLICA, replica));
+        routing.setDefaultTargetDataSource(primary);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    /**
+     * 经过 ReadFromReplicaInterceptor 调用，等同于调用 @ReadFromReplica 方法
+     */
+    @SuppressWarnings("unchecked")
+    private static String fromReplica(Supplier<String> query) {
+        ProxyFactory proxyFactory = new ProxyFactory(query);
+        proxyFactory.addAdvice(new ReadFromReplicaInterceptor());
+        return ((Supplier<String>) proxyFactory.getProxy()).get();
+    }
+
+    private static String currentDatabase(DataSource dataSource, boolean readOnly) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        transactionTemplate.setReadOnly(readOnly);
+        return transactionTemplate.execute(status ->
+                new JdbcTemplate(dataSource).queryForObject("SELECT name FROM marker", String.class));
+    }
+
+    private static ReplicaDataSourceProperties lagQuery(String query) {
+        ReplicaDataSourceProperties properties = new ReplicaDataSourceProperties();
+        properties.setLagQuery(query);
+        return properties;
+    }
+
+    private static HikariDataSource database(String name) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:" + name + "-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        dataSource.setPoolName(name);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE marker (name VARCHAR(16))");
+        jdbcTemplate.update("INSERT INTO marker VALUES (?)", name);
+        return dataSource;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.userservice.repository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * 记录Hibernate最近一次生成的查询SQL，供执行计划和投影查询测试使用
+ */
+public class CapturingStatementInspector implements StatementInspector {
+
+    private static final ThreadLocal<String> LAST_SELECT = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        String statement = sql.trim();
+        // use_sql_comments 开启时SQL以注释开头
+        if (statement.startsWith("/*")) {
+            statement = statement.substring(statement.indexOf("*/") + 2).trim();
+        }
+        if (statement.toLowerCase().startsWith("select")) {
+            LAST_SELECT.set(sql);
+        }
+        return sql;
+    }
+
+    public static void reset() {
+        LAST_SELECT.remove();
+    }
+
+    public static String lastSelect() {
+        return LAST_SELECT.get();
+    }
+}
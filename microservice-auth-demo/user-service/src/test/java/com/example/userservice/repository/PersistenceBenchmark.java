@@ -0,0 +1,167 @@
+package com.example.userservice.repository;
+
+import com.example.userservice.entity.UserProfile;
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.beans.factory.config.YamlPropertiesFactoryBean;
+import org.springframework.core.io.ClassPathResource;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * 持久化配置基准测试 - 默认配置 vs prod profile(JDBC批处理 + 预编译语句缓存 + 二级缓存)
+ *
+ * tuned 直接读取 application-prod.yml 中的 spring.jpa.properties.* 和
+ * spring.datasource.hikari.data-source-properties.*，两组都关闭SQL日志，只比较持久化本身。
+ * 主键使用IDENTITY生成，Hibernate不会批量执行INSERT，insert 的差异只来自预编译语句缓存(仅MySQL)。
+ * 内存H2没有网络往返，批处理和语句缓存的收益要在MySQL上才能体现，H2上主要看 lookup 和二级缓存写入的开销。
+ *
+ * 默认使用内存H2，运行方式：
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.userservice.repository.PersistenceBenchmark
+ *
+ * 使用本地MySQL时指定独立的库(每轮会重建 user_profiles 表)：
+ *     -Dbenchmark.jdbc-url="jdbc:mysql://localhost:3307/user_service_benchmark?useSSL=false&serverTimezone=UTC&allowPublicKeyRetrieval=true&createDatabaseIfNotExist=true&rewriteBatchedStatements=true"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersistenceBenchmark {
+
+    private static final String JDBC_URL = System.getProperty("benchmark.jdbc-url");
+    private static final String JDBC_USERNAME = System.getProperty("benchmark.jdbc-username", "app_user");
+    private static final String JDBC_PASSWORD = System.getProperty("benchmark.jdbc-password", "app_password");
+
+    private static final int ROWS = 10_000;
+    private static final int BATCH = 100;
+
+    @Param({"baseline", "tuned"})
+    private String profile;
+
+    private HikariDataSource dataSource;
+    private SessionFactory sessionFactory;
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Properties prodProperties = prodProfile();
+        boolean tuned = "tuned".equals(profile);
+
+        dataSource = new HikariDataSource();
+        if (JDBC_URL == null) {
+            dataSource.setJdbcUrl("jdbc:h2:mem:benchmark-" + profile + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        } else {
+            dataSource.setJdbcUrl(JDBC_URL);
+            dataSource.setUsername(JDBC_USERNAME);
+            dataSource.setPassword(JDBC_PASSWORD);
+            if (tuned) {
+                copy(prodProperties, "spring.datasource.hikari.data-source-properties.", dataSource::addDataSourceProperty);
+            }
+        }
+
+        Configuration configuration = new Configuration().addAnnotatedClass(UserProfile.class);
+        configuration.getProperties().put(AvailableSettings.DATASOURCE, dataSource);
+        configuration.setProperty(AvailableSettings.HBM2DDL_AUTO, "create");
+        if (tuned) {
+            copy(prodProperties, "spring.jpa.properties.", configuration::setProperty);
+        } else {
+            configuration.setProperty(AvailableSettings.USE_SECOND_LEVEL_CACHE, "false");
+        }
+        sessionFactory = configuration.buildSessionFactory();
+
+        for (int i = 0; i < ROWS; i += BATCH) {
+            insert();
+        }
+        SessionFactoryOptions options = sessionFactory.unwrap(SessionFactoryImplementor.class).getSessionFactoryOptions();
+        System.out.printf("%n[%s] 二级缓存: %s, JDBC批大小: %s%n", profile,
+            options.isSecondLevelCacheEnabled(), options.getJdbcBatchSize());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sessionFactory.close();
+        dataSource.close();
+    }
+
+    /**
+     * 每次调用在一个事务中插入 BATCH 条资料，结果按行/秒统计
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void insert() {
+        sessionFactory.inTransaction(session -> {
+            for (int i = 0; i < BATCH; i++) {
+                long n = sequence.getAndIncrement();
+                UserProfile profile = new UserProfile("bench-user-" + n, "bench_user_" + n, "bench_user_" + n + "@example.com");
+                profile.setDepartment("Engineering");
+                session.persist(profile);
+            }
+        });
+    }
+
+    /**
+     * 每次调用在一个事务中修改 BATCH 条已有资料，结果按行/秒统计
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void update() {
+        long from = ThreadLocalRandom.current().nextLong(ROWS - BATCH) + 1;
+        sessionFactory.inTransaction(session -> {
+            List<UserProfile> profiles = session.createSelectionQuery(
+                    "from UserProfile where id between :from and :to", UserProfile.class)
+                .setParameter("from", from)
+                .setParameter("to", from + BATCH - 1)
+                .getResultList();
+            profiles.forEach(profile -> profile.setPosition("Engineer-" + from));
+        });
+    }
+
+    /**
+     * 按 (tenantId, userId) 查询单个资料，与 UserProfileRepository#loadByTenantIdAndUserId 相同
+     */
+    @Benchmark
+    public UserProfile lookup() {
+        String userId = "bench-user-" + ThreadLocalRandom.current().nextLong(ROWS);
+        return sessionFactory.fromTransaction(session -> session.byNaturalId(UserProfile.class)
+            .using("tenantId", UserProfile.DEFAULT_TENANT)
+            .using("userId", userId)
+            .load());
+    }
+
+    private static Properties prodProfile() {
+        YamlPropertiesFactoryBean yaml = new YamlPropertiesFactoryBean();
+        yaml.setResources(new ClassPathResource("application-prod.yml"));
+        return yaml.getObject();
+    }
+
+    private static void copy(Properties source, String prefix, BiConsumer<String, String> target) {
+        // YAML中的数字和布尔值不是String，不能用 stringPropertyNames/getProperty
+        source.forEach((name, value) -> {
+            if (name.toString().startsWith(prefix)) {
+                target.accept(name.toString().substring(prefix.length()), value.toString());
+            }
+        });
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PersistenceBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
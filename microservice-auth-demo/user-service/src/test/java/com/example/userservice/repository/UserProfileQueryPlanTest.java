@@ -0,0 +1,165 @@
+package com.example.userservice.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 用户资料查询执行计划测试
+ *
+ * 向独立的MySQL库写入大量数据后，逐个调用Repository方法，
+ * 对Hibernate生成的SQL执行EXPLAIN，确认没有走全表扫描。
+ *
+ * 需要本地MySQL(localhost:3307)，默认跳过，运行方式：
+ * mvn test -Dquery-plan=true [-Dquery-plan.rows=200000]
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfSystemProperty(named = "query-plan", matches = "true")
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:mysql://localhost:3307/user_service_plan_test?useSSL=false&serverTimezone=UTC&allowPublicKeyRetrieval=true&createDatabaseIfNotExist=true&rewriteBatchedStatements=true",
+        "spring.jpa.hibernate.ddl-auto=update",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.example.userservice.repository.CapturingStatementInspector"
+})
+class UserProfileQueryPlanTest {
+
+    private static final int ROWS = Integer.getInteger("query-plan.rows", 100_000);
+    private static final String[] DEPARTMENTS = {
+        "Engineering", "Sales", "Marketing", "Finance", "HR", "Support", "Legal", "Operations",
+        "Research", "Design", "Product", "QA", "Security", "Data", "Platform", "Mobile"
+    };
+    private static final String[] TENANTS = {"default", "acme", "globex", "initech"};
+
+    @Autowired
+    private UserProfileRepository userProfileRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void seed() {
+        Integer existing = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user_profiles", Integer.class);
+        if (existing != null && existing >= ROWS) {
+            return;
+        }
+
+        // 租户和部门均匀分布，90%活跃，最后登录时间分布在最近30天
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> batch = new ArrayList<>();
+        for (int i = existing == null ? 0 : existing; i < ROWS; i++) {
+            Timestamp lastLogin = Timestamp.valueOf(now.minusMinutes((i * 37L) % (30 * 24 * 60)));
+            batch.add(new Object[] {
+                tenant(i), "plan-user-" + i, "plan_user_" + i, "plan_user_" + i + "@example.com",
+                DEPARTMENTS[i % DEPARTMENTS.length], i % 10 != 0, lastLogin,
+                Timestamp.valueOf(now), Timestamp.valueOf(now)
+            });
+            if (batch.size() == 5000) {
+                insert(batch);
+                batch.clear();
+            }
+        }
+        insert(batch);
+        jdbcTemplate.execute("ANALYZE TABLE user_profiles");
+    }
+
+    @Test
+    void findByUserIdUsesIndex() {
+        CapturingStatementInspector.reset();
+        userProfileRepository.findByTenantIdAndUserId(tenant(42), "plan-user-42");
+        assertUsesIndex(tenant(42), "plan-user-42");
+    }
+
+    @Test
+    void findByUsernameUsesIndex() {
+        CapturingStatementInspector.reset();
+        userProfileRepository.findByTenantIdAndUsername(tenant(42), "plan_user_42");
+        assertUsesIndex(tenant(42), "plan_user_42");
+    }
+
+    @Test
+    void findByEmailUsesIndex() {
+        CapturingStatementInspector.reset();
+        userProfileRepository.findByTenantIdAndEmail(tenant(42), "plan_user_42@example.com");
+        assertUsesIndex(tenant(42), "plan_user_42@example.com");
+    }
+
+    @Test
+    void findByDepartmentAndIsActiveTrueUsesIndex() {
+        CapturingStatementInspector.reset();
+        userProfileRepository.findSummariesByTenantIdAndDepartmentAndIsActiveTrue("acme", "Engineering");
+        assertUsesIndex("acme", "Engineering");
+    }
+
+    @Test
+    void findRecentlyActiveUsersUsesIndex() {
+        LocalDateTime since = LocalDateTime.now().minusHours(1);
+        CapturingStatementInspector.reset();
+        userProfileRepository.findRecentlyActiveUsers(since);
+        assertUsesIndex(Timestamp.valueOf(since));
+    }
+
+    @Test
+    void countUsersByDepartmentUsesIndex() {
+        CapturingStatementInspector.reset();
+        userProfileRepository.countUsersByDepartment();
+        assertUsesIndex();
+    }
+
+    @Test
+    void keysetPageUsesIndex() {
+        CapturingStatementInspector.reset();
+        userProfileRepository.findSummariesByTenantIdAndIsActiveTrueAndIdGreaterThanOrderByIdAsc(
+            "acme", 1000L, PageRequest.of(0, 100));
+        assertUsesIndex("acme", 1000L, 100);
+    }
+
+    /**
+     * 对最近一次生成的查询执行EXPLAIN，参数按SQL中出现的顺序传入
+     */
+    private void assertUsesIndex(Object... params) {
+        String sql = CapturingStatementInspector.lastSelect();
+        assertNotNull(sql, "未捕获到查询SQL");
+        long placeholders = sql.chars().filter(c -> c == '?').count();
+        assertEquals(params.length, placeholders, "参数个数与SQL占位符不一致: " + sql);
+
+        List<Map<String, Object>> plan = jdbcTemplate.queryForList("EXPLAIN " + sql, params);
+        for (Map<String, Object> row : plan) {
+            assertNotEquals("ALL", row.get("type"), "出现全表扫描: " + sql + " -> " + row);
+            assertNotNull(row.get("key"), "未使用索引: " + sql + " -> " + row);
+        }
+    }
+
+    /**
+     * 每连续7个用户属于同一租户，与部门分布错开
+     */
+    private static String tenant(int i) {
+        return TENANTS[(i / 7) % TENANTS.length];
+    }
+
+    private void insert(List<Object[]> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(
+            "INSERT INTO user_profiles (tenant_id, user_id, username, email, department, is_active, last_login, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)", batch);
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.userservice.repository;
+
+import com.example.userservice.cache.TenantKeys;
+import com.example.userservice.entity.UserProfile;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * prod profile 下的Hibernate二级缓存测试，内存H2代替MySQL
+ */
+@DataJpaTest
+@ActiveProfiles("prod")
+@Import(UserProfileJdbcRepository.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class UserProfileSecondLevelCacheTest {
+
+    @Autowired
+    private UserProfileRepository userProfileRepository;
+
+    @Autowired
+    private UserProfileJdbcRepository userProfileJdbcRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        sessionFactory.getCache().evictAllRegions();
+        userProfileRepository.deleteAll();
+        statistics = sessionFactory.getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void naturalIdLookupIsServedFromCache() {
+        userProfileRepository.save(new UserProfile("l2-user-1", "l2_user_1", "l2_user_1@example.com"));
+        UserProfile first = userProfileRepository.loadByTenantIdAndUserId(UserProfile.DEFAULT_TENANT, "l2-user-1").orElseThrow();
+        statistics.clear();
+
+        UserProfile second = userProfileRepository.loadByTenantIdAndUserId(UserProfile.DEFAULT_TENANT, "l2-user-1").orElseThrow();
+
+        assertEquals("l2_user_1", second.getUsername());
+        assertEquals(first.getId(), second.getId());
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getNaturalIdCacheHitCount());
+        assertEquals(1, statistics.getSecondLevelCacheHitCount());
+    }
+
+    @Test
+    void sameUserIdIsScopedByTenant() {
+        userProfileRepository.save(new UserProfile("l2-user-3", "l2_user_3", "l2_user_3@example.com"));
+        UserProfile other = new UserProfile("l2-user-3", "l2_user_3", "l2_user_3@example.com");
+        other.setTenantId("acme");
+        userProfileRepository.save(other);
+
+        assertEquals(UserProfile.DEFAULT_TENANT,
+                userProfileRepository.loadByTenantIdAndUserId(UserProfile.DEFAULT_TENANT, "l2-user-3").orElseThrow().getTenantId());
+        assertEquals("acme", userProfileRepository.loadByTenantIdAndUserId("acme", "l2-user-3").orElseThrow().getTenantId());
+        assertTrue(userProfileRepository.findByTenantIdAndUserId("globex", "l2-user-3").isEmpty());
+    }
+
+    @Test
+    void jdbcLastLoginUpdateEvictsCachedEntity() {
+        userProfileRepository.save(new UserProfile("l2-user-2", "l2_user_2", "l2_user_2@example.com"));
+        assertNull(userProfileRepository.loadByTenantIdAndUserId(UserProfile.DEFAULT_TENANT, "l2-user-2").orElseThrow().getLastLogin());
+
+        LocalDateTime loginTime = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        transactionTemplate.executeWithoutResult(status ->
+                userProfileJdbcRepository.batchUpdateLastLogin(Map.of(TenantKeys.of(UserProfile.DEFAULT_TENANT, "l2-user-2"), loginTime), 100));
+        userProfileJdbcRepository.evictFromEntityCache(List.of(TenantKeys.of(UserProfile.DEFAULT_TENANT, "l2-user-2"),
+                TenantKeys.of(UserProfile.DEFAULT_TENANT, "l2-missing")), 100);
+
+        assertEquals(loginTime, userProfileRepository.loadByTenantIdAndUserId(UserProfile.DEFAULT_TENANT, "l2-user-2").orElseThrow().getLastLogin());
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.userservice.repository;
+
+import com.example.userservice.entity.UserProfile;
+import com.example.userservice.entity.UserProfileSummary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 摘要投影查询测试，内存H2代替MySQL
+ */
+@DataJpaTest
+@TestPropertySource(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.example.userservice.repository.CapturingStatementInspector"
+})
+class UserProfileSummaryQueryTest {
+
+    @Autowired
+    private UserProfileRepository userProfileRepository;
+
+    @BeforeEach
+    void seed() {
+        userProfileRepository.save(profile("acme", "u-1", "Engineering", true));
+        userProfileRepository.save(profile("acme", "u-2", "Engineering", false));
+        userProfileRepository.save(profile("acme", "u-3", "Sales", true));
+        userProfileRepository.save(profile("globex", "u-4", "Engineering", true));
+    }
+
+    @Test
+    void departmentSummariesSelectOnlySummaryColumns() {
+        CapturingStatementInspector.reset();
+        List<UserProfileSummary> summaries =
+                userProfileRepository.findSummariesByTenantIdAndDepartmentAndIsActiveTrue("acme", "Engineering");
+
+        assertEquals(List.of("u-1"), summaries.stream().map(UserProfileSummary::userId).toList());
+        assertEquals("显示名u-1", summaries.get(0).displayName());
+        String sql = CapturingStatementInspector.lastSelect().toLowerCase();
+        assertFalse(sql.contains("avatar_url"), sql);
+        assertFalse(sql.contains("phone"), sql);
+        assertFalse(sql.contains("email"), sql);
+    }
+
+    @Test
+    void keysetPageReturnsSummariesInIdOrder() {
+        List<UserProfileSummary> page = userProfileRepository
+                .findSummariesByTenantIdAndIsActiveTrueAndIdGreaterThanOrderByIdAsc("acme", 0L, PageRequest.of(0, 10));
+
+        assertEquals(List.of("u-1", "u-3"), page.stream().map(UserProfileSummary::userId).toList());
+        assertTrue(page.get(0).id() < page.get(1).id());
+    }
+
+    private static UserProfile profile(String tenantId, String userId, String department, boolean active) {
+        UserProfile profile = new UserProfile(userId, "user_" + userId, userId + "@example.com");
+        profile.setTenantId(tenantId);
+        profile.setDisplayName("显示名" + userId);
+        profile.setAvatarUrl("https://cdn.example.com/" + userId + ".png");
+        profile.setPhone("13800000000");
+        profile.setDepartment(department);
+        profile.setIsActive(active);
+        return profile;
+    }
+}
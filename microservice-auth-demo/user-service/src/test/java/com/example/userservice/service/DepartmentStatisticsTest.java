@@ -0,0 +1,48 @@
+package com.example.userservice.service;
+
+import com.example.userservice.repository.UserProfileRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 部门统计对账测试
+ */
+class DepartmentStatisticsTest {
+
+    private static final String TENANT = "acme";
+
+    @Test
+    void changeCommittedDuringReconcileIsNotLost() throws Exception {
+        UserProfileRepository repository = mock(UserProfileRepository.class);
+        DepartmentStatistics statistics = new DepartmentStatistics();
+        ReflectionTestUtils.setField(statistics, "userProfileRepository", repository);
+        ReflectionTestUtils.setField(statistics, "profileEventBus", mock(ProfileEventBus.class));
+
+        CountDownLatch querying = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(repository.countUsersByDepartment()).thenAnswer(invocation -> {
+            querying.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return List.<Object[]>of(new Object[]{TENANT, "Sales", 3L});
+        });
+
+        CompletableFuture<Void> reconcile = CompletableFuture.runAsync(statistics::reconcile);
+        assertTrue(querying.await(5, TimeUnit.SECONDS));
+        // 对账查询之后提交的新增，数据库快照中没有；查询期间增量更新不被阻塞
+        CompletableFuture.runAsync(() -> statistics.applyCapturedChange(TENANT, null, false, "Sales", true))
+            .get(5, TimeUnit.SECONDS);
+        release.countDown();
+        reconcile.get(5, TimeUnit.SECONDS);
+
+        assertEquals(Map.of("Sales", 4L), statistics.snapshot(TENANT));
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.userservice.service;
+
+import com.example.userservice.cache.CacheNames;
+import com.example.userservice.cache.ProfileCacheWriter;
+import com.example.userservice.config.ChangeCaptureProperties;
+import com.example.userservice.repository.ProfileChangeRepository;
+import com.example.userservice.repository.ProfileChangeRepository.ProfileChange;
+import com.example.userservice.repository.UserProfileJdbcRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 资料变更消费测试
+ */
+class ProfileChangeConsumerTest {
+
+    private static final String TENANT = "acme";
+
+    private final ProfileChangeRepository changeRepository = mock(ProfileChangeRepository.class);
+    private final ProfileCacheWriter cacheWriter = mock(ProfileCacheWriter.class);
+    private final DepartmentStatistics departmentStatistics = new DepartmentStatistics();
+    private final ProfileEventBus profileEventBus = mock(ProfileEventBus.class);
+    private final ProfileChangeConsumer consumer = new ProfileChangeConsumer();
+
+    @BeforeEach
+    void setUp() {
+        ChangeCaptureProperties properties = new ChangeCaptureProperties();
+        properties.setInstallSchema(false);
+        ReflectionTestUtils.setField(consumer, "properties", properties);
+        ReflectionTestUtils.setField(consumer, "profileChangeRepository", changeRepository);
+        ReflectionTestUtils.setField(consumer, "userProfileJdbcRepository", mock(UserProfileJdbcRepository.class));
+        ReflectionTestUtils.setField(consumer, "profileCacheWriter", cacheWriter);
+        ReflectionTestUtils.setField(consumer, "departmentStatistics", departmentStatistics);
+        ReflectionTestUtils.setField(consumer, "recentActivityIndex", mock(RecentActivityIndex.class));
+        ReflectionTestUtils.setField(consumer, "profileEventBus", profileEventBus);
+        ReflectionTestUtils.setField(departmentStatistics, "profileEventBus", profileEventBus);
+        when(changeRepository.findMaxId()).thenReturn(2L);
+        consumer.start();
+    }
+
+    @Test
+    void departmentMoveEvictsBothDepartmentsAndUsernames() {
+        Map<String, Set<String>> keys = ProfileChangeConsumer.affectedKeys(List.of(
+            update(3, "u-1", "alice", "alice2", "Sales", "Engineering", true, true),
+            update(4, "u-2", "bob", "bob", "HR", "HR", false, false)));
+
+        assertEquals(Set.of("acme:u-1", "acme:u-2"), keys.get(CacheNames.USER_PROFILES));
+        assertEquals(Set.of("acme:alice", "acme:alice2", "acme:bob"), keys.get(CacheNames.USER_PROFILES_BY_USERNAME));
+        // 停用用户不在部门列表中
+        assertEquals(Set.of("acme:Sales", "acme:Engineering"), keys.get(CacheNames.DEPARTMENT_USERS));
+    }
+
+    @Test
+    void lateCommittedChangeIsPickedUpFromGap() {
+        ProfileChange later = update(4, "u-4", "dave", "dave", "HR", "Sales", true, true);
+        ProfileChange earlier = update(3, "u-3", "carol", "carol", null, "HR", false, true);
+        when(changeRepository.findChanges(eq(2L), any(), anyInt())).thenReturn(List.of(later));
+        when(changeRepository.findChanges(eq(4L), eq(List.of(3L)), anyInt())).thenReturn(List.of(earlier));
+
+        consumer.poll();
+        consumer.poll();
+
+        verify(cacheWriter, times(2)).evictCaptured(any());
+        verify(changeRepository).findChanges(eq(4L), eq(List.of(3L)), anyInt());
+        assertEquals(1, departmentStatistics.count(TENANT, "Sales"));
+        assertEquals(0, departmentStatistics.count(TENANT, "HR"));
+        assertEquals(0, departmentStatistics.count("other", "Sales"));
+        verify(profileEventBus).publish(argThat(event -> event.type() == ProfileEvent.Type.DEPARTMENT_COUNT
+            && "Sales".equals(event.department()) && event.count() == 1));
+        verify(profileEventBus).publish(argThat(event -> event.type() == ProfileEvent.Type.PROFILE_UPDATED
+            && "u-3".equals(event.userId())));
+    }
+
+    @Test
+    void failedEvictionIsRetried() {
+        ProfileChange change = update(3, "u-1", "alice", "alice", "HR", "HR", true, true);
+        when(changeRepository.findChanges(eq(2L), any(), anyInt())).thenReturn(List.of(change));
+        doThrow(new IllegalStateException("redis down")).doNothing().when(cacheWriter).evictCaptured(any());
+
+        consumer.poll();
+        consumer.poll();
+        consumer.poll();
+
+        verify(changeRepository, times(2)).findChanges(eq(2L), any(), anyInt());
+        verify(changeRepository).findChanges(eq(3L), any(), anyInt());
+    }
+
+    @Test
+    void ownWritesKeepTheirWrittenThroughCacheEntries() {
+        ProfileChange own = new ProfileChange(3, 'U', 3, TENANT, "u-1", "u-1", "alice", "alice",
+            "HR", "Sales", true, true, "user-service");
+        ProfileChange external = update(4, "u-2", "bob", "bob", "HR", "HR", true, true);
+        when(changeRepository.findChanges(eq(2L), any(), anyInt())).thenReturn(List.of(own, external));
+
+        consumer.poll();
+
+        verify(cacheWriter).evictCaptured(argThat(keys ->
+            keys.get(CacheNames.USER_PROFILES).equals(Set.of("acme:u-2"))
+                && keys.get(CacheNames.DEPARTMENT_USERS).equals(Set.of("acme:HR"))));
+        // 计数和事件仍按全部变更处理
+        assertEquals(1, departmentStatistics.count(TENANT, "Sales"));
+        verify(profileEventBus).publish(argThat(event -> event.type() == ProfileEvent.Type.PROFILE_UPDATED
+            && "u-1".equals(event.userId())));
+    }
+
+    private static ProfileChange update(long id, String userId, String oldUsername, String newUsername,
+                                        String oldDepartment, String newDepartment, boolean oldActive, boolean newActive) {
+        return new ProfileChange(id, 'U', id, TENANT, userId, userId, oldUsername, newUsername,
+            oldDepartment, newDepartment, oldActive, newActive, null);
+    }
+}
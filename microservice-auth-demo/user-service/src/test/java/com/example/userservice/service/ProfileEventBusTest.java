@@ -0,0 +1,195 @@
+package com.example.userservice.service;
+
+import com.example.userservice.config.ProfileEventProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 资料事件总线测试
+ */
+class ProfileEventBusTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ProfileEventBus bus = new ProfileEventBus(properties(), meterRegistry);
+
+    @AfterEach
+    void shutdown() {
+        bus.shutdown();
+    }
+
+    @Test
+    void subscribersOnlyReceiveTheirTenantsEvents() throws Exception {
+        RecordingSubscriber acme = new RecordingSubscriber(null);
+        bus.subscribe("acme", acme);
+
+        bus.publish(ProfileEvent.login("globex", "u-1", null));
+        bus.publish(ProfileEvent.login("acme", "u-2", null));
+
+        ProfileEvent event = acme.next();
+        assertEquals("u-2", event.userId());
+        assertEquals(ProfileEvent.Type.LOGIN, event.type());
+        assertNull(acme.events.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void fullBufferDropsEventsAndSendsResync() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingSubscriber slow = new RecordingSubscriber(release);
+        bus.subscribe("acme", slow);
+
+        // 第一个事件发出后订阅者阻塞，缓冲区(4)写满后再丢弃2个
+        bus.publish(ProfileEvent.login("acme", "u-0", null));
+        assertTrue(slow.delivering.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i <= 6; i++) {
+            bus.publish(ProfileEvent.login("acme", "u-" + i, null));
+        }
+        release.countDown();
+
+        assertEquals("u-0", slow.next().userId());
+        ProfileEvent resync = slow.next();
+        assertEquals(ProfileEvent.Type.RESYNC, resync.type());
+        assertEquals(2L, resync.count());
+        for (int i = 1; i <= 4; i++) {
+            assertEquals("u-" + i, slow.next().userId());
+        }
+        assertEquals(2.0, meterRegistry.get("profile.events.dropped").counter().count());
+    }
+
+    @Test
+    void slowConsumerIsDisconnected() throws Exception {
+        RecordingSubscriber stuck = new RecordingSubscriber(new CountDownLatch(1));
+        bus.subscribe("acme", stuck);
+
+        bus.publish(ProfileEvent.login("acme", "u-0", null));
+        assertTrue(stuck.delivering.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i <= 4 + 8 + 1; i++) {
+            bus.publish(ProfileEvent.login("acme", "u-" + i, null));
+        }
+
+        assertTrue(stuck.closed.await(5, TimeUnit.SECONDS));
+        assertEquals(0, bus.getSubscriberCount());
+        assertEquals(1.0, meterRegistry.get("profile.events.slow.disconnects").counter().count());
+    }
+
+    @Test
+    void stalledSendIsDisconnectedWithoutPinningTheDispatcher() throws Exception {
+        ProfileEventProperties properties = properties();
+        properties.setSendTimeout(Duration.ofMillis(200));
+        ProfileEventBus timedBus = new ProfileEventBus(properties, meterRegistry);
+        try {
+            CountDownLatch release = new CountDownLatch(1);
+            RecordingSubscriber stalled = new RecordingSubscriber(release);
+            RecordingSubscriber healthy = new RecordingSubscriber(null);
+            timedBus.subscribe("acme", stalled);
+            timedBus.subscribe("globex", healthy);
+
+            // 唯一的发送线程等待卡住的写出超时后断开，之后继续为其他订阅者发送
+            timedBus.publish(ProfileEvent.login("acme", "u-0", null));
+            assertTrue(stalled.delivering.await(5, TimeUnit.SECONDS));
+            timedBus.publish(ProfileEvent.login("globex", "u-1", null));
+
+            assertEquals("u-1", healthy.next().userId());
+            assertEquals(1, timedBus.getSubscriberCount());
+            assertEquals(1.0, meterRegistry.get("profile.events.send.timeouts").counter().count());
+            release.countDown();
+            assertTrue(stalled.closed.await(5, TimeUnit.SECONDS));
+        } finally {
+            timedBus.shutdown();
+        }
+    }
+
+    @Test
+    void concurrentSubscribesRespectTheLimit() throws Exception {
+        ProfileEventProperties properties = properties();
+        properties.setMaxSubscribers(5);
+        ProfileEventBus limitedBus = new ProfileEventBus(properties, meterRegistry);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Boolean>> attempts = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                attempts.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        limitedBus.subscribe("acme", new RecordingSubscriber(null));
+                        return true;
+                    } catch (IllegalStateException e) {
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+            int accepted = 0;
+            for (Future<Boolean> attempt : attempts) {
+                accepted += attempt.get(5, TimeUnit.SECONDS) ? 1 : 0;
+            }
+
+            assertEquals(5, accepted);
+            assertEquals(5, limitedBus.getSubscriberCount());
+        } finally {
+            executor.shutdownNow();
+            limitedBus.shutdown();
+        }
+    }
+
+    private static ProfileEventProperties properties() {
+        ProfileEventProperties properties = new ProfileEventProperties();
+        properties.setBufferSize(4);
+        properties.setMaxDroppedEvents(8);
+        properties.setDispatchThreads(1);
+        return properties;
+    }
+
+    private static class RecordingSubscriber implements ProfileEventBus.Subscriber {
+
+        private final LinkedBlockingQueue<ProfileEvent> events = new LinkedBlockingQueue<>();
+        private final CountDownLatch delivering = new CountDownLatch(1);
+        private final CountDownLatch release;
+        private final CountDownLatch closed = new CountDownLatch(1);
+
+        RecordingSubscriber(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void deliver(List<ProfileEvent> batch) {
+            events.addAll(batch);
+            delivering.countDown();
+            if (release != null) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        @Override
+        public void heartbeat() {
+        }
+
+        @Override
+        public void close() {
+            closed.countDown();
+        }
+
+        ProfileEvent next() throws InterruptedException {
+            ProfileEvent event = events.poll(5, TimeUnit.SECONDS);
+            assertNotNull(event, "未收到事件");
+            return event;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.userservice.service;
+
+import com.example.userservice.cache.ProfileCacheWriter;
+import com.example.userservice.cache.TenantKeys;
+import com.example.userservice.entity.UserProfile;
+import com.example.userservice.repository.UserProfileJdbcRepository;
+import com.example.userservice.repository.UserProfileRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+/**
+ * 默认资料生成测试
+ */
+class ProfileProvisionerTest {
+
+    @Test
+    void defaultUsernameHandlesShortIds() {
+        assertEquals("用户abc", ProfileProvisioner.defaultUsername("abc"));
+        assertEquals("用户12345678", ProfileProvisioner.defaultUsername("1234567890ab"));
+    }
+
+    @Test
+    void defaultProfilePrefersGatewayUsernameAndIsNotPersisted() {
+        UserProfile profile = ProfileProvisioner.defaultProfile("acme", "u-1", "alice");
+
+        assertNull(profile.getId());
+        assertEquals("acme", profile.getTenantId());
+        assertEquals("alice", profile.getUsername());
+        assertEquals(DepartmentStatistics.UNASSIGNED, profile.getDepartment());
+        assertTrue(profile.getIsActive());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void rowsInsertedByOtherInstancesAreNotReportedAsCreated() {
+        UserProfileRepository repository = mock(UserProfileRepository.class);
+        UserProfileJdbcRepository jdbcRepository = mock(UserProfileJdbcRepository.class);
+        ProfileEventBus eventBus = mock(ProfileEventBus.class);
+        DepartmentStatistics statistics = mock(DepartmentStatistics.class);
+        ProfileCacheWriter cacheWriter = mock(ProfileCacheWriter.class);
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+            invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        // 查询时两个用户都不存在，插入时 u-2 已被其他实例创建，影响行数为0
+        when(repository.findByTenantIdAndUserIdIn(anyString(), anyList())).thenReturn(List.of());
+        when(jdbcRepository.insertIfAbsent(anyList())).thenAnswer(invocation ->
+            invocation.<List<UserProfile>>getArgument(0).stream()
+                .filter(profile -> profile.getUserId().equals("u-1"))
+                .toList());
+
+        ProfileProvisioner provisioner = new ProfileProvisioner();
+        ReflectionTestUtils.setField(provisioner, "userProfileRepository", repository);
+        ReflectionTestUtils.setField(provisioner, "userProfileJdbcRepository", jdbcRepository);
+        ReflectionTestUtils.setField(provisioner, "profileEventBus", eventBus);
+        ReflectionTestUtils.setField(provisioner, "departmentStatistics", statistics);
+        ReflectionTestUtils.setField(provisioner, "profileCacheWriter", cacheWriter);
+        ReflectionTestUtils.setField(provisioner, "transactionTemplate", transactionTemplate);
+        Map<String, UserProfile> pending = (Map<String, UserProfile>) ReflectionTestUtils.getField(provisioner, "pending");
+        pending.put(TenantKeys.of("acme", "u-1"), ProfileProvisioner.defaultProfile("acme", "u-1", null));
+        pending.put(TenantKeys.of("acme", "u-2"), ProfileProvisioner.defaultProfile("acme", "u-2", null));
+
+        provisioner.flush();
+
+        verify(eventBus, times(1)).recordChange(any());
+        verify(statistics, times(1)).recordChange(eq("acme"), isNull(), eq(false), anyString(), anyBoolean());
+        verify(cacheWriter, times(1)).writeThrough(argThat(profile -> profile.getUserId().equals("u-1")), isNull());
+        assertTrue(pending.isEmpty());
+    }
+}
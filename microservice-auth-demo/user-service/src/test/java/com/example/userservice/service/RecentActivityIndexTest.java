@@ -0,0 +1,61 @@
+package com.example.userservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 最近活跃用户索引计数和游标分页测试
+ */
+class RecentActivityIndexTest {
+
+    private static final String TENANT = "acme";
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 5, 1, 12, 0);
+
+    @Test
+    void countMatchesRangeAcrossHourBuckets() {
+        RecentActivityIndex index = new RecentActivityIndex();
+        for (int i = 0; i < 50; i++) {
+            index.record(TENANT, "u-" + i, BASE.minusMinutes(i * 7L));
+        }
+        // 重复登录只移动条目，不重复计数
+        index.record(TENANT, "u-49", BASE.plusMinutes(1));
+        index.record(TENANT, "u-0", BASE.minusHours(1));
+        index.remove(TENANT, "u-10");
+
+        for (int minutes = 0; minutes <= 400; minutes += 13) {
+            LocalDateTime since = BASE.minusMinutes(minutes);
+            assertEquals(index.range(TENANT, since, null, 1000).size(), index.count(TENANT, since),
+                "since=" + since);
+        }
+        assertEquals(0, index.count("other", BASE));
+    }
+
+    @Test
+    void cursorPagesCoverTheRangeOnce() {
+        RecentActivityIndex index = new RecentActivityIndex();
+        for (int i = 0; i < 50; i++) {
+            // 每三个用户同一时间，游标需要按用户ID区分
+            index.record(TENANT, "u-" + i, BASE.minusMinutes(i / 3));
+        }
+        LocalDateTime since = BASE.minusMinutes(10);
+
+        List<RecentActivityIndex.Activity> all = index.range(TENANT, since, null, 1000);
+        List<RecentActivityIndex.Activity> paged = new ArrayList<>();
+        RecentActivityIndex.Activity after = null;
+        List<RecentActivityIndex.Activity> page;
+        do {
+            page = index.range(TENANT, since, after, 4);
+            paged.addAll(page);
+            after = page.isEmpty() ? null : page.get(page.size() - 1);
+        } while (page.size() == 4);
+
+        assertEquals(33, all.size());
+        assertEquals(all, paged);
+        assertTrue(index.range(TENANT, since, new RecentActivityIndex.Activity("u-0", BASE.minusHours(1)), 4).isEmpty());
+    }
+}
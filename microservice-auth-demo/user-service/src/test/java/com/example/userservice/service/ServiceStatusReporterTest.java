@@ -0,0 +1,77 @@
+package com.example.userservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 服务状态汇总测试
+ */
+class ServiceStatusReporterTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ServiceStatusReporter reporter = new ServiceStatusReporter();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ReflectionTestUtils.setField(reporter, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(reporter, "healthEndpoint", mock(ObjectProvider.class));
+    }
+
+    @Test
+    void reportsCacheHitRateFromCounters() {
+        Counter.builder("cache.gets").tag("cache", "userProfiles").tag("result", "hit").register(meterRegistry).increment(3);
+        Counter.builder("cache.gets").tag("cache", "userProfiles").tag("result", "miss").register(meterRegistry).increment();
+        Counter.builder("cache.evictions").tag("cache", "userProfiles").register(meterRegistry).increment(2);
+
+        ServiceStatus.CacheStats cache = reporter.report().caches().get(0);
+
+        assertEquals("userProfiles", cache.name());
+        assertEquals(3, cache.hits());
+        assertEquals(1, cache.misses());
+        assertEquals(0.75, cache.hitRate());
+        assertEquals(2, cache.evictions());
+    }
+
+    @Test
+    void reportsRepositoryPercentilesAndPoolWait() {
+        Timer query = Timer.builder("spring.data.repository.invocations")
+            .tag("repository", "UserProfileRepository").tag("method", "findByDepartment").tag("state", "SUCCESS")
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry);
+        query.record(Duration.ofMillis(4));
+        Timer.builder("hikaricp.connections.acquire").tag("pool", "primary").register(meterRegistry)
+            .record(Duration.ofMillis(2));
+        Gauge.builder("hikaricp.connections.active", () -> 5).tag("pool", "primary").register(meterRegistry);
+
+        ServiceStatus status = reporter.report();
+
+        ServiceStatus.Latency repository = status.repositories().get(0);
+        assertEquals("UserProfileRepository.findByDepartment", repository.name());
+        assertEquals(1, repository.count());
+        assertEquals(4.0, repository.max());
+        assertTrue(repository.percentiles().containsKey("p99"));
+        ServiceStatus.PoolStats pool = status.connectionPools().get(0);
+        assertEquals(5, pool.active());
+        assertEquals(2.0, pool.acquire().mean());
+        assertEquals("UNKNOWN", status.health().get("mysql"));
+    }
+
+    @Test
+    void percentileNames() {
+        assertEquals("p95", ServiceStatusReporter.percentileName(0.95));
+        assertEquals("p99.9", ServiceStatusReporter.percentileName(0.999));
+    }
+}